@@ -0,0 +1,63 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 构造查询字符串的开销。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpMxBenchmark {
+    @Param({
+        "5", "50"
+    })
+    public int parameterCount;
+
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() {
+        params = new LinkedHashMap<>();
+        for (int i = 0; i < parameterCount; ++i) {
+            // 交替使用不需要编码的值、需要编码的值和数字
+            switch (i % 3) {
+            case 0:
+                params.put("param" + i, "plain-value-" + i);
+                break;
+            case 1:
+                params.put("param" + i, "值 " + i + " & more");
+                break;
+            default:
+                params.put("param" + i, Long.valueOf(i * 1000L));
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public String buildQueryString() {
+        return HttpMx.buildQueryString(params);
+    }
+}
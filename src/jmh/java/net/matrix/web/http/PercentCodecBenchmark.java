@@ -0,0 +1,89 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 比较 {@link PercentCodec} 与 JDK 的 {@link URLEncoder}、{@link URLDecoder}。
+ * 使用 <code>-prof gc</code> 比较不需要编码的值的内存分配。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PercentCodecBenchmark {
+    @Param({
+        "plain", "ascii", "cjk"
+    })
+    public String kind;
+
+    private String value;
+
+    private String encoded;
+
+    private StringBuilder buffer;
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+        case "plain":
+            value = "plain-value-0123456789";
+            break;
+        case "ascii":
+            value = "a value & another=value";
+            break;
+        default:
+            value = "中文参数值 with spaces";
+            break;
+        }
+        encoded = URLEncoder.encode(value, StandardCharsets.UTF_8);
+        buffer = new StringBuilder(256);
+    }
+
+    @Benchmark
+    public String decode() {
+        return PercentCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public String decodeJdk() {
+        return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String encode() {
+        return PercentCodec.encode(value);
+    }
+
+    @Benchmark
+    public String encodeJdk() {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int encodeAppend() {
+        buffer.setLength(0);
+        PercentCodec.encode(value, buffer);
+        return buffer.length();
+    }
+}
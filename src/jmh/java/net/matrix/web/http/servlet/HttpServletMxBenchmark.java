@@ -0,0 +1,92 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 请求参数、ETag 和条件请求工具方法的开销。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpServletMxBenchmark {
+    @Param({
+        "5", "50"
+    })
+    public int parameterCount;
+
+    private HttpServletRequest request;
+
+    private HttpServletRequest noEtagRequest;
+
+    private HttpServletResponse response;
+
+    private String lastParameterName;
+
+    @Setup
+    public void setup() {
+        request = BenchmarkFixtures.request(parameterCount, 8, 0);
+        noEtagRequest = BenchmarkFixtures.request(parameterCount, 6, 0);
+        response = BenchmarkFixtures.response();
+        lastParameterName = BenchmarkFixtures.parameterName(parameterCount - 1);
+    }
+
+    @Benchmark
+    public String getParameter() {
+        return HttpServletMx.getParameter(request, lastParameterName);
+    }
+
+    @Benchmark
+    public Map<String, String> getParameterMap() {
+        return HttpServletMx.getParameterMap(request);
+    }
+
+    @Benchmark
+    public boolean checkIfNoneMatchEtag_matched() {
+        return HttpServletMx.checkIfNoneMatchEtag(request, response, "\"0f1e2d3c4b5a\"");
+    }
+
+    @Benchmark
+    public boolean checkIfNoneMatchEtag_unmatched() {
+        return HttpServletMx.checkIfNoneMatchEtag(request, response, "\"ffffff\"");
+    }
+
+    @Benchmark
+    public boolean checkIfNoneMatchEtag_absent() {
+        return HttpServletMx.checkIfNoneMatchEtag(noEtagRequest, response, "\"ffffff\"");
+    }
+
+    @Benchmark
+    public Precondition evaluatePreconditions_matched() {
+        return ConditionalRequests.evaluate(request, "\"0f1e2d3c4b5a\"", 0);
+    }
+
+    @Benchmark
+    public Precondition evaluatePreconditions_unmatched() {
+        return ConditionalRequests.evaluate(request, "\"ffffff\"", 0);
+    }
+}
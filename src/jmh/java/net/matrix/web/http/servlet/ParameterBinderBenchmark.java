@@ -0,0 +1,69 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 比较 {@link HttpServletMx#bind(HttpServletRequest, Class)} 与逐个调用参数获取方法的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterBinderBenchmark {
+    private HttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("name", "order name");
+        parameters.put("page", "3");
+        parameters.put("customerId", "1234567890");
+        parameters.put("amount", "199.99");
+        parameters.put("from", "2024-01-01");
+        parameters.put("to", "2024-12-31");
+        request = BenchmarkFixtures.request(parameters);
+    }
+
+    @Benchmark
+    public OrderQuery bind() {
+        return HttpServletMx.bind(request, OrderQuery.class);
+    }
+
+    @Benchmark
+    public OrderQuery byField() {
+        return new OrderQuery(HttpServletMx.getParameter(request, "name"), HttpServletMx.getIntegerParameter(request, "page"),
+            HttpServletMx.getLongParameter(request, "customerId"), HttpServletMx.getBigDecimalParameter(request, "amount"),
+            HttpServletMx.getLocalDateParameter(request, "from", "yyyy-MM-dd"), HttpServletMx.getLocalDateParameter(request, "to", "yyyy-MM-dd"));
+    }
+
+    /**
+     * 查询条件。
+     */
+    public record OrderQuery(String name, Integer page, Long customerId, BigDecimal amount, LocalDate from, LocalDate to) {
+    }
+}
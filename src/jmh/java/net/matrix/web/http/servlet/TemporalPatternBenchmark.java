@@ -0,0 +1,78 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 比较按格式缓存的解析、固定宽度布局的快速解析与每次编译格式的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemporalPatternBenchmark {
+    public String date = "2024-06-30";
+
+    public String datetime = "20240630123456";
+
+    public String invalid = "2024-06-3x";
+
+    @Benchmark
+    public LocalDate localDate() {
+        return TemporalPattern.of("yyyy-MM-dd").parseLocalDate(date).getValue();
+    }
+
+    @Benchmark
+    public LocalDate localDateFormatter() {
+        // 不是固定宽度布局，使用缓存的 DateTimeFormatter
+        return TemporalPattern.of("yyyy-M-d").parseLocalDate(date).getValue();
+    }
+
+    @Benchmark
+    public LocalDate localDateCompileEachCall() {
+        return LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+    }
+
+    @Benchmark
+    public LocalDateTime localDateTime() {
+        return TemporalPattern.of("yyyyMMddHHmmss").parseLocalDateTime(datetime).getValue();
+    }
+
+    @Benchmark
+    public LocalDateTime localDateTimeCompileEachCall() {
+        return LocalDateTime.parse(datetime, DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+    }
+
+    @Benchmark
+    public boolean invalid() {
+        return TemporalPattern.of("yyyy-MM-dd").parseLocalDate(invalid).isFailure();
+    }
+
+    @Benchmark
+    public boolean invalidCompileEachCall() {
+        try {
+            LocalDate.parse(invalid, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            return false;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
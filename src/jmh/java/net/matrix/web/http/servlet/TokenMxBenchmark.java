@@ -0,0 +1,56 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 唯一标识校验的开销。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenMxBenchmark {
+    @Param({
+        "4", "64"
+    })
+    public int sessionAttributeCount;
+
+    private HttpServletRequest request;
+
+    private String key;
+
+    @Setup
+    public void setup() {
+        request = BenchmarkFixtures.request(10, 8, sessionAttributeCount);
+        // 以一个请求参数作为提交的唯一标识
+        key = BenchmarkFixtures.parameterName(0);
+        request.getSession().setAttribute(key, request.getParameter(key));
+    }
+
+    @Benchmark
+    public boolean checkToken() {
+        return TokenMx.checkToken(request, key);
+    }
+}
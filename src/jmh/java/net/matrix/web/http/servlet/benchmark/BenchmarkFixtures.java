@@ -0,0 +1,158 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.benchmark;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import com.google.common.collect.ImmutableListMultimap;
+
+import net.matrix.web.http.servlet.journal.JournalRecord;
+import net.matrix.web.http.servlet.journal.JournalReplayer;
+
+/**
+ * 性能测试使用的内存中请求和响应，不依赖容器和模拟框架。
+ * 参数、请求头和会话属性的数量可以调整，内容模拟常见的浏览器请求。
+ */
+public final class BenchmarkFixtures {
+    /**
+     * 常见的浏览器请求头。
+     */
+    private static final String[][] BROWSER_HEADERS = {
+        {
+            "Host", "www.example.com"
+        }, {
+            "User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0.0.0 Safari/537.36"
+        }, {
+            "Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8"
+        }, {
+            "Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8"
+        }, {
+            "Accept-Encoding", "gzip, deflate, br"
+        }, {
+            "Referer", "https://www.example.com/orders/list?page=3&size=20"
+        }, {
+            "Cookie", "JSESSIONID=8F2A1C3B4D5E6F708192A3B4C5D6E7F8; theme=dark; lang=zh-CN; _ga=GA1.2.123456789.1700000000"
+        }, {
+            "If-None-Match", "\"a1b2c3\", \"d4e5f6\", \"0f1e2d3c4b5a\""
+        }
+    };
+
+    /**
+     * 阻止实例化。
+     */
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 构造请求。
+     *
+     * @param parameterCount
+     *     参数数量，参数值中包含需要解码的字符。
+     * @param headerCount
+     *     请求头数量，超出常见浏览器请求头的部分使用自定义请求头补足。
+     * @param sessionAttributeCount
+     *     会话属性数量，0 表示没有会话。
+     * @return 请求。
+     */
+    @Nonnull
+    public static HttpServletRequest request(int parameterCount, int headerCount, int sessionAttributeCount) {
+        ImmutableListMultimap.Builder<String, String> parameters = ImmutableListMultimap.builder();
+        StringBuilder queryString = new StringBuilder();
+        for (int i = 0; i < parameterCount; ++i) {
+            String name = parameterName(i);
+            String value = URLEncoder.encode("值 " + i + " & more", StandardCharsets.UTF_8);
+            parameters.put(name, value);
+            if (queryString.length() > 0) {
+                queryString.append('&');
+            }
+            queryString.append(name).append('=').append(value);
+        }
+
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+        for (int i = 0; i < headerCount; ++i) {
+            if (i < BROWSER_HEADERS.length) {
+                headers.put(BROWSER_HEADERS[i][0], BROWSER_HEADERS[i][1]);
+            } else {
+                headers.put("X-Custom-Header-" + i, "custom-header-value-" + i);
+            }
+        }
+
+        JournalRecord record = new JournalRecord(System.currentTimeMillis(), "GET", "/api/orders/12345/items", queryString.toString(),
+            headers.build(), parameters.build(), null);
+        HttpServletRequest request = JournalReplayer.newRequest(record);
+        if (sessionAttributeCount > 0) {
+            HttpSession session = request.getSession();
+            for (int i = 0; i < sessionAttributeCount; ++i) {
+                session.setAttribute("attribute" + i, sessionValue(i));
+            }
+        }
+        return request;
+    }
+
+    /**
+     * 构造只有指定参数的请求。
+     *
+     * @param parameters
+     *     未编码的参数。
+     * @return 请求。
+     */
+    @Nonnull
+    public static HttpServletRequest request(@Nonnull Map<String, String> parameters) {
+        ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            builder.put(parameter.getKey(), URLEncoder.encode(parameter.getValue(), StandardCharsets.UTF_8));
+        }
+        JournalRecord record = new JournalRecord(System.currentTimeMillis(), "GET", "/api/orders", null, ImmutableListMultimap.of(),
+            builder.build(), null);
+        return JournalReplayer.newRequest(record);
+    }
+
+    /**
+     * 构造响应，丢弃写出的内容。
+     *
+     * @return 响应。
+     */
+    @Nonnull
+    public static HttpServletResponse response() {
+        return JournalReplayer.newResponse();
+    }
+
+    /**
+     * 参数名。
+     *
+     * @param index
+     *     序号。
+     * @return 参数名。
+     */
+    @Nonnull
+    public static String parameterName(int index) {
+        return "param" + index;
+    }
+
+    private static Object sessionValue(int index) {
+        switch (index % 3) {
+        case 0:
+            return "session-value-" + index;
+        case 1:
+            return Integer.valueOf(index);
+        default:
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < 10; ++i) {
+                values.add("item-" + i);
+            }
+            return values;
+        }
+    }
+}
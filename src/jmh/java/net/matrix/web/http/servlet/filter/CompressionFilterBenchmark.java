@@ -0,0 +1,101 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 比较 {@link CompressionFilter} 与每个请求新建 {@link GZIPOutputStream}。
+ * 使用 <code>-prof gc</code> 比较内存分配，新建的 {@link java.util.zip.Deflater} 还占用本地内存。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionFilterBenchmark {
+    @Param({
+        "2048", "32768"
+    })
+    public int size;
+
+    private byte[] body;
+
+    private CompressionFilter filter;
+
+    private MockHttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    private FilterChain chain;
+
+    @Setup
+    public void setup()
+        throws ServletException {
+        StringBuilder sb = new StringBuilder(size);
+        for (int i = 0; sb.length() < size; ++i) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\",\"enabled\":true},");
+        }
+        body = sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+        filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        request = new MockHttpServletRequest("GET", "/api/items");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        response = BenchmarkFixtures.response();
+        chain = (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write(body);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public void filter()
+        throws IOException, ServletException {
+        response.reset();
+        filter.doFilter(request, response, chain);
+    }
+
+    @Benchmark
+    public void gzipOutputStream()
+        throws IOException {
+        response.reset();
+        response.setContentType("application/json");
+        try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), 8192)) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 比较文本表格和 NDJSON 两种输出格式的开销。
+ * 使用 <code>-prof gc</code> 比较 table 与 tableLegacy 的内存分配速率。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DumpRendererBenchmark {
+    private RequestDump dump;
+
+    private TableDumpRenderer tableRenderer;
+
+    private PrintWriterTableDumpRenderer legacyTableRenderer;
+
+    private JsonDumpRenderer jsonRenderer;
+
+    private StringBuilder buffer;
+
+    @Setup
+    public void setup() {
+        List<DumpSection> sections = new ArrayList<>();
+        sections.add(DumpSection.ofStrings("request", "Request: request", names("Property", 23), values("value", 23, 24)));
+        sections.add(DumpSection.ofStrings("headers", "Request Headers", names("Header", 15), values("header-value", 15, 60)));
+        sections.add(DumpSection.ofStrings("parameters", "Request Parameters", names("param", 20), values("param-value", 20, 30)));
+        for (int i = 0; i < 3; ++i) {
+            sections.add(DumpSection.ofRepeatedStrings("cookies", "Cookie: cookie" + i, names("Cookie", 7), values("cookie", 7, 40)));
+        }
+        sections.add(DumpSection.ofObjects("attributes", "Request Attributes", names("attribute", 5), values("class java.lang.String", 5, 22),
+            values("attribute-value", 5, 150)));
+        sections.add(DumpSection.ofStrings("response", "Response: response", names("Property", 4), values("value", 4, 12)));
+        sections.add(DumpSection.ofStrings("responseHeaders", "Response Headers", names("Header", 5), values("header-value", 5, 30)));
+        sections.add(DumpSection.ofStrings("session", "Session: session", names("Property", 4), values("value", 4, 20)));
+        sections.add(DumpSection.ofObjects("sessionAttributes", "Session Attributes", names("attribute", 10),
+            values("class java.util.ArrayList", 10, 25), values("session-value", 10, 300)));
+        dump = new RequestDump(sections);
+
+        tableRenderer = new TableDumpRenderer(100);
+        legacyTableRenderer = new PrintWriterTableDumpRenderer(100);
+        jsonRenderer = new JsonDumpRenderer();
+        buffer = new StringBuilder(4096);
+    }
+
+    @Benchmark
+    public int table() {
+        buffer.setLength(0);
+        tableRenderer.render(dump, buffer);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public int tableLegacy() {
+        buffer.setLength(0);
+        legacyTableRenderer.render(dump, buffer);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public int json() {
+        buffer.setLength(0);
+        jsonRenderer.render(dump, buffer);
+        return buffer.length();
+    }
+
+    private static String[] names(String prefix, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; ++i) {
+            names[i] = prefix + i;
+        }
+        return names;
+    }
+
+    private static String[] values(String prefix, int count, int length) {
+        String[] values = new String[count];
+        for (int i = 0; i < count; ++i) {
+            StringBuilder sb = new StringBuilder(length);
+            sb.append(prefix).append(i);
+            while (sb.length() < length) {
+                sb.append(i % 2 == 0 ? 'x' : '"');
+            }
+            values[i] = sb.toString();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterConfig;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 完整的 {@link LogRequestFilter#doFilter} 开销，包括采集和格式化，不包括日志输出。
+ * 日志级别由 log4j2-jmh.xml 设置为 warn，格式化后的记录在日志框架中丢弃。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-jmh.xml")
+@State(Scope.Thread)
+public class LogRequestFilterBenchmark {
+    @Param({
+        "before", "after", "slow", "summary"
+    })
+    public String mode;
+
+    @Param({
+        "table", "json"
+    })
+    public String format;
+
+    private LogRequestFilter filter;
+
+    private HttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    private FilterChain chain;
+
+    @Setup
+    public void setup()
+        throws ServletException {
+        MockFilterConfig filterConfig = new MockFilterConfig("benchmark");
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", mode);
+        filterConfig.addInitParameter("format", format);
+        filterConfig.addInitParameter("slowThresholdMillis", "0");
+        filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        request = BenchmarkFixtures.request(20, 16, 10);
+        response = BenchmarkFixtures.response();
+        chain = (req, resp) -> {
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public HttpServletResponse doFilter()
+        throws IOException, ServletException {
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
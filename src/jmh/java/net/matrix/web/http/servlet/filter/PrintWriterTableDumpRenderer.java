@@ -0,0 +1,251 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 通过 {@link PrintWriter} 逐字符输出的文本表格格式化，与 {@link TableDumpRenderer} 输出一致，作为性能比较的基准。
+ */
+@ThreadSafe
+final class PrintWriterTableDumpRenderer
+    implements DumpRenderer {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(LogRequestFilter.class).useCurrentLocale();
+
+    private final int maxLength;
+
+    /**
+     * 构造。
+     *
+     * @param maxLength
+     *     值的最大显示宽度，超出部分折行。
+     */
+    PrintWriterTableDumpRenderer(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void render(@Nonnull RequestDump dump, @Nonnull StringBuilder out) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        pw.println();
+        pw.println(RBMF.get("============================== 请求内容开始 ======================================"));
+        for (DumpSection section : dump.getSections()) {
+            dumpSection(pw, section);
+        }
+        pw.print(RBMF.get("============================== 请求内容结束 ======================================"));
+        pw.flush();
+        out.append(sw.getBuffer());
+    }
+
+    private void dumpSection(PrintWriter writer, DumpSection section) {
+        switch (section.kind) {
+        case STRING_MAP:
+            dumpStringMap(writer, section);
+            break;
+        case OBJECT_MAP:
+            dumpObjectMap(writer, section);
+            break;
+        default:
+            writer.print(section.title);
+            writer.println(section.values[0]);
+            break;
+        }
+        if (section.detail != null) {
+            dumpSection(writer, section.detail);
+        }
+    }
+
+    private void dumpStringMap(PrintWriter writer, DumpSection section) {
+        String title = section.title;
+        int size = section.size();
+        String[] values = new String[size];
+        int maxNameLen = 0;
+        int maxValueLen = 0;
+        int totalLen = title.length();
+        if (size > 0) {
+            for (int i = 0; i < size; ++i) {
+                String name = section.names[i];
+                String value = section.values[i] == null ? "(null)" : section.values[i];
+                values[i] = value;
+                if (name.length() > maxNameLen) {
+                    maxNameLen = name.length();
+                }
+                if (value.length() <= maxLength && value.length() > maxValueLen) {
+                    maxValueLen = value.length();
+                } else if (value.length() > maxLength) {
+                    maxValueLen = maxLength;
+                }
+            }
+            if (maxNameLen + maxValueLen + 1 > totalLen) {
+                totalLen = maxNameLen + maxValueLen + 1;
+            } else {
+                maxValueLen = totalLen - (maxNameLen + 1);
+            }
+        }
+        writer.print('+');
+        printChar(writer, '-', totalLen);
+        writer.println('+');
+        writer.print('|');
+        writer.print(title);
+        printChar(writer, ' ', totalLen - title.length());
+        writer.println('|');
+        if (size == 0) {
+            writer.print('+');
+            printChar(writer, '-', totalLen);
+            writer.println('+');
+        } else {
+            writer.print('+');
+            printChar(writer, '-', maxNameLen);
+            writer.print('+');
+            printChar(writer, '-', maxValueLen);
+            writer.println('+');
+            for (int j = 0; j < size; ++j) {
+                String name = section.names[j];
+                String value = values[j];
+                writer.print('|');
+                writer.print(name);
+                printChar(writer, ' ', maxNameLen - name.length());
+                writer.print('|');
+                int linNum = value.length() / maxLength;
+                if (value.length() % maxLength != 0) {
+                    ++linNum;
+                }
+                if (linNum == 0) {
+                    printChar(writer, ' ', maxValueLen);
+                    writer.println('|');
+                }
+                for (int i = 0; i < linNum; ++i) {
+                    if (i < linNum - 1) {
+                        writer.append(value, i * maxLength, (i + 1) * maxLength);
+                        writer.println('|');
+                        writer.print('|');
+                        printChar(writer, ' ', maxNameLen);
+                        writer.print('|');
+                    } else if (linNum > 1) {
+                        writer.append(value, i * maxLength, value.length());
+                        printChar(writer, ' ', (i + 1) * maxLength - value.length());
+                        writer.println('|');
+                    } else {
+                        writer.append(value);
+                        printChar(writer, ' ', maxValueLen - value.length());
+                        writer.println('|');
+                    }
+                }
+            }
+            writer.print('+');
+            printChar(writer, '-', maxNameLen);
+            writer.print('+');
+            printChar(writer, '-', maxValueLen);
+            writer.println('+');
+        }
+    }
+
+    private void dumpObjectMap(PrintWriter writer, DumpSection section) {
+        String title = section.title;
+        int size = section.size();
+        String[] classNames = new String[size];
+        String[] values = new String[size];
+        int maxNameLen = 0;
+        int maxClassLen = 0;
+        int maxValueLen = title.length();
+        if (size > 0) {
+            for (int i = 0; i < size; ++i) {
+                String name = section.names[i];
+                String className = section.classNames[i] == null ? "(n/a)" : section.classNames[i];
+                String value = section.values[i] == null ? "(null)" : section.values[i];
+                classNames[i] = className;
+                values[i] = value;
+                if (name.length() > maxNameLen) {
+                    maxNameLen = name.length();
+                }
+                if (className.length() > maxClassLen) {
+                    maxClassLen = className.length();
+                }
+                if (value.length() <= maxLength && value.length() > maxValueLen) {
+                    maxValueLen = value.length();
+                } else if (value.length() > maxLength) {
+                    maxValueLen = maxLength;
+                }
+            }
+            if (maxNameLen + maxClassLen + 1 > maxValueLen) {
+                maxValueLen = maxNameLen + maxClassLen + 1;
+            } else {
+                maxClassLen = maxValueLen - (maxNameLen + 1);
+            }
+        }
+        writer.print('+');
+        printChar(writer, '-', maxValueLen);
+        writer.println('+');
+        writer.print('|');
+        writer.print(title);
+        printChar(writer, ' ', maxValueLen - title.length());
+        writer.println('|');
+        if (size == 0) {
+            writer.print('+');
+            printChar(writer, '-', maxValueLen);
+            writer.println('+');
+        } else {
+            writer.print('+');
+            printChar(writer, '-', maxNameLen);
+            writer.print('+');
+            printChar(writer, '-', maxClassLen);
+            writer.println('+');
+            for (int j = 0; j < size; ++j) {
+                String name = section.names[j];
+                String className = classNames[j];
+                String value = values[j];
+                writer.print('|');
+                writer.print(name);
+                printChar(writer, ' ', maxNameLen - name.length());
+                writer.print('|');
+                writer.print(className);
+                printChar(writer, ' ', maxClassLen - className.length());
+                writer.println('|');
+                int linNum = value.length() / maxLength;
+                if (value.length() % maxLength != 0) {
+                    ++linNum;
+                }
+                if (linNum == 0) {
+                    printChar(writer, ' ', maxValueLen);
+                    writer.println('|');
+                }
+                for (int i = 0; i < linNum; ++i) {
+                    writer.print('|');
+                    if (i < linNum - 1) {
+                        writer.append(value, i * maxLength, (i + 1) * maxLength);
+                        writer.println('|');
+                    } else if (linNum > 1) {
+                        writer.append(value, i * maxLength, value.length());
+                        printChar(writer, ' ', (i + 1) * maxLength - value.length());
+                        writer.println('|');
+                    } else {
+                        writer.append(value);
+                        printChar(writer, ' ', maxValueLen - value.length());
+                        writer.println('|');
+                    }
+                }
+            }
+            writer.print('+');
+            printChar(writer, '-', maxValueLen);
+            writer.println('+');
+        }
+    }
+
+    private static void printChar(PrintWriter writer, char ch, int repeat) {
+        for (int i = 0; i < repeat; ++i) {
+            writer.print(ch);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.web.http.servlet.benchmark.BenchmarkFixtures;
+
+/**
+ * 比较 {@link StaticResourceServlet} 与每次读取文件输出。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StaticResourceServletBenchmark {
+    @Param({
+        "4096", "262144"
+    })
+    public int size;
+
+    private Path directory;
+
+    private Path file;
+
+    private StaticResourceServlet servlet;
+
+    private MockHttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    @Setup
+    public void setup()
+        throws IOException, ServletException {
+        directory = Files.createTempDirectory("static");
+        file = directory.resolve("report.bin");
+        byte[] content = new byte[size];
+        new Random(0).nextBytes(content);
+        Files.write(file, content);
+
+        MockServletContext servletContext = new MockServletContext() {
+            @Override
+            public String getMimeType(String name) {
+                return "application/octet-stream";
+            }
+        };
+        MockServletConfig servletConfig = new MockServletConfig(servletContext);
+        servletConfig.addInitParameter("directory", directory.toString());
+        servlet = new StaticResourceServlet();
+        servlet.init(servletConfig);
+        request = new MockHttpServletRequest("GET", "/static/report.bin");
+        request.setServletPath("/static");
+        request.setPathInfo("/report.bin");
+        response = BenchmarkFixtures.response();
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void servlet()
+        throws IOException, ServletException {
+        servlet.service(request, response);
+    }
+
+    @Benchmark
+    public void readFile()
+        throws IOException {
+        response.getOutputStream().write(Files.readAllBytes(file));
+    }
+}
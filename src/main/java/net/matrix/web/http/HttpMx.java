@@ -4,8 +4,6 @@
  */
 package net.matrix.web.http;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -42,7 +40,7 @@ public final class HttpMx {
 
             sb.append(key).append('=');
             if (value != null) {
-                sb.append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+                PercentCodec.encode(value.toString(), sb);
             }
             sb.append('&');
         }
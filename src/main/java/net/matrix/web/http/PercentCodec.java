@@ -0,0 +1,326 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * application/x-www-form-urlencoded 格式的 UTF-8 编码和解码。
+ * 对合法输入，结果与 {@link java.net.URLEncoder#encode(String, java.nio.charset.Charset)} 和
+ * {@link java.net.URLDecoder#decode(String, java.nio.charset.Charset)} 使用 UTF-8 时一致，非法的 UTF-8 字节序列替换为 U+FFFD。
+ * 不需要编码或解码时直接返回原字符串，不分配内存；需要解码时直接从字符序列解码 UTF-8 字节，不使用中间字节数组。
+ */
+@ThreadSafe
+public final class PercentCodec {
+    /**
+     * 十六进制数字，大写。
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * 不需要编码的 ASCII 字符。
+     */
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    /**
+     * RFC 5987 ext-value 中不需要编码的 ASCII 字符（attr-char）。
+     */
+    private static final boolean[] ATTR_CHARS = new boolean[128];
+
+    /**
+     * 替换非法字节序列的字符。
+     */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ++ch) {
+            UNRESERVED[ch] = true;
+        }
+        for (char ch = 'A'; ch <= 'Z'; ++ch) {
+            UNRESERVED[ch] = true;
+        }
+        for (char ch = '0'; ch <= '9'; ++ch) {
+            UNRESERVED[ch] = true;
+        }
+        UNRESERVED['.'] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['*'] = true;
+        UNRESERVED['_'] = true;
+
+        for (char ch = 0; ch < 128; ++ch) {
+            ATTR_CHARS[ch] = UNRESERVED[ch] && ch != '*';
+        }
+        for (char ch : "!#$&+^`|~".toCharArray()) {
+            ATTR_CHARS[ch] = true;
+        }
+    }
+
+    /**
+     * 阻止实例化。
+     */
+    private PercentCodec() {
+    }
+
+    /**
+     * 解码。
+     *
+     * @param value
+     *     编码后的值。
+     * @return 解码后的值，不需要解码时返回原字符串。
+     * @throws IllegalArgumentException
+     *     转义序列不合法。
+     */
+    @Nonnull
+    public static String decode(@Nonnull CharSequence value) {
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char ch = value.charAt(i);
+            if (ch == '%' || ch == '+') {
+                break;
+            }
+            ++i;
+        }
+        if (i == length) {
+            return value.toString();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(value, 0, i);
+        while (i < length) {
+            char ch = value.charAt(i);
+            if (ch == '+') {
+                sb.append(' ');
+                ++i;
+            } else if (ch == '%') {
+                i = decodeEscapes(value, i, sb);
+            } else {
+                sb.append(ch);
+                ++i;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解码从 start 开始的一个 UTF-8 字符。
+     *
+     * @return 下一个要处理的位置。
+     */
+    private static int decodeEscapes(CharSequence value, int start, StringBuilder sb) {
+        int lead = hexByte(value, start);
+        int i = start + 3;
+        if (lead < 0x80) {
+            sb.append((char) lead);
+            return i;
+        }
+
+        int count;
+        int codePoint;
+        int min;
+        int max;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            count = 1;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+            max = 0xBF;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            count = 2;
+            codePoint = lead & 0x0F;
+            // 排除超长编码和代理区
+            min = lead == 0xE0 ? 0xA0 : 0x80;
+            max = lead == 0xED ? 0x9F : 0xBF;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            count = 3;
+            codePoint = lead & 0x07;
+            // 排除超长编码和超出 Unicode 范围的码点
+            min = lead == 0xF0 ? 0x90 : 0x80;
+            max = lead == 0xF4 ? 0x8F : 0xBF;
+        } else {
+            sb.append(REPLACEMENT);
+            return i;
+        }
+
+        for (int k = 0; k < count; ++k) {
+            if (i >= value.length() || value.charAt(i) != '%') {
+                // 字节序列不完整，后续字符按原样处理
+                sb.append(REPLACEMENT);
+                return i;
+            }
+            int next = hexByte(value, i);
+            if (next < min || next > max) {
+                // 非法的后续字节作为新字节序列的开始重新处理
+                sb.append(REPLACEMENT);
+                return i;
+            }
+            codePoint = codePoint << 6 | next & 0x3F;
+            min = 0x80;
+            max = 0xBF;
+            i += 3;
+        }
+        sb.appendCodePoint(codePoint);
+        return i;
+    }
+
+    private static int hexByte(CharSequence value, int start) {
+        if (start + 2 >= value.length()) {
+            throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+        }
+        int high = Character.digit(value.charAt(start + 1), 16);
+        int low = Character.digit(value.charAt(start + 2), 16);
+        if (high < 0 || low < 0) {
+            throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern: " + value.subSequence(start, start + 3));
+        }
+        return high << 4 | low;
+    }
+
+    /**
+     * 编码。
+     *
+     * @param value
+     *     原始值。
+     * @return 编码后的值，不需要编码时返回原字符串。
+     */
+    @Nonnull
+    public static String encode(@Nonnull CharSequence value) {
+        int start = unreservedPrefix(value);
+        if (start == value.length()) {
+            return value.toString();
+        }
+
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        sb.append(value, 0, start);
+        encodeFrom(value, start, sb);
+        return sb.toString();
+    }
+
+    /**
+     * 编码并追加到缓冲区。
+     *
+     * @param value
+     *     原始值。
+     * @param out
+     *     缓冲区。
+     */
+    public static void encode(@Nonnull CharSequence value, @Nonnull StringBuilder out) {
+        int start = unreservedPrefix(value);
+        out.append(value, 0, start);
+        if (start < value.length()) {
+            encodeFrom(value, start, out);
+        }
+    }
+
+    /**
+     * 编码并输出。
+     *
+     * @param value
+     *     原始值。
+     * @param out
+     *     输出目标。
+     * @throws IOException
+     *     输出失败。
+     */
+    public static void encode(@Nonnull CharSequence value, @Nonnull Appendable out)
+        throws IOException {
+        if (out instanceof StringBuilder) {
+            encode(value, (StringBuilder) out);
+            return;
+        }
+        int start = unreservedPrefix(value);
+        out.append(value, 0, start);
+        if (start < value.length()) {
+            StringBuilder sb = new StringBuilder(value.length() - start + 16);
+            encodeFrom(value, start, sb);
+            out.append(sb);
+        }
+    }
+
+    /**
+     * 按 RFC 5987 编码扩展参数值，用于 <code>filename*</code> 等参数，例如 <code>UTF-8''%E4%B8%AD.txt</code>。
+     *
+     * @param value
+     *     原始值。
+     * @return 带字符集前缀的编码后的值。
+     */
+    @Nonnull
+    public static String encodeExtValue(@Nonnull CharSequence value) {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        sb.append("UTF-8''");
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char ch = value.charAt(i);
+            if (ch < 128 && ATTR_CHARS[ch]) {
+                sb.append(ch);
+                ++i;
+            } else {
+                int codePoint = Character.codePointAt(value, i);
+                i += Character.charCount(codePoint);
+                appendUtf8(sb, codePoint);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendUtf8(StringBuilder out, int codePoint) {
+        if (codePoint < 0x80) {
+            appendByte(out, codePoint);
+        } else if (codePoint < 0x800) {
+            appendByte(out, 0xC0 | codePoint >> 6);
+            appendByte(out, 0x80 | codePoint & 0x3F);
+        } else if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+            // 与 String.getBytes 一致，不成对的代理字符替换为问号
+            appendByte(out, '?');
+        } else if (codePoint < 0x10000) {
+            appendByte(out, 0xE0 | codePoint >> 12);
+            appendByte(out, 0x80 | codePoint >> 6 & 0x3F);
+            appendByte(out, 0x80 | codePoint & 0x3F);
+        } else {
+            appendByte(out, 0xF0 | codePoint >> 18);
+            appendByte(out, 0x80 | codePoint >> 12 & 0x3F);
+            appendByte(out, 0x80 | codePoint >> 6 & 0x3F);
+            appendByte(out, 0x80 | codePoint & 0x3F);
+        }
+    }
+
+    private static int unreservedPrefix(CharSequence value) {
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            char ch = value.charAt(i);
+            if (ch >= 128 || !UNRESERVED[ch]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static void encodeFrom(CharSequence value, int start, StringBuilder out) {
+        int length = value.length();
+        int i = start;
+        while (i < length) {
+            char ch = value.charAt(i++);
+            if (ch < 128) {
+                if (UNRESERVED[ch]) {
+                    out.append(ch);
+                } else if (ch == ' ') {
+                    out.append('+');
+                } else {
+                    appendByte(out, ch);
+                }
+            } else {
+                int codePoint = Character.codePointAt(value, i - 1);
+                i += Character.charCount(codePoint) - 1;
+                appendUtf8(out, codePoint);
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder out, int b) {
+        out.append('%').append(HEX_DIGITS[b >> 4 & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指定 {@link HttpServletMx#bind(jakarta.servlet.http.HttpServletRequest, Class)} 绑定属性时使用的参数名和格式。
+ * 可以标注在记录组件、setter 方法或与属性同名的字段上。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({
+    ElementType.RECORD_COMPONENT, ElementType.METHOD, ElementType.FIELD
+})
+public @interface BindParameter {
+    /**
+     * 参数名，为空时使用属性名。
+     *
+     * @return 参数名。
+     */
+    String value() default "";
+
+    /**
+     * 日期时间类型属性的格式，形式见 {@link java.time.format.DateTimeFormatter}，为空时使用 ISO-8601 格式。
+     *
+     * @return 格式。
+     */
+    String pattern() default "";
+}
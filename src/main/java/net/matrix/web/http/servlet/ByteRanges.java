@@ -0,0 +1,155 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 解析 Range 请求头中的字节范围。
+ */
+final class ByteRanges {
+    /**
+     * 最多处理的范围数量，超出时返回完整内容。
+     */
+    static final int MAX_RANGES = 16;
+
+    /**
+     * 阻止实例化。
+     */
+    private ByteRanges() {
+    }
+
+    /**
+     * 解析字节范围。
+     *
+     * @param header
+     *     Range 请求头。
+     * @param size
+     *     资源大小。
+     * @return 按起始位置排列的范围，重叠或相邻的范围已合并，每个范围占两个元素，分别为起始位置和结束位置（包含）；
+     *     请求头格式无效或范围过多时返回 null，表示忽略请求头；没有可满足的范围时返回空数组。
+     */
+    @Nullable
+    static long[] parse(@Nonnull String header, long size) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        long[] ranges = new long[4];
+        int count = 0;
+        int i = 6;
+        int parsed = 0;
+        while (i <= value.length()) {
+            int end = value.indexOf(',', i);
+            if (end < 0) {
+                end = value.length();
+            }
+            String spec = value.substring(i, end).trim();
+            i = end + 1;
+            if (spec.isEmpty()) {
+                continue;
+            }
+            if (++parsed > MAX_RANGES) {
+                return null;
+            }
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first = parseNumber(spec, 0, dash);
+            long last = parseNumber(spec, dash + 1, spec.length());
+            long start;
+            long stop;
+            if (dash == 0) {
+                // 后缀范围，最后 n 个字节
+                if (last < 0) {
+                    return null;
+                }
+                if (last == 0 || size == 0) {
+                    continue;
+                }
+                start = Math.max(size - last, 0);
+                stop = size - 1;
+            } else {
+                if (first < 0 || dash + 1 < spec.length() && (last < 0 || last < first)) {
+                    return null;
+                }
+                if (first >= size) {
+                    continue;
+                }
+                start = first;
+                stop = dash + 1 == spec.length() ? size - 1 : Math.min(last, size - 1);
+            }
+            if (count * 2 == ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[count * 2] = start;
+            ranges[count * 2 + 1] = stop;
+            ++count;
+        }
+        if (parsed == 0) {
+            return null;
+        }
+        return Arrays.copyOf(ranges, merge(ranges, count) * 2);
+    }
+
+    /**
+     * 按起始位置排序，合并重叠或相邻的范围，避免重复输出相同的内容。
+     *
+     * @return 合并后的范围数量。
+     */
+    private static int merge(long[] ranges, int count) {
+        // 插入排序，范围数量不超过 MAX_RANGES
+        for (int i = 1; i < count; ++i) {
+            long start = ranges[i * 2];
+            long stop = ranges[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && ranges[j * 2] > start) {
+                ranges[j * 2 + 2] = ranges[j * 2];
+                ranges[j * 2 + 3] = ranges[j * 2 + 1];
+                --j;
+            }
+            ranges[j * 2 + 2] = start;
+            ranges[j * 2 + 3] = stop;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        int merged = 0;
+        for (int i = 1; i < count; ++i) {
+            if (ranges[i * 2] <= ranges[merged * 2 + 1] + 1) {
+                ranges[merged * 2 + 1] = Math.max(ranges[merged * 2 + 1], ranges[i * 2 + 1]);
+            } else {
+                ++merged;
+                ranges[merged * 2] = ranges[i * 2];
+                ranges[merged * 2 + 1] = ranges[i * 2 + 1];
+            }
+        }
+        return merged + 1;
+    }
+
+    /**
+     * 解析非负整数。
+     *
+     * @return 数值，为空、不是数字或溢出时返回 -1。
+     */
+    private static long parseNumber(String spec, int start, int end) {
+        if (start >= end || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            char ch = spec.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            value = value * 10 + ch - '0';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * 按 RFC 9110 第 13 节判断条件请求。
+ * 依次判断 If-Match、If-Unmodified-Since、If-None-Match、If-Modified-Since，每个请求头只解析一次，
+ * ETag 列表在原始字符串上逐项比较，IMF-fixdate 格式的日期直接按位置解析，不分配内存。
+ * If-Match 使用强比较，If-None-Match 使用弱比较；不带引号的 ETag 按原样比较，兼容旧的用法。
+ */
+@ThreadSafe
+public final class ConditionalRequests {
+    /**
+     * 没有日期或日期无效。
+     */
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * IMF-fixdate 格式的长度，例如 <code>Sun, 06 Nov 1994 08:49:37 GMT</code>。
+     */
+    private static final int IMF_FIXDATE_LENGTH = 29;
+
+    /**
+     * 阻止实例化。
+     */
+    private ConditionalRequests() {
+    }
+
+    /**
+     * 判断条件请求。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param etag
+     *     资源的当前 ETag，没有时为 null。
+     * @param lastModified
+     *     资源的最后修改时间，没有时为 -1。
+     * @return 判断结果。
+     */
+    @Nonnull
+    public static Precondition evaluate(@Nonnull HttpServletRequest request, @Nullable String etag, long lastModified) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch != null) {
+            if (!matches(ifMatch, etag, true)) {
+                return Precondition.PRECONDITION_FAILED;
+            }
+        } else if (lastModified >= 0) {
+            long ifUnmodifiedSince = getDateHeader(request, HttpHeaders.IF_UNMODIFIED_SINCE);
+            if (ifUnmodifiedSince != NO_DATE && seconds(lastModified) > seconds(ifUnmodifiedSince)) {
+                return Precondition.PRECONDITION_FAILED;
+            }
+        }
+
+        boolean safe = isGetOrHead(request);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            if (matches(ifNoneMatch, etag, false)) {
+                return safe ? Precondition.NOT_MODIFIED : Precondition.PRECONDITION_FAILED;
+            }
+        } else if (safe && lastModified >= 0) {
+            long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+            if (ifModifiedSince != NO_DATE && seconds(lastModified) <= seconds(ifModifiedSince)) {
+                return Precondition.NOT_MODIFIED;
+            }
+        }
+        return Precondition.PROCEED;
+    }
+
+    /**
+     * 根据 If-Range 请求头判断是否按 Range 请求头返回部分内容。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param etag
+     *     资源的当前 ETag，没有时为 null。
+     * @param lastModified
+     *     资源的最后修改时间，没有时为 -1。
+     * @return 没有 If-Range 请求头，或者其中的强 ETag 或日期与资源一致时返回 true，否则应返回完整内容。
+     */
+    public static boolean evaluateIfRange(@Nonnull HttpServletRequest request, @Nullable String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return etag != null && !isWeak(value) && !isWeak(etag) && value.equals(etag);
+        }
+        long date = parseHttpDate(value);
+        return date != NO_DATE && lastModified >= 0 && seconds(lastModified) == seconds(date);
+    }
+
+    /**
+     * 判断 If-Match 或 If-None-Match 请求头中的 ETag 列表是否与资源的 ETag 匹配。
+     *
+     * @param header
+     *     请求头的值。
+     * @param etag
+     *     资源的当前 ETag，为 null 表示资源不存在，此时都不匹配。
+     * @param strong
+     *     是否使用强比较，强比较时弱 ETag 都不匹配。
+     * @return 是否匹配。
+     */
+    public static boolean matches(@Nonnull String header, @Nullable String etag, boolean strong) {
+        int length = header.length();
+        int i = skipSeparators(header, 0);
+        if (i < length && header.charAt(i) == '*' && skipSeparators(header, i + 1) == length) {
+            return etag != null;
+        }
+        if (etag == null) {
+            return false;
+        }
+        boolean etagWeak = isWeak(etag);
+        if (strong && etagWeak) {
+            return false;
+        }
+        int etagStart = etagWeak ? 2 : 0;
+        int etagLength = etag.length() - etagStart;
+
+        while (i < length) {
+            boolean weak = header.startsWith("W/", i);
+            int start = weak ? i + 2 : i;
+            int end;
+            if (start < length && header.charAt(start) == '"') {
+                int close = header.indexOf('"', start + 1);
+                end = close < 0 ? length : close + 1;
+            } else {
+                // 不带引号的旧格式，到逗号为止
+                end = header.indexOf(',', start);
+                if (end < 0) {
+                    end = length;
+                }
+                while (end > start && header.charAt(end - 1) <= ' ') {
+                    --end;
+                }
+            }
+            if (!(strong && weak) && end - start == etagLength && header.regionMatches(start, etag, etagStart, etagLength)) {
+                return true;
+            }
+            i = skipSeparators(header, end);
+        }
+        return false;
+    }
+
+    private static int skipSeparators(String header, int start) {
+        int i = start;
+        while (i < header.length()) {
+            char ch = header.charAt(i);
+            if (ch != ',' && ch != ' ' && ch != '\t') {
+                break;
+            }
+            ++i;
+        }
+        return i;
+    }
+
+    private static boolean isWeak(String etag) {
+        return etag.startsWith("W/");
+    }
+
+    private static boolean isGetOrHead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static long seconds(long millis) {
+        return Math.floorDiv(millis, 1000);
+    }
+
+    /**
+     * 获取日期请求头，格式无效时视为没有请求头。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param name
+     *     请求头名。
+     * @return 日期，单位毫秒，没有请求头或格式无效时返回 {@link #NO_DATE}。
+     */
+    static long getDateHeader(@Nonnull HttpServletRequest request, @Nonnull String name) {
+        String value = request.getHeader(name);
+        if (value == null) {
+            return NO_DATE;
+        }
+        long date = parseHttpDate(value);
+        if (date != NO_DATE) {
+            return date;
+        }
+        // 其它格式交给容器解析
+        try {
+            long parsed = request.getDateHeader(name);
+            return parsed == -1 ? NO_DATE : parsed;
+        } catch (IllegalArgumentException e) {
+            return NO_DATE;
+        }
+    }
+
+    /**
+     * 解析 IMF-fixdate 格式的日期。
+     *
+     * @param value
+     *     日期字符串。
+     * @return 日期，单位毫秒，格式不是 IMF-fixdate 时返回 {@link #NO_DATE}。
+     */
+    static long parseHttpDate(@Nonnull String value) {
+        if (value.length() != IMF_FIXDATE_LENGTH || value.charAt(3) != ',' || value.charAt(4) != ' ' || value.charAt(7) != ' '
+            || value.charAt(11) != ' ' || value.charAt(16) != ' ' || value.charAt(19) != ':' || value.charAt(22) != ':'
+            || !value.endsWith(" GMT")) {
+            return NO_DATE;
+        }
+        int day = digits(value, 5, 2);
+        int month = month(value, 8);
+        int year = digits(value, 12, 4);
+        int hour = digits(value, 17, 2);
+        int minute = digits(value, 20, 2);
+        int second = digits(value, 23, 2);
+        if (day < 1 || day > 31 || month < 0 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return NO_DATE;
+        }
+        return ((epochDay(year, month, day) * 24 + hour) * 60 + minute) * 60_000L + Math.min(second, 59) * 1000L;
+    }
+
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; ++i) {
+            char ch = value.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            result = result * 10 + ch - '0';
+        }
+        return result;
+    }
+
+    /**
+     * 月份缩写对应的月份。
+     *
+     * @return 月份，1 至 12，不是月份缩写时返回 -1。
+     */
+    private static int month(String value, int start) {
+        char c0 = value.charAt(start);
+        char c1 = value.charAt(start + 1);
+        char c2 = value.charAt(start + 2);
+        switch (c0) {
+        case 'J':
+            if (c1 == 'a' && c2 == 'n') {
+                return 1;
+            }
+            if (c1 == 'u' && c2 == 'n') {
+                return 6;
+            }
+            return c1 == 'u' && c2 == 'l' ? 7 : -1;
+        case 'F':
+            return c1 == 'e' && c2 == 'b' ? 2 : -1;
+        case 'M':
+            if (c1 == 'a' && c2 == 'r') {
+                return 3;
+            }
+            return c1 == 'a' && c2 == 'y' ? 5 : -1;
+        case 'A':
+            if (c1 == 'p' && c2 == 'r') {
+                return 4;
+            }
+            return c1 == 'u' && c2 == 'g' ? 8 : -1;
+        case 'S':
+            return c1 == 'e' && c2 == 'p' ? 9 : -1;
+        case 'O':
+            return c1 == 'c' && c2 == 't' ? 10 : -1;
+        case 'N':
+            return c1 == 'o' && c2 == 'v' ? 11 : -1;
+        case 'D':
+            return c1 == 'e' && c2 == 'c' ? 12 : -1;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * 公历日期对应的 1970-01-01 起的天数。
+     */
+    private static long epochDay(int year, int month, int day) {
+        // 把 1、2 月视为上一年的最后两个月，闰日在年末
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.matrix.web.http.PercentCodec;
+
+/**
+ * 请求参数的只读视图，值为每个参数的第一个值经过 URL 解码的结果。
+ * 只在第一次读取某个参数时解码，并缓存解码结果。迭代顺序与原始参数映射一致。
+ */
+@NotThreadSafe
+final class DecodedParameterMap
+    extends AbstractMap<String, String> {
+    /**
+     * 解码结果为 null 时缓存的值，按引用比较。
+     */
+    private static final String NULL_VALUE = new String();
+
+    private final Map<String, String[]> parameterMap;
+
+    /**
+     * 已解码的值，只缓存原始参数映射中存在的参数，解码结果为 null 时缓存 {@link #NULL_VALUE}。
+     */
+    private final Map<String, String> decoded = new HashMap<>();
+
+    private Set<Map.Entry<String, String>> entrySet;
+
+    /**
+     * 构造。
+     *
+     * @param parameterMap
+     *     原始参数映射。
+     */
+    DecodedParameterMap(@Nonnull Map<String, String[]> parameterMap) {
+        this.parameterMap = parameterMap;
+    }
+
+    @Override
+    public int size() {
+        return parameterMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parameterMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parameterMap.containsKey(key);
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String value = decoded.get(key);
+        if (value != null) {
+            return value == NULL_VALUE ? null : value;
+        }
+        String[] values = parameterMap.get(key);
+        if (values == null) {
+            // 不存在的参数不缓存
+            return null;
+        }
+        return decodeAndCache((String) key, values);
+    }
+
+    private String decode(String name, String[] values) {
+        String value = decoded.get(name);
+        if (value != null) {
+            return value == NULL_VALUE ? null : value;
+        }
+        return decodeAndCache(name, values);
+    }
+
+    private String decodeAndCache(String name, String[] values) {
+        String value = decodeFirst(values);
+        decoded.put(name, value == null ? NULL_VALUE : value);
+        return value;
+    }
+
+    @Nullable
+    private static String decodeFirst(@Nullable String[] values) {
+        if (values == null || values.length == 0 || values[0] == null) {
+            return null;
+        }
+        return PercentCodec.decode(values[0]);
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * 按需解码的条目集合。
+     */
+    private final class EntrySet
+        extends AbstractSet<Map.Entry<String, String>> {
+        @Override
+        public int size() {
+            return parameterMap.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            Iterator<Map.Entry<String, String[]>> iterator = parameterMap.entrySet().iterator();
+            return new Iterator<Map.Entry<String, String>>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    return new Entry(iterator.next());
+                }
+            };
+        }
+    }
+
+    /**
+     * 读取值时才解码的条目。
+     */
+    private final class Entry
+        implements Map.Entry<String, String> {
+        private final Map.Entry<String, String[]> source;
+
+        Entry(Map.Entry<String, String[]> source) {
+            this.source = source;
+        }
+
+        @Override
+        public String getKey() {
+            return source.getKey();
+        }
+
+        @Override
+        public String getValue() {
+            return decode(source.getKey(), source.getValue());
+        }
+
+        @Override
+        public String setValue(String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + '=' + getValue();
+        }
+    }
+}
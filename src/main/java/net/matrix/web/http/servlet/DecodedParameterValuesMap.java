@@ -0,0 +1,151 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.matrix.web.http.PercentCodec;
+
+/**
+ * 请求参数的只读视图，值为每个参数所有值经过 URL 解码的列表。
+ * 列表直接引用原始参数数组，不复制，每个值只在第一次读取时解码，并缓存解码结果。迭代顺序与原始参数映射一致。
+ */
+@NotThreadSafe
+final class DecodedParameterValuesMap
+    extends AbstractMap<String, List<String>> {
+    private final Map<String, String[]> parameterMap;
+
+    /**
+     * 已创建的视图，只缓存原始参数映射中存在的参数。
+     */
+    private final Map<String, DecodedValues> views = new HashMap<>();
+
+    private Set<Map.Entry<String, List<String>>> entrySet;
+
+    /**
+     * 构造。
+     *
+     * @param parameterMap
+     *     原始参数映射。
+     */
+    DecodedParameterValuesMap(@Nonnull Map<String, String[]> parameterMap) {
+        this.parameterMap = parameterMap;
+    }
+
+    @Override
+    public int size() {
+        return parameterMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parameterMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parameterMap.containsKey(key);
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        DecodedValues view = views.get(key);
+        if (view != null) {
+            return view;
+        }
+        return view((String) key, parameterMap.get(key));
+    }
+
+    private List<String> view(String name, String[] values) {
+        if (values == null) {
+            return null;
+        }
+        DecodedValues view = views.get(name);
+        if (view == null) {
+            view = new DecodedValues(values);
+            views.put(name, view);
+        }
+        return view;
+    }
+
+    @Override
+    public Set<Map.Entry<String, List<String>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, List<String>>>() {
+                @Override
+                public int size() {
+                    return parameterMap.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, List<String>>> iterator() {
+                    Iterator<Map.Entry<String, String[]>> iterator = parameterMap.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, List<String>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, List<String>> next() {
+                            Map.Entry<String, String[]> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), view(entry.getKey(), entry.getValue()));
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * 一个参数的所有值，读取时才解码。
+     */
+    private static final class DecodedValues
+        extends AbstractList<String>
+        implements RandomAccess {
+        private final String[] values;
+
+        private String[] decoded;
+
+        DecodedValues(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public String get(int index) {
+            String value = values[index];
+            if (value == null) {
+                return null;
+            }
+            if (decoded == null) {
+                decoded = new String[values.length];
+            }
+            if (decoded[index] == null) {
+                decoded[index] = PercentCodec.decode(value);
+            }
+            return decoded[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
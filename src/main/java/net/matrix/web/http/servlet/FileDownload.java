@@ -0,0 +1,225 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * 输出文件内容，支持条件请求和 Range 请求。
+ */
+final class FileDownload {
+    /**
+     * Tomcat 支持 sendfile 时设置的请求属性。
+     */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    /**
+     * Tomcat sendfile 的文件名请求属性。
+     */
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    /**
+     * Tomcat sendfile 的起始位置请求属性。
+     */
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    /**
+     * Tomcat sendfile 的结束位置（不包含）请求属性。
+     */
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 默认内容类型。
+     */
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final String CRLF = "\r\n";
+
+    /**
+     * 阻止实例化。
+     */
+    private FileDownload() {
+    }
+
+    /**
+     * 输出文件内容。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param response
+     *     HTTP 响应。
+     * @param channel
+     *     文件通道。
+     * @param path
+     *     文件路径，为 null 时不使用容器的 sendfile。
+     * @param lastModified
+     *     最后修改时间，没有时为 -1，此时不生成 ETag。
+     * @param filename
+     *     客户端文件名，为 null 时使用路径中的文件名。
+     * @param attachment
+     *     是否作为附件下载。
+     * @throws IOException
+     *     读取文件或输出失败。
+     */
+    static void send(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull FileChannel channel, @Nullable Path path,
+        long lastModified, @Nullable String filename, boolean attachment)
+        throws IOException {
+        long size = channel.size();
+        String etag = etag(size, lastModified);
+        if (HttpServletMx.checkPreconditions(request, response, etag, lastModified) != Precondition.PROCEED) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String name = filename;
+        if (name == null && path != null && path.getFileName() != null) {
+            name = path.getFileName().toString();
+        }
+        if (name != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, HttpServletMx.contentDisposition(attachment ? "attachment" : "inline", name));
+        } else if (attachment) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+        }
+        String contentType = contentType(request, response, name);
+
+        String method = request.getMethod();
+        boolean head = "HEAD".equals(method);
+        long[] ranges = null;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && "GET".equals(method) && ConditionalRequests.evaluateIfRange(request, etag, lastModified)) {
+            ranges = ByteRanges.parse(range, size);
+        }
+
+        if (ranges == null) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(size);
+            if (!head) {
+                transfer(request, response, channel, path, 0, size);
+            }
+            return;
+        }
+        if (ranges.length == 0) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.length == 2) {
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(ranges[0], ranges[1], size));
+            response.setContentLengthLong(ranges[1] - ranges[0] + 1);
+            transfer(request, response, channel, path, ranges[0], ranges[1] - ranges[0] + 1);
+            return;
+        }
+        sendMultipart(response, channel, ranges, size, contentType);
+    }
+
+    /**
+     * 按 multipart/byteranges 格式输出多个范围。
+     */
+    private static void sendMultipart(HttpServletResponse response, FileChannel channel, long[] ranges, long size, String contentType)
+        throws IOException {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] partHeaders = new byte[ranges.length / 2][];
+        byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.ISO_8859_1);
+        long length = end.length;
+        for (int i = 0; i < partHeaders.length; ++i) {
+            long start = ranges[i * 2];
+            long stop = ranges[i * 2 + 1];
+            String partHeader = CRLF + "--" + boundary + CRLF + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF + HttpHeaders.CONTENT_RANGE
+                + ": " + contentRange(start, stop, size) + CRLF + CRLF;
+            partHeaders[i] = partHeader.getBytes(StandardCharsets.ISO_8859_1);
+            length += partHeaders[i].length + stop - start + 1;
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        for (int i = 0; i < partHeaders.length; ++i) {
+            out.write(partHeaders[i]);
+            transferTo(channel, ranges[i * 2], ranges[i * 2 + 1] - ranges[i * 2] + 1, target);
+        }
+        out.write(end);
+    }
+
+    /**
+     * 输出一段连续内容，容器支持时使用 sendfile，否则使用 {@link FileChannel#transferTo(long, long, WritableByteChannel)}。
+     * 响应被过滤器包装时不使用 sendfile，过滤器需要看到输出的内容。
+     */
+    private static void transfer(HttpServletRequest request, HttpServletResponse response, FileChannel channel, @Nullable Path path, long start,
+        long count)
+        throws IOException {
+        if (path != null && !(response instanceof ServletResponseWrapper) && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        transferTo(channel, start, count, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private static void transferTo(FileChannel channel, long start, long count, WritableByteChannel target)
+        throws IOException {
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new IOException("File truncated at " + position);
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private static String contentType(HttpServletRequest request, HttpServletResponse response, @Nullable String name) {
+        String contentType = response.getContentType();
+        if (contentType != null) {
+            return contentType;
+        }
+        if (name != null) {
+            ServletContext servletContext = request.getServletContext();
+            String mimeType = servletContext == null ? null : servletContext.getMimeType(name);
+            if (mimeType != null) {
+                return mimeType;
+            }
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * 由文件大小和最后修改时间生成强 ETag，最后修改时间未知时不生成，只凭大小不能区分不同的文件。
+     */
+    @Nullable
+    static String etag(long size, long lastModified) {
+        if (lastModified < 0) {
+            return null;
+        }
+        return "\"" + Long.toHexString(size) + '-' + Long.toHexString(lastModified) + '"';
+    }
+
+    private static String contentRange(long start, long stop, long size) {
+        return "bytes " + start + '-' + stop + '/' + size;
+    }
+}
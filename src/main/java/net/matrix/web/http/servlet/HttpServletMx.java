@@ -4,16 +4,18 @@
  */
 package net.matrix.web.http.servlet;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,11 +28,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import com.google.common.collect.Maps;
 import com.google.common.net.HttpHeaders;
 
 import net.matrix.java.lang.NumberMx;
-import net.matrix.java.time.DateTimeFormatterMx;
+import net.matrix.web.http.PercentCodec;
 
 /**
  * HTTP 协议的 Servlet 工具。
@@ -109,8 +110,8 @@ public final class HttpServletMx {
      * @return 是否已被修改。
      */
     public static boolean checkIfModifiedSince(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, long lastModified) {
-        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
-        if (ifModifiedSince == -1 || lastModified >= ifModifiedSince + 1000) {
+        long ifModifiedSince = ConditionalRequests.getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == ConditionalRequests.NO_DATE || lastModified >= ifModifiedSince + 1000) {
             return true;
         }
 
@@ -132,7 +133,7 @@ public final class HttpServletMx {
 
     /**
      * 根据客户端 If-None-Match 请求头，计算请求对应的资源 ETag 是否已失效。
-     * 如果 ETag 未失效，返回 false，设置响应状态码为 304。
+     * 如果 ETag 未失效，返回 false，设置响应状态码为 304。ETag 按弱比较匹配。
      *
      * @param request
      *     HTTP 请求。
@@ -144,22 +145,7 @@ public final class HttpServletMx {
      */
     public static boolean checkIfNoneMatchEtag(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull String etag) {
         String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
-        boolean matched;
-        if (ifNoneMatch == null) {
-            matched = false;
-        } else if ("*".equals(ifNoneMatch)) {
-            matched = true;
-        } else {
-            matched = false;
-            StringTokenizer tokenizer = new StringTokenizer(ifNoneMatch, ",");
-            while (tokenizer.hasMoreTokens()) {
-                String token = tokenizer.nextToken().trim();
-                if (token.equals(etag)) {
-                    matched = true;
-                    break;
-                }
-            }
-        }
+        boolean matched = ifNoneMatch != null && ConditionalRequests.matches(ifNoneMatch, etag, false);
         if (matched) {
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             return false;
@@ -170,7 +156,39 @@ public final class HttpServletMx {
     }
 
     /**
-     * 设置客户端文件名响应头。
+     * 按 RFC 9110 依次判断 If-Match、If-Unmodified-Since、If-None-Match、If-Modified-Since 请求头，在生成响应内容之前调用。
+     * 设置 ETag 和 Last-Modified 响应头；结果不是 {@link Precondition#PROCEED} 时设置对应的响应状态码，不需要再生成响应内容。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param response
+     *     HTTP 响应。
+     * @param etag
+     *     资源的 ETag，没有时为 null。
+     * @param lastModified
+     *     最后修改时间，没有时为 -1。
+     * @return 判断结果。
+     */
+    @Nonnull
+    public static Precondition checkPreconditions(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable String etag,
+        long lastModified) {
+        Precondition precondition = ConditionalRequests.evaluate(request, etag, lastModified);
+        if (precondition != Precondition.PRECONDITION_FAILED) {
+            if (etag != null) {
+                setEtagHeader(response, etag);
+            }
+            if (lastModified >= 0) {
+                setLastModifiedHeader(response, lastModified);
+            }
+        }
+        if (precondition != Precondition.PROCEED) {
+            response.setStatus(precondition.getStatus());
+        }
+        return precondition;
+    }
+
+    /**
+     * 设置客户端文件名响应头，格式见 {@link #contentDisposition(String, String)}。
      *
      * @param response
      *     HTTP 响应。
@@ -178,13 +196,11 @@ public final class HttpServletMx {
      *     文件名。
      */
     public static void setAttachmentFilenameHeader(@Nonnull HttpServletResponse response, @Nonnull String filename) {
-        // 中文文件名支持
-        String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8);
-        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + encodedFilename + '\"');
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition("attachment", filename));
     }
 
     /**
-     * 设置客户端文件名响应头。
+     * 设置客户端文件名响应头，格式见 {@link #contentDisposition(String, String)}。
      *
      * @param response
      *     HTTP 响应。
@@ -192,9 +208,154 @@ public final class HttpServletMx {
      *     文件名。
      */
     public static void setInlineFilenameHeader(@Nonnull HttpServletResponse response, @Nonnull String filename) {
-        // 中文文件名支持
-        String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8);
-        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + encodedFilename + '\"');
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition("inline", filename));
+    }
+
+    /**
+     * 根据客户端 Accept-Encoding 请求头判断是否接受内容编码。
+     * 不区分大小写，q 为 0 时表示不接受，未列出的编码按 <code>*</code> 判断。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param coding
+     *     内容编码，例如 gzip。
+     * @return 是否接受。
+     */
+    public static boolean acceptsEncoding(@Nonnull HttpServletRequest request, @Nonnull String coding) {
+        return acceptsEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING), coding);
+    }
+
+    /**
+     * 根据 Accept-Encoding 请求头判断客户端是否接受内容编码。
+     *
+     * @param acceptEncoding
+     *     Accept-Encoding 请求头。
+     * @param coding
+     *     内容编码。
+     * @return 是否接受。
+     */
+    static boolean acceptsEncoding(@Nullable String acceptEncoding, @Nonnull String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        int length = acceptEncoding.length();
+        int start = 0;
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int semicolon = acceptEncoding.indexOf(';', start);
+            if (semicolon < 0 || semicolon > end) {
+                semicolon = end;
+            }
+            String name = acceptEncoding.substring(start, semicolon).trim();
+            boolean accepted = semicolon == end || positiveQuality(acceptEncoding.substring(semicolon + 1, end).trim());
+            if (name.equalsIgnoreCase(coding)) {
+                return accepted;
+            }
+            if ("*".equals(name)) {
+                wildcard = accepted;
+            }
+            start = end + 1;
+        }
+        return wildcard;
+    }
+
+    private static boolean positiveQuality(String parameter) {
+        if (!parameter.regionMatches(true, 0, "q=", 0, 2)) {
+            return true;
+        }
+        try {
+            return Float.parseFloat(parameter.substring(2).trim()) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成 Content-Disposition 响应头的值，filename 参数使用 ASCII 替代名称，非 ASCII 字符、引号和反斜杠替换为下划线；
+     * 替代名称与原始名称不同时增加按 RFC 5987 编码原始名称的 filename* 参数。
+     *
+     * @param type
+     *     类型，attachment 或 inline。
+     * @param filename
+     *     文件名。
+     * @return 响应头的值。
+     */
+    @Nonnull
+    static String contentDisposition(@Nonnull String type, @Nonnull String filename) {
+        StringBuilder sb = new StringBuilder(type.length() + filename.length() * 2 + 32);
+        sb.append(type).append("; filename=\"");
+        boolean ascii = true;
+        for (int i = 0; i < filename.length(); ++i) {
+            char ch = filename.charAt(i);
+            if (ch < 0x20 || ch >= 0x7F || ch == '"' || ch == '\\') {
+                sb.append('_');
+                ascii = false;
+            } else {
+                sb.append(ch);
+            }
+        }
+        sb.append('"');
+        if (!ascii) {
+            sb.append("; filename*=").append(PercentCodec.encodeExtValue(filename));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 输出文件内容。
+     * 处理条件请求，GET 请求支持单个和多个范围的 Range 请求（206，多个范围时为 multipart/byteranges）及 If-Range 请求头，HEAD 请求只输出响应头。
+     * 未设置内容类型时按文件名从 Servlet 上下文获取。
+     * 容器支持时使用 Tomcat 的 sendfile 请求属性，否则使用 {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} 输出。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param response
+     *     HTTP 响应。
+     * @param file
+     *     文件。
+     * @param filename
+     *     客户端文件名，为 null 时使用文件本身的名称。
+     * @param attachment
+     *     是否作为附件下载。
+     * @throws IOException
+     *     读取文件或输出失败。
+     */
+    public static void sendFile(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Path file,
+        @Nullable String filename, boolean attachment)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            FileDownload.send(request, response, channel, file, lastModified, filename, attachment);
+        }
+    }
+
+    /**
+     * 输出文件内容，处理方式与 {@link #sendFile(HttpServletRequest, HttpServletResponse, Path, String, boolean)} 相同，但不使用 sendfile。
+     * 调用者负责关闭文件通道。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param response
+     *     HTTP 响应。
+     * @param channel
+     *     文件通道。
+     * @param lastModified
+     *     最后修改时间，没有时为 -1，此时不生成 ETag，也不处理带 If-Range 请求头的 Range 请求。
+     * @param filename
+     *     客户端文件名，为 null 时不设置文件名。
+     * @param attachment
+     *     是否作为附件下载。
+     * @throws IOException
+     *     读取文件或输出失败。
+     */
+    public static void sendFile(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull FileChannel channel,
+        long lastModified, @Nullable String filename, boolean attachment)
+        throws IOException {
+        FileDownload.send(request, response, channel, null, lastModified, filename, attachment);
     }
 
     /**
@@ -229,7 +390,7 @@ public final class HttpServletMx {
             return defaultValue;
         }
 
-        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        return PercentCodec.decode(value);
     }
 
     /**
@@ -343,7 +504,28 @@ public final class HttpServletMx {
             return null;
         }
 
-        return DateTimeFormatterMx.parseInstant(value, pattern);
+        return TemporalPattern.of(pattern).parseInstant(value).getValueOrThrow();
+    }
+
+    /**
+     * 解析时刻类型请求参数，解析失败时返回失败结果，不抛出异常。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param name
+     *     参数名。
+     * @param pattern
+     *     格式，形式见 {@link java.time.format.DateTimeFormatter}。
+     * @return 解析结果，参数不存在或为空时返回空结果。
+     */
+    @Nonnull
+    public static ParseResult<Instant> parseInstantParameter(@Nonnull HttpServletRequest request, @Nonnull String name, @Nonnull String pattern) {
+        String value = request.getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return ParseResult.empty();
+        }
+
+        return TemporalPattern.of(pattern).parseInstant(value);
     }
 
     /**
@@ -364,7 +546,28 @@ public final class HttpServletMx {
             return null;
         }
 
-        return DateTimeFormatterMx.parseLocalDate(value, pattern);
+        return TemporalPattern.of(pattern).parseLocalDate(value).getValueOrThrow();
+    }
+
+    /**
+     * 解析本地日期类型请求参数，解析失败时返回失败结果，不抛出异常。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param name
+     *     参数名。
+     * @param pattern
+     *     格式，形式见 {@link java.time.format.DateTimeFormatter}。
+     * @return 解析结果，参数不存在或为空时返回空结果。
+     */
+    @Nonnull
+    public static ParseResult<LocalDate> parseLocalDateParameter(@Nonnull HttpServletRequest request, @Nonnull String name, @Nonnull String pattern) {
+        String value = request.getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return ParseResult.empty();
+        }
+
+        return TemporalPattern.of(pattern).parseLocalDate(value);
     }
 
     /**
@@ -385,7 +588,28 @@ public final class HttpServletMx {
             return null;
         }
 
-        return DateTimeFormatterMx.parseLocalTime(value, pattern);
+        return TemporalPattern.of(pattern).parseLocalTime(value).getValueOrThrow();
+    }
+
+    /**
+     * 解析本地时间类型请求参数，解析失败时返回失败结果，不抛出异常。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param name
+     *     参数名。
+     * @param pattern
+     *     格式，形式见 {@link java.time.format.DateTimeFormatter}。
+     * @return 解析结果，参数不存在或为空时返回空结果。
+     */
+    @Nonnull
+    public static ParseResult<LocalTime> parseLocalTimeParameter(@Nonnull HttpServletRequest request, @Nonnull String name, @Nonnull String pattern) {
+        String value = request.getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return ParseResult.empty();
+        }
+
+        return TemporalPattern.of(pattern).parseLocalTime(value);
     }
 
     /**
@@ -406,11 +630,34 @@ public final class HttpServletMx {
             return null;
         }
 
-        return DateTimeFormatterMx.parseLocalDateTime(value, pattern);
+        return TemporalPattern.of(pattern).parseLocalDateTime(value).getValueOrThrow();
     }
 
     /**
-     * 获取字符串类型的所有请求参数。
+     * 解析本地日期时间类型请求参数，解析失败时返回失败结果，不抛出异常。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param name
+     *     参数名。
+     * @param pattern
+     *     格式，形式见 {@link java.time.format.DateTimeFormatter}。
+     * @return 解析结果，参数不存在或为空时返回空结果。
+     */
+    @Nonnull
+    public static ParseResult<LocalDateTime> parseLocalDateTimeParameter(@Nonnull HttpServletRequest request, @Nonnull String name,
+        @Nonnull String pattern) {
+        String value = request.getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return ParseResult.empty();
+        }
+
+        return TemporalPattern.of(pattern).parseLocalDateTime(value);
+    }
+
+    /**
+     * 获取字符串类型的所有请求参数，每个参数取第一个值。
+     * 返回只读视图，每个参数只在第一次读取时解码，未读取的参数不解码。视图不是线程安全的。
      *
      * @param request
      *     HTTP 请求。
@@ -418,16 +665,41 @@ public final class HttpServletMx {
      */
     @Nonnull
     public static Map<String, String> getParameterMap(@Nonnull HttpServletRequest request) {
-        Map<String, String[]> parameterMap = request.getParameterMap();
+        return new DecodedParameterMap(request.getParameterMap());
+    }
 
-        Map<String, String> result = Maps.newLinkedHashMapWithExpectedSize(parameterMap.size());
-        for (Map.Entry<String, String[]> parameterEntry : parameterMap.entrySet()) {
-            String key = parameterEntry.getKey();
-            String value = parameterEntry.getValue()[0];
+    /**
+     * 获取字符串类型的所有请求参数，包含每个参数的所有值。
+     * 返回只读视图，值列表直接引用请求中的参数数组，每个值只在第一次读取时解码。视图不是线程安全的。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @return 所有参数。
+     */
+    @Nonnull
+    public static Map<String, List<String>> getParameterValuesMap(@Nonnull HttpServletRequest request) {
+        return new DecodedParameterValuesMap(request.getParameterMap());
+    }
 
-            result.put(key, URLDecoder.decode(value, StandardCharsets.UTF_8));
-        }
-        return result;
+    /**
+     * 把请求参数绑定到记录或 JavaBean。
+     * 记录通过规范构造器创建，每个组件绑定同名参数；JavaBean 通过无参构造器创建，每个 setter 绑定同名参数，参数不存在时不调用 setter。
+     * 参数名和日期时间格式可以用 {@link BindParameter} 指定。
+     * 支持的属性类型为字符串、整型、长整型、十进制数值、布尔、枚举和 java.time 的日期时间类型，转换规则与对应的参数获取方法一致，日期时间默认使用 ISO-8601 格式。
+     * 记录组件必须是支持的类型；JavaBean 中其它类型的 setter 不绑定，除非标注了 {@link BindParameter}。
+     * 每个类型的绑定计划只生成一次并缓存。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param type
+     *     绑定类型。
+     * @return 绑定结果。
+     * @throws IllegalArgumentException
+     *     类型不能绑定，或参数值不能转换为属性类型。
+     */
+    @Nonnull
+    public static <T> T bind(@Nonnull HttpServletRequest request, @Nonnull Class<T> type) {
+        return ParameterBinder.of(type).bind(request);
     }
 
     /**
@@ -488,6 +760,6 @@ public final class HttpServletMx {
             return defaultValue;
         }
 
-        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        return PercentCodec.decode(value);
     }
 }
@@ -0,0 +1,314 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.matrix.java.lang.NumberMx;
+import net.matrix.web.http.PercentCodec;
+
+/**
+ * 把请求参数绑定到记录或 JavaBean 的绑定计划。
+ * 每个类型只在第一次绑定时通过反射分析一次，生成方法句柄和每个属性的转换器，缓存在 {@link ClassValue} 中，之后的绑定不再使用反射。
+ * 记录的每个组件都必须是支持的类型；JavaBean 中类型不受支持的 setter 被忽略，但标注了 {@link BindParameter} 的 setter 必须是支持的类型。
+ *
+ * @param <T>
+ *     绑定类型。
+ */
+@Immutable
+final class ParameterBinder<T> {
+    /**
+     * 各类型的绑定计划。
+     */
+    private static final ClassValue<ParameterBinder<?>> BINDERS = new ClassValue<>() {
+        @Override
+        protected ParameterBinder<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    /**
+     * 记录的规范构造器，形式为 <code>(Object[])Object</code>；JavaBean 的无参构造器，形式为 <code>()Object</code>。
+     */
+    private final MethodHandle constructor;
+
+    private final boolean record;
+
+    private final String[] names;
+
+    private final Converter[] converters;
+
+    /**
+     * JavaBean 的 setter，形式为 <code>(Object,Object)void</code>，记录为 null。
+     */
+    private final MethodHandle[] setters;
+
+    private ParameterBinder(MethodHandle constructor, boolean record, String[] names, Converter[] converters, MethodHandle[] setters) {
+        this.constructor = constructor;
+        this.record = record;
+        this.names = names;
+        this.converters = converters;
+        this.setters = setters;
+    }
+
+    /**
+     * 获取类型的绑定计划。
+     *
+     * @param type
+     *     绑定类型。
+     * @return 绑定计划。
+     * @throws IllegalArgumentException
+     *     类型不能绑定。
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static <T> ParameterBinder<T> of(@Nonnull Class<T> type) {
+        return (ParameterBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * 绑定请求参数。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @return 绑定结果。
+     * @throws IllegalArgumentException
+     *     参数值不能转换为属性类型。
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    T bind(@Nonnull HttpServletRequest request) {
+        try {
+            if (record) {
+                Object[] args = new Object[names.length];
+                for (int i = 0; i < names.length; ++i) {
+                    args[i] = converters[i].convert(request.getParameter(names[i]));
+                }
+                return (T) constructor.invokeExact(args);
+            }
+
+            Object bean = constructor.invokeExact();
+            for (int i = 0; i < names.length; ++i) {
+                String value = request.getParameter(names[i]);
+                if (value != null) {
+                    setters[i].invokeExact(bean, converters[i].convert(value));
+                }
+            }
+            return (T) bean;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ParameterBinder<?> create(Class<?> type) {
+        try {
+            if (type.isRecord()) {
+                return createForRecord(type);
+            }
+            return createForBean(type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot bind parameters to " + type.getName(), e);
+        }
+    }
+
+    private static ParameterBinder<?> createForRecord(Class<?> type)
+        throws ReflectiveOperationException {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] componentTypes = new Class<?>[components.length];
+        String[] names = new String[components.length];
+        Converter[] converters = new Converter[components.length];
+        for (int i = 0; i < components.length; ++i) {
+            RecordComponent component = components[i];
+            BindParameter annotation = component.getAnnotation(BindParameter.class);
+            componentTypes[i] = component.getType();
+            names[i] = parameterName(component.getName(), annotation);
+            converters[i] = converter(component.getType(), annotation);
+            if (converters[i] == null) {
+                throw unsupported(type, component.getName(), component.getType());
+            }
+        }
+
+        Constructor<?> canonical = type.getDeclaredConstructor(componentTypes);
+        canonical.setAccessible(true);
+        MethodHandle constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+            .asType(MethodType.methodType(Object.class, componentTypes).generic()).asSpreader(Object[].class, components.length);
+        return new ParameterBinder<>(constructor, true, names, converters, null);
+    }
+
+    private static ParameterBinder<?> createForBean(Class<?> type)
+        throws ReflectiveOperationException {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot bind parameters to " + type.getName());
+        }
+        Constructor<?> noArgs = type.getDeclaredConstructor();
+        noArgs.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+
+        List<String> names = new ArrayList<>();
+        List<Converter> converters = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            String methodName = method.getName();
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1 || methodName.length() <= 3
+                || !methodName.startsWith("set")) {
+                continue;
+            }
+            String property = StringUtils.uncapitalize(methodName.substring(3));
+            Class<?> propertyType = method.getParameterTypes()[0];
+            BindParameter annotation = method.getAnnotation(BindParameter.class);
+            if (annotation == null) {
+                annotation = fieldAnnotation(type, property);
+            }
+            Converter converter = converter(propertyType, annotation);
+            if (converter == null) {
+                // 集合等不支持的类型不是请求参数，除非明确标注
+                if (annotation != null) {
+                    throw unsupported(type, property, propertyType);
+                }
+                continue;
+            }
+            method.setAccessible(true);
+            names.add(parameterName(property, annotation));
+            converters.add(converter);
+            setters.add(lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        }
+        return new ParameterBinder<>(constructor, false, names.toArray(new String[0]), converters.toArray(new Converter[0]),
+            setters.toArray(new MethodHandle[0]));
+    }
+
+    @Nullable
+    private static BindParameter fieldAnnotation(Class<?> type, String property) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(property);
+                return field.getAnnotation(BindParameter.class);
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        return null;
+    }
+
+    private static String parameterName(String property, @Nullable BindParameter annotation) {
+        if (annotation != null && StringUtils.isNotEmpty(annotation.value())) {
+            return annotation.value();
+        }
+        return property;
+    }
+
+    /**
+     * 选择属性类型的转换器，与 {@link HttpServletMx} 中对应类型的参数获取方法的转换规则一致。
+     *
+     * @return 转换器，类型不受支持时返回 null。
+     */
+    @Nullable
+    private static Converter converter(Class<?> propertyType, @Nullable BindParameter annotation) {
+        String pattern = annotation == null ? "" : annotation.pattern();
+        if (propertyType == String.class) {
+            return value -> value == null ? null : PercentCodec.decode(value);
+        } else if (propertyType == Integer.class) {
+            return value -> NumberMx.parseInteger(value, null);
+        } else if (propertyType == int.class) {
+            return value -> NumberMx.parseInteger(value, 0);
+        } else if (propertyType == Long.class) {
+            return value -> NumberMx.parseLong(value, null);
+        } else if (propertyType == long.class) {
+            return value -> NumberMx.parseLong(value, 0L);
+        } else if (propertyType == BigDecimal.class) {
+            return value -> NumberMx.parseBigDecimal(value, null);
+        } else if (propertyType == Boolean.class) {
+            return value -> StringUtils.isBlank(value) ? null : Boolean.valueOf(value.trim());
+        } else if (propertyType == boolean.class) {
+            return value -> !StringUtils.isBlank(value) && Boolean.parseBoolean(value.trim());
+        } else if (propertyType == Instant.class) {
+            if (pattern.isEmpty()) {
+                return value -> StringUtils.isBlank(value) ? null : Instant.parse(value);
+            }
+            TemporalPattern compiled = TemporalPattern.of(pattern);
+            return value -> StringUtils.isBlank(value) ? null : compiled.parseInstant(value).getValueOrThrow();
+        } else if (propertyType == LocalDate.class) {
+            if (pattern.isEmpty()) {
+                return value -> StringUtils.isBlank(value) ? null : LocalDate.parse(value);
+            }
+            TemporalPattern compiled = TemporalPattern.of(pattern);
+            return value -> StringUtils.isBlank(value) ? null : compiled.parseLocalDate(value).getValueOrThrow();
+        } else if (propertyType == LocalTime.class) {
+            if (pattern.isEmpty()) {
+                return value -> StringUtils.isBlank(value) ? null : LocalTime.parse(value);
+            }
+            TemporalPattern compiled = TemporalPattern.of(pattern);
+            return value -> StringUtils.isBlank(value) ? null : compiled.parseLocalTime(value).getValueOrThrow();
+        } else if (propertyType == LocalDateTime.class) {
+            if (pattern.isEmpty()) {
+                return value -> StringUtils.isBlank(value) ? null : LocalDateTime.parse(value);
+            }
+            TemporalPattern compiled = TemporalPattern.of(pattern);
+            return value -> StringUtils.isBlank(value) ? null : compiled.parseLocalDateTime(value).getValueOrThrow();
+        } else if (propertyType.isEnum()) {
+            return enumConverter(propertyType);
+        }
+        return null;
+    }
+
+    private static IllegalArgumentException unsupported(Class<?> type, String property, Class<?> propertyType) {
+        return new IllegalArgumentException("Unsupported type " + propertyType.getName() + " of " + type.getName() + '.' + property);
+    }
+
+    private static Converter enumConverter(Class<?> enumType) {
+        Object[] constants = enumType.getEnumConstants();
+        return value -> {
+            if (StringUtils.isBlank(value)) {
+                return null;
+            }
+            String name = value.trim();
+            for (Object constant : constants) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("No enum constant " + enumType.getName() + '.' + name);
+        };
+    }
+
+    /**
+     * 把参数值转换为属性类型。
+     */
+    @FunctionalInterface
+    private interface Converter {
+        /**
+         * 转换。
+         *
+         * @param value
+         *     参数值，参数不存在时为 null。
+         * @return 属性值。
+         */
+        Object convert(@Nullable String value);
+    }
+}
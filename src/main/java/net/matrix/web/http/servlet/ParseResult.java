@@ -0,0 +1,157 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.time.format.DateTimeParseException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 请求参数的解析结果，解析失败时记录失败位置，不抛出异常。
+ * 结果有三种状态：解析成功、参数不存在或为空、解析失败。
+ *
+ * @param <T>
+ *     值类型。
+ */
+@Immutable
+public final class ParseResult<T> {
+    /**
+     * 参数不存在或为空。
+     */
+    private static final ParseResult<?> EMPTY = new ParseResult<>(null, null, -1);
+
+    private final T value;
+
+    private final String text;
+
+    private final int errorIndex;
+
+    private ParseResult(T value, String text, int errorIndex) {
+        this.value = value;
+        this.text = text;
+        this.errorIndex = errorIndex;
+    }
+
+    /**
+     * 参数不存在或为空的结果。
+     *
+     * @return 结果。
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static <T> ParseResult<T> empty() {
+        return (ParseResult<T>) EMPTY;
+    }
+
+    /**
+     * 解析成功的结果。
+     *
+     * @param value
+     *     值。
+     * @return 结果。
+     */
+    @Nonnull
+    public static <T> ParseResult<T> success(@Nonnull T value) {
+        return new ParseResult<>(value, null, -1);
+    }
+
+    /**
+     * 解析失败的结果。
+     *
+     * @param text
+     *     参数值。
+     * @param errorIndex
+     *     失败位置。
+     * @return 结果。
+     */
+    @Nonnull
+    public static <T> ParseResult<T> failure(@Nonnull String text, int errorIndex) {
+        return new ParseResult<>(null, text, Math.max(errorIndex, 0));
+    }
+
+    /**
+     * 是否解析成功。
+     *
+     * @return 解析成功。
+     */
+    public boolean isPresent() {
+        return value != null;
+    }
+
+    /**
+     * 是否解析失败。
+     *
+     * @return 解析失败。
+     */
+    public boolean isFailure() {
+        return errorIndex >= 0;
+    }
+
+    /**
+     * 获取值。
+     *
+     * @return 值，参数不存在、为空或解析失败时返回 null。
+     */
+    @Nullable
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * 获取值。
+     *
+     * @param defaultValue
+     *     默认值。
+     * @return 值，参数不存在、为空或解析失败时返回默认值。
+     */
+    @Nullable
+    public T getValue(@Nullable T defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * 获取值，解析失败时抛出异常。
+     *
+     * @return 值，参数不存在或为空时返回 null。
+     * @throws DateTimeParseException
+     *     解析失败。
+     */
+    @Nullable
+    public T getValueOrThrow() {
+        if (errorIndex >= 0) {
+            throw new DateTimeParseException("Text '" + text + "' could not be parsed at index " + errorIndex, text, errorIndex);
+        }
+        return value;
+    }
+
+    /**
+     * 获取解析失败的参数值。
+     *
+     * @return 参数值，解析成功或参数不存在时返回 null。
+     */
+    @Nullable
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 获取解析失败的位置。
+     *
+     * @return 失败位置，没有失败时返回 -1。
+     */
+    public int getErrorIndex() {
+        return errorIndex;
+    }
+
+    @Override
+    public String toString() {
+        if (errorIndex >= 0) {
+            return "ParseResult[failure '" + text + "' at " + errorIndex + ']';
+        }
+        return "ParseResult[" + value + ']';
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 条件请求的判断结果。
+ */
+public enum Precondition {
+    /**
+     * 条件满足或没有条件，继续处理请求。
+     */
+    PROCEED(HttpServletResponse.SC_OK),
+    /**
+     * 客户端缓存有效，返回 304，不需要生成响应内容。
+     */
+    NOT_MODIFIED(HttpServletResponse.SC_NOT_MODIFIED),
+    /**
+     * 条件不满足，返回 412。
+     */
+    PRECONDITION_FAILED(HttpServletResponse.SC_PRECONDITION_FAILED);
+
+    private final int status;
+
+    Precondition(int status) {
+        this.status = status;
+    }
+
+    /**
+     * 对应的响应状态码。
+     *
+     * @return 状态码。
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 编译后的日期时间格式，按格式缓存。
+ * 由四位年和两位月、日、时、分、秒及分隔符组成的固定宽度格式，例如 <code>yyyy-MM-dd</code>、<code>yyyyMMddHHmmss</code>，
+ * 使用直接按位置读取数字的快速解析；遇到快速解析不能确定结果的输入，以及其它格式，使用 {@link DateTimeFormatter}。
+ * 解析失败时返回失败结果，不抛出异常。
+ */
+@Immutable
+final class TemporalPattern {
+    /**
+     * 最多缓存的格式数量，超出后新的格式每次重新编译。
+     */
+    static final int MAX_CACHED_PATTERNS = 256;
+
+    private static final ConcurrentHashMap<String, TemporalPattern> CACHE = new ConcurrentHashMap<>();
+
+    private final DateTimeFormatter formatter;
+
+    private final Format format;
+
+    /**
+     * 快速解析的布局，格式不是固定宽度时为 null。
+     */
+    @Nullable
+    private final FixedLayout layout;
+
+    private TemporalPattern(String pattern) {
+        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.format = formatter.toFormat();
+        this.layout = FixedLayout.compile(pattern);
+    }
+
+    /**
+     * 获取格式。
+     *
+     * @param pattern
+     *     格式，形式见 {@link DateTimeFormatter}。
+     * @return 编译后的格式。
+     * @throws IllegalArgumentException
+     *     格式不合法。
+     */
+    @Nonnull
+    static TemporalPattern of(@Nonnull String pattern) {
+        TemporalPattern compiled = CACHE.get(pattern);
+        if (compiled != null) {
+            return compiled;
+        }
+        compiled = new TemporalPattern(pattern);
+        if (CACHE.size() < MAX_CACHED_PATTERNS) {
+            TemporalPattern existing = CACHE.putIfAbsent(pattern, compiled);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * 是否使用快速解析。
+     *
+     * @return 格式是固定宽度布局。
+     */
+    boolean isFixedLayout() {
+        return layout != null;
+    }
+
+    /**
+     * 解析时刻，格式中没有时区或偏移量时按系统默认时区。
+     *
+     * @param text
+     *     参数值。
+     * @return 解析结果。
+     */
+    @Nonnull
+    ParseResult<Instant> parseInstant(@Nonnull String text) {
+        if (layout != null && layout.hasDate() && layout.hasTime()) {
+            // 固定宽度布局中没有时区和偏移量
+            LocalDateTime dateTime = layout.parseDateTime(text);
+            if (dateTime != null) {
+                return ParseResult.success(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+            }
+        }
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = parseResolved(text, position);
+        if (parsed == null) {
+            return ParseResult.failure(text, position.getErrorIndex());
+        }
+        if (parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return ParseResult.success(Instant.from(parsed));
+        }
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        if (date == null || time == null) {
+            return ParseResult.failure(text, 0);
+        }
+        ZoneId zone = parsed.query(TemporalQueries.zone());
+        return ParseResult.success(LocalDateTime.of(date, time).atZone(zone == null ? ZoneId.systemDefault() : zone).toInstant());
+    }
+
+    /**
+     * 解析本地日期。
+     *
+     * @param text
+     *     参数值。
+     * @return 解析结果。
+     */
+    @Nonnull
+    ParseResult<LocalDate> parseLocalDate(@Nonnull String text) {
+        if (layout != null && layout.hasDate()) {
+            LocalDate date = layout.parseDate(text);
+            if (date != null) {
+                return ParseResult.success(date);
+            }
+        }
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = parseResolved(text, position);
+        if (parsed == null) {
+            return ParseResult.failure(text, position.getErrorIndex());
+        }
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        if (date == null) {
+            return ParseResult.failure(text, 0);
+        }
+        return ParseResult.success(date);
+    }
+
+    /**
+     * 解析本地时间。
+     *
+     * @param text
+     *     参数值。
+     * @return 解析结果。
+     */
+    @Nonnull
+    ParseResult<LocalTime> parseLocalTime(@Nonnull String text) {
+        if (layout != null && layout.hasTime()) {
+            LocalTime time = layout.parseTime(text);
+            if (time != null) {
+                return ParseResult.success(time);
+            }
+        }
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = parseResolved(text, position);
+        if (parsed == null) {
+            return ParseResult.failure(text, position.getErrorIndex());
+        }
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        if (time == null) {
+            return ParseResult.failure(text, 0);
+        }
+        return ParseResult.success(time);
+    }
+
+    /**
+     * 解析本地日期时间。
+     *
+     * @param text
+     *     参数值。
+     * @return 解析结果。
+     */
+    @Nonnull
+    ParseResult<LocalDateTime> parseLocalDateTime(@Nonnull String text) {
+        if (layout != null && layout.hasDate() && layout.hasTime()) {
+            LocalDateTime dateTime = layout.parseDateTime(text);
+            if (dateTime != null) {
+                return ParseResult.success(dateTime);
+            }
+        }
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = parseResolved(text, position);
+        if (parsed == null) {
+            return ParseResult.failure(text, position.getErrorIndex());
+        }
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        if (date == null || time == null) {
+            return ParseResult.failure(text, 0);
+        }
+        return ParseResult.success(LocalDateTime.of(date, time));
+    }
+
+    /**
+     * 使用 {@link Format#parseObject(String, ParsePosition)} 解析，失败时通过解析位置返回失败位置，不抛出异常。
+     */
+    @Nullable
+    private TemporalAccessor parseResolved(String text, ParsePosition position) {
+        TemporalAccessor parsed = (TemporalAccessor) format.parseObject(text, position);
+        if (parsed != null && position.getIndex() < text.length()) {
+            // 有未解析的剩余字符
+            position.setErrorIndex(position.getIndex());
+            return null;
+        }
+        return parsed;
+    }
+
+    /**
+     * 固定宽度的数字布局。
+     */
+    @Immutable
+    private static final class FixedLayout {
+        /**
+         * 字段位置的占位符。
+         */
+        private static final char FIELD = '\0';
+
+        /**
+         * 每个位置的字符，字段位置为 {@link #FIELD}。
+         */
+        private final char[] template;
+
+        private final int year;
+
+        private final int month;
+
+        private final int day;
+
+        private final int hour;
+
+        private final int minute;
+
+        private final int second;
+
+        private FixedLayout(char[] template, int[] positions) {
+            this.template = template;
+            this.year = positions[0];
+            this.month = positions[1];
+            this.day = positions[2];
+            this.hour = positions[3];
+            this.minute = positions[4];
+            this.second = positions[5];
+        }
+
+        /**
+         * 编译格式。
+         *
+         * @return 布局，格式不是固定宽度时返回 null。
+         */
+        @Nullable
+        static FixedLayout compile(String pattern) {
+            StringBuilder template = new StringBuilder(pattern.length());
+            // 年、月、日、时、分、秒的位置
+            int[] positions = {
+                -1, -1, -1, -1, -1, -1
+            };
+            int i = 0;
+            while (i < pattern.length()) {
+                char ch = pattern.charAt(i);
+                if (ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z') {
+                    int end = i;
+                    while (end < pattern.length() && pattern.charAt(end) == ch) {
+                        ++end;
+                    }
+                    int field = fieldOf(ch, end - i);
+                    if (field < 0 || positions[field] >= 0) {
+                        return null;
+                    }
+                    positions[field] = template.length();
+                    for (int k = i; k < end; ++k) {
+                        template.append(FIELD);
+                    }
+                    i = end;
+                } else if (ch == '\'') {
+                    int end = pattern.indexOf('\'', i + 1);
+                    if (end <= i + 1) {
+                        // 未闭合的引号或转义的单引号
+                        return null;
+                    }
+                    template.append(pattern, i + 1, end);
+                    i = end + 1;
+                } else if (ch == '[' || ch == ']' || ch == '{' || ch == '}' || ch == '#') {
+                    return null;
+                } else {
+                    template.append(ch);
+                    ++i;
+                }
+            }
+            if (positions[0] < 0 && positions[3] < 0) {
+                return null;
+            }
+            return new FixedLayout(template.toString().toCharArray(), positions);
+        }
+
+        private static int fieldOf(char ch, int count) {
+            switch (ch) {
+            case 'y':
+                return count == 4 ? 0 : -1;
+            case 'M':
+                return count == 2 ? 1 : -1;
+            case 'd':
+                return count == 2 ? 2 : -1;
+            case 'H':
+                return count == 2 ? 3 : -1;
+            case 'm':
+                return count == 2 ? 4 : -1;
+            case 's':
+                return count == 2 ? 5 : -1;
+            default:
+                return -1;
+            }
+        }
+
+        boolean hasDate() {
+            return year >= 0 && month >= 0 && day >= 0;
+        }
+
+        boolean hasTime() {
+            return hour >= 0 && minute >= 0;
+        }
+
+        /**
+         * 快速解析日期，布局中的所有字段都需要有效。
+         *
+         * @return 日期，不能确定结果时返回 null。
+         */
+        @Nullable
+        LocalDate parseDate(String text) {
+            if (!isValid(text)) {
+                return null;
+            }
+            return LocalDate.of(digits(text, year, 4), digits(text, month, 2), digits(text, day, 2));
+        }
+
+        /**
+         * 快速解析时间，布局中的所有字段都需要有效。
+         *
+         * @return 时间，不能确定结果时返回 null。
+         */
+        @Nullable
+        LocalTime parseTime(String text) {
+            if (!isValid(text)) {
+                return null;
+            }
+            return LocalTime.of(digits(text, hour, 2), digits(text, minute, 2), second >= 0 ? digits(text, second, 2) : 0);
+        }
+
+        /**
+         * 快速解析日期时间。
+         *
+         * @return 日期时间，不能确定结果时返回 null。
+         */
+        @Nullable
+        LocalDateTime parseDateTime(String text) {
+            if (!isValid(text)) {
+                return null;
+            }
+            return LocalDateTime.of(digits(text, year, 4), digits(text, month, 2), digits(text, day, 2), digits(text, hour, 2),
+                digits(text, minute, 2), second >= 0 ? digits(text, second, 2) : 0);
+        }
+
+        /**
+         * 判断文本符合布局，并且布局中的每个字段都在有效范围内。
+         * 超出范围的值交给 DateTimeFormatter 按其解析规则处理，例如拒绝或按月份调整日。
+         */
+        private boolean isValid(String text) {
+            if (!matches(text)) {
+                return false;
+            }
+            int y = year >= 0 ? digits(text, year, 4) : 2000;
+            if (y < 1) {
+                return false;
+            }
+            int m = month >= 0 ? digits(text, month, 2) : 1;
+            if (m < 1 || m > 12) {
+                return false;
+            }
+            if (day >= 0) {
+                int d = digits(text, day, 2);
+                if (d < 1 || d > Month.of(m).length(Year.isLeap(y))) {
+                    return false;
+                }
+            }
+            return (hour < 0 || digits(text, hour, 2) <= 23) && (minute < 0 || digits(text, minute, 2) <= 59)
+                && (second < 0 || digits(text, second, 2) <= 59);
+        }
+
+        private boolean matches(String text) {
+            if (text.length() != template.length) {
+                return false;
+            }
+            for (int i = 0; i < template.length; ++i) {
+                char expected = template[i];
+                char ch = text.charAt(i);
+                if (expected == FIELD ? ch < '0' || ch > '9' : ch != expected) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int digits(String text, int start, int count) {
+            int value = 0;
+            for (int i = start; i < start + count; ++i) {
+                value = value * 10 + text.charAt(i) - '0';
+            }
+            return value;
+        }
+    }
+}
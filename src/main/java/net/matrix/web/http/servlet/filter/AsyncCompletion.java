@@ -0,0 +1,107 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+
+/**
+ * 在请求处理真正完成时执行收尾工作。
+ * 后续处理调用了 {@link ServletRequest#startAsync()} 时，过滤器链立即返回，收尾工作推迟到异步处理完成时，在完成异步处理的线程中执行，
+ * 不占用容器线程等待。
+ */
+@ThreadSafe
+final class AsyncCompletion
+    implements AsyncListener {
+    /**
+     * 收尾工作。
+     */
+    @FunctionalInterface
+    interface Callback {
+        /**
+         * 请求处理完成。
+         *
+         * @param failed
+         *     处理是否抛出异常、超时或出错。
+         * @throws IOException
+         *     采集失败。
+         * @throws ServletException
+         *     采集失败。
+         */
+        void complete(boolean failed)
+            throws IOException, ServletException;
+    }
+
+    private final Callback callback;
+
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private volatile boolean failed;
+
+    private AsyncCompletion(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 过滤器链返回后调用，同步处理时立即执行收尾工作，异步处理时在异步处理完成后执行。
+     *
+     * @param request
+     *     传给过滤器链的请求。
+     * @param failed
+     *     过滤器链是否抛出异常，抛出异常时立即执行收尾工作。
+     * @param callback
+     *     收尾工作。
+     * @throws IOException
+     *     同步执行收尾工作失败。
+     * @throws ServletException
+     *     同步执行收尾工作失败。
+     */
+    static void afterChain(@Nonnull ServletRequest request, boolean failed, @Nonnull Callback callback)
+        throws IOException, ServletException {
+        if (!failed && request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncCompletion(callback));
+        } else {
+            callback.complete(failed);
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event)
+        throws IOException {
+        if (done.compareAndSet(false, true)) {
+            try {
+                callback.complete(failed);
+            } catch (ServletException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        // 容器随后会调用 onComplete
+        this.failed = true;
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        // 容器随后会调用 onComplete
+        this.failed = true;
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // 再次开始异步处理时监听器被清除，需要重新注册
+        event.getAsyncContext().addListener(this);
+    }
+}
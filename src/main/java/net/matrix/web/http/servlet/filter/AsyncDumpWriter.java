@@ -0,0 +1,223 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在后台线程中输出请求内容快照。
+ * 请求线程只把快照放入有界环形缓冲区，格式化和写日志都在后台线程中完成。
+ */
+@ThreadSafe
+final class AsyncDumpWriter
+    implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncDumpWriter.class);
+
+    /**
+     * 后台线程空闲时的最长等待时间。
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 阻塞策略下请求线程每次等待的时间。
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final RingBuffer<RequestDump> buffer;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int sampleRate;
+
+    private final Consumer<RequestDump> sink;
+
+    private final Thread thread;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder sampledOutCount = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private volatile boolean waiting;
+
+    /**
+     * 构造。
+     *
+     * @param name
+     *     后台线程名。
+     * @param capacity
+     *     缓冲区容量。
+     * @param overflowPolicy
+     *     缓冲区满时的处理策略。
+     * @param sampleRate
+     *     抽样策略下每多少条记录保留一条。
+     * @param sink
+     *     在后台线程中处理快照。
+     */
+    AsyncDumpWriter(@Nonnull String name, int capacity, @Nonnull OverflowPolicy overflowPolicy, int sampleRate, @Nonnull Consumer<RequestDump> sink) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.sink = sink;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 启动后台线程。
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * 停止后台线程，缓冲区中已有的快照会先输出完毕。
+     *
+     * @param timeoutMillis
+     *     等待后台线程结束的最长时间。
+     */
+    void stop(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 提交快照，由请求线程调用。
+     *
+     * @param dump
+     *     请求内容快照。
+     */
+    void submit(@Nonnull RequestDump dump) {
+        switch (overflowPolicy) {
+        case SAMPLE:
+            if (buffer.size() >= buffer.capacity() / 2 && sampleCounter.getAndIncrement() % sampleRate != 0) {
+                sampledOutCount.increment();
+                return;
+            }
+            offerOrDrop(dump);
+            break;
+        case BLOCK:
+            while (!buffer.offer(dump)) {
+                if (!running) {
+                    droppedCount.increment();
+                    return;
+                }
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+            }
+            accepted();
+            break;
+        default:
+            offerOrDrop(dump);
+            break;
+        }
+    }
+
+    private void offerOrDrop(RequestDump dump) {
+        if (buffer.offer(dump)) {
+            accepted();
+        } else {
+            droppedCount.increment();
+        }
+    }
+
+    private void accepted() {
+        submittedCount.increment();
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            RequestDump dump = buffer.poll();
+            if (dump != null) {
+                write(dump);
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+
+            waiting = true;
+            if (buffer.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+
+        // 停止后再次检查，输出停止前刚放入的快照
+        RequestDump dump = buffer.poll();
+        while (dump != null) {
+            write(dump);
+            dump = buffer.poll();
+        }
+    }
+
+    private void write(RequestDump dump) {
+        try {
+            sink.accept(dump);
+        } catch (RuntimeException e) {
+            LOG.warn("", e);
+        }
+    }
+
+    /**
+     * 已接收的快照数量。
+     *
+     * @return 数量。
+     */
+    long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    /**
+     * 因缓冲区满而丢弃的快照数量。
+     *
+     * @return 数量。
+     */
+    long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 因抽样而丢弃的快照数量。
+     *
+     * @return 数量。
+     */
+    long getSampledOutCount() {
+        return sampledOutCount.sum();
+    }
+
+    /**
+     * 缓冲区中等待输出的快照数量。
+     *
+     * @return 数量。
+     */
+    int getPendingCount() {
+        return buffer.size();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 复制请求、响应内容时使用的定长缓冲区池。
+ * 池中最多保留固定数量的缓冲区，池空时临时分配，池满时归还的缓冲区直接丢弃。
+ */
+@ThreadSafe
+final class BodyBufferPool {
+    private final int bufferSize;
+
+    private final ArrayBlockingQueue<byte[]> buffers;
+
+    /**
+     * 构造。
+     *
+     * @param bufferSize
+     *     缓冲区大小。
+     * @param poolSize
+     *     最多保留的缓冲区数量。
+     */
+    BodyBufferPool(int bufferSize, int poolSize) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * 缓冲区大小。
+     *
+     * @return 字节数。
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 取得缓冲区，内容未清空。
+     *
+     * @return 缓冲区。
+     */
+    @Nonnull
+    byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区。
+     *
+     * @param buffer
+     *     由 {@link #acquire()} 取得的缓冲区。
+     */
+    void release(@Nonnull byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+/**
+ * 请求内容的采集时机。
+ */
+enum CaptureMode {
+    /**
+     * 在后续处理之前采集并输出，响应内容是处理前的状态。
+     */
+    BEFORE,
+    /**
+     * 在后续处理之前采集请求，处理完成后采集响应、会话和耗时再输出。
+     */
+    AFTER,
+    /**
+     * 处理前只记录请求方法、URI、查询字符串和客户端地址，处理完成后耗时超过阈值、响应状态为 5xx 或处理抛出异常时，才采集其余内容并输出。
+     */
+    SLOW,
+    /**
+     * 不输出单个请求，按请求形态汇总数量、响应状态和耗时，定期输出汇总表。
+     */
+    SUMMARY
+}
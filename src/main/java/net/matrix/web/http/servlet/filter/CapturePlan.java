@@ -0,0 +1,142 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 请求内容的采集计划，在初始化时根据配置生成，每个请求只读取计划中选择的内容。
+ * 配置为逗号分隔的名称列表，可以是 {@link RequestProperty} 中的属性名（如 <code>Method</code>、<code>RequestURI</code>），
+ * 也可以是以下内容：
+ * <ul>
+ * <li><code>headers</code> - 请求头。</li>
+ * <li><code>params</code> - 请求参数。</li>
+ * <li><code>cookies</code> - Cookie。</li>
+ * <li><code>parts</code> - multipart 请求的各部分。</li>
+ * <li><code>attributes</code> - 请求属性。</li>
+ * </ul>
+ * 名称不区分大小写。未配置时采集除 <code>RemoteHost</code>、<code>LocalName</code> 以外的所有内容，这两个属性可能触发反向 DNS 解析。
+ */
+@Immutable
+final class CapturePlan {
+    /**
+     * 默认采集计划。
+     */
+    static final CapturePlan DEFAULT = createDefault();
+
+    /**
+     * 采集的请求属性。
+     */
+    @Nonnull
+    final RequestProperty[] properties;
+
+    /**
+     * 请求属性的输出名称，与 {@link #properties} 一一对应，各请求共用，不能修改。
+     */
+    @Nonnull
+    final String[] propertyNames;
+
+    final boolean headers;
+
+    final boolean parameters;
+
+    final boolean cookies;
+
+    final boolean parts;
+
+    final boolean attributes;
+
+    private CapturePlan(List<RequestProperty> properties, boolean headers, boolean parameters, boolean cookies, boolean parts, boolean attributes) {
+        this.properties = properties.toArray(new RequestProperty[0]);
+        this.propertyNames = new String[this.properties.length];
+        for (int i = 0; i < this.properties.length; ++i) {
+            this.propertyNames[i] = this.properties[i].displayName;
+        }
+        this.headers = headers;
+        this.parameters = parameters;
+        this.cookies = cookies;
+        this.parts = parts;
+        this.attributes = attributes;
+    }
+
+    private static CapturePlan createDefault() {
+        List<RequestProperty> properties = new ArrayList<>();
+        for (RequestProperty property : RequestProperty.values()) {
+            if (!property.resolving) {
+                properties.add(property);
+            }
+        }
+        return new CapturePlan(properties, true, true, true, true, true);
+    }
+
+    /**
+     * 解析配置。
+     *
+     * @param value
+     *     配置值。
+     * @return 采集计划，配置为空时返回默认计划。
+     * @throws IllegalArgumentException
+     *     包含未知名称。
+     */
+    @Nonnull
+    static CapturePlan parse(@Nullable String value) {
+        if (StringUtils.isBlank(value)) {
+            return DEFAULT;
+        }
+
+        List<RequestProperty> properties = new ArrayList<>();
+        boolean headers = false;
+        boolean parameters = false;
+        boolean cookies = false;
+        boolean parts = false;
+        boolean attributes = false;
+        for (String item : StringUtils.split(value, ", \t\r\n")) {
+            switch (item.toLowerCase(Locale.ROOT)) {
+            case "headers":
+                headers = true;
+                break;
+            case "params":
+            case "parameters":
+                parameters = true;
+                break;
+            case "cookies":
+                cookies = true;
+                break;
+            case "parts":
+                parts = true;
+                break;
+            case "attributes":
+                attributes = true;
+                break;
+            default:
+                RequestProperty property = findProperty(item);
+                if (!properties.contains(property)) {
+                    properties.add(property);
+                }
+                break;
+            }
+        }
+        // 按固定顺序输出
+        properties.sort(null);
+        return new CapturePlan(properties, headers, parameters, cookies, parts, attributes);
+    }
+
+    private static RequestProperty findProperty(String name) {
+        for (RequestProperty property : RequestProperty.values()) {
+            if (property.displayName.equalsIgnoreCase(name)) {
+                return property;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name);
+    }
+}
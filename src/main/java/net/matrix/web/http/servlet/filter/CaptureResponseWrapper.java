@@ -0,0 +1,256 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * 统计写入响应内容字节数的 HTTP 响应包装，可以同时把前面有限字节复制到缓冲区池中的定长缓冲区。
+ * 内容直接写入原响应，字符输出也逐次编码写入，不做额外缓冲。
+ * 重置响应时清除已统计的字节数和已复制的内容。
+ */
+final class CaptureResponseWrapper
+    extends HttpServletResponseWrapper {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final BodyBufferPool bodyPool;
+
+    private final ContentTypeMatcher bodyContentTypes;
+
+    private boolean bodyDecided;
+
+    private byte[] body = EMPTY;
+
+    private int bodyLength;
+
+    private CountingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    /**
+     * 包装响应。
+     *
+     * @param response
+     *     原响应。
+     */
+    CaptureResponseWrapper(@Nonnull HttpServletResponse response) {
+        this(response, null, null);
+    }
+
+    /**
+     * 包装响应，复制内容类型在白名单中的响应内容。
+     *
+     * @param response
+     *     原响应。
+     * @param bodyPool
+     *     缓冲区池，缓冲区大小即最多复制的字节数，为 null 时不复制。
+     * @param bodyContentTypes
+     *     内容类型白名单。
+     */
+    CaptureResponseWrapper(@Nonnull HttpServletResponse response, @Nullable BodyBufferPool bodyPool, @Nullable ContentTypeMatcher bodyContentTypes) {
+        super(response);
+        this.bodyPool = bodyPool;
+        this.bodyContentTypes = bodyContentTypes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream()
+        throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response.");
+        }
+        return countingOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter()
+        throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response.");
+            }
+            Charset charset = Charset.forName(getCharacterEncoding());
+            writer = new PrintWriter(new EncodingWriter(countingOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        clearCapture();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        clearCapture();
+    }
+
+    /**
+     * 原响应已经丢弃了未提交的内容，统计和复制的内容也从头开始，重置后可能改变内容类型，重新决定是否复制。
+     */
+    private void clearCapture() {
+        if (outputStream != null) {
+            outputStream.count = 0;
+        }
+        if (body != EMPTY) {
+            bodyPool.release(body);
+            body = EMPTY;
+        }
+        bodyLength = 0;
+        bodyDecided = false;
+    }
+
+    private CountingOutputStream countingOutputStream()
+        throws IOException {
+        if (outputStream == null) {
+            outputStream = new CountingOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    /**
+     * 已写入的响应内容字节数。
+     *
+     * @return 字节数。
+     */
+    long getBytesWritten() {
+        if (outputStream == null) {
+            return 0;
+        }
+        return outputStream.count;
+    }
+
+    /**
+     * 已复制的响应内容，有效长度见 {@link #getBodyLength()}。
+     *
+     * @return 已复制的内容。
+     */
+    @Nonnull
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * 已复制的字节数。
+     *
+     * @return 字节数。
+     */
+    int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * 是否复制了响应内容。
+     *
+     * @return 是否复制。
+     */
+    boolean isBodyCaptured() {
+        return body != EMPTY;
+    }
+
+    /**
+     * 把缓冲区归还缓冲区池，之后不再复制响应内容。
+     */
+    void release() {
+        bodyDecided = true;
+        if (body != EMPTY) {
+            bodyPool.release(body);
+            body = EMPTY;
+            bodyLength = 0;
+        }
+    }
+
+    /**
+     * 首次写入时根据内容类型决定是否复制，此时内容类型通常已经确定。
+     */
+    private void decideBody() {
+        if (!bodyDecided) {
+            bodyDecided = true;
+            if (bodyPool != null && bodyContentTypes.matches(getContentType())) {
+                body = bodyPool.acquire();
+            }
+        }
+    }
+
+    private void capture(int b) {
+        decideBody();
+        if (bodyLength < body.length) {
+            body[bodyLength++] = (byte) b;
+        }
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        decideBody();
+        int count = Math.min(len, body.length - bodyLength);
+        if (count > 0) {
+            System.arraycopy(b, off, body, bodyLength, count);
+            bodyLength += count;
+        }
+    }
+
+    /**
+     * 统计字节数的输出流。
+     */
+    private final class CountingOutputStream
+        extends ServletOutputStream {
+        private final ServletOutputStream target;
+
+        long count;
+
+        CountingOutputStream(ServletOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b)
+            throws IOException {
+            target.write(b);
+            ++count;
+            capture(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException {
+            target.write(b, off, len);
+            count += len;
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush()
+            throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close()
+            throws IOException {
+            target.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+    }
+}
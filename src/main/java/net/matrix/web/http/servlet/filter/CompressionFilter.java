@@ -0,0 +1,211 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.matrix.web.http.servlet.HttpServletMx;
+
+/**
+ * 按客户端的 Accept-Encoding 请求头以 gzip 或 deflate 压缩响应内容。
+ * 只压缩白名单中的内容类型、状态为 2xx（204、206 除外）、未设置 Content-Encoding 和 Cache-Control: no-transform 的响应，
+ * 可以压缩的响应都设置 Vary: Accept-Encoding。压缩时强 ETag 改为弱 ETag。
+ * 支持以下初始化参数：
+ * <ul>
+ * <li><strong>minSize</strong> - 压缩的最小字节数，默认 1024。先缓冲不超过该字节数的内容，处理完成时内容不足则不压缩。</li>
+ * <li><strong>contentTypes</strong> - 压缩的内容类型白名单，逗号或空白分隔，支持 <code>text/*</code> 形式的通配，
+ * 默认 <code>text/*,application/json,application/javascript,application/xml,image/svg+xml</code>。</li>
+ * <li><strong>level</strong> - 压缩级别，0 到 9，默认 6。</li>
+ * <li><strong>poolSize</strong> - 最多保留的 {@link Deflater} 和压缩输出缓冲区数量，默认 32。</li>
+ * </ul>
+ * <p>
+ * 后续处理刷新输出时，内容长度未知则立即开始压缩，并以 {@link Deflater#SYNC_FLUSH} 输出已压缩的内容，适合流式响应。
+ * 开始异步处理时尚未开始压缩的响应不压缩；已开始压缩的响应在后续处理调用 {@link AsyncContext#complete()} 时、
+ * 或异步分派的处理返回时结束压缩，异步分派需要把过滤器映射到 ASYNC 分派类型。非阻塞输出的响应不压缩。
+ */
+public class CompressionFilter
+    implements Filter {
+    /**
+     * 默认压缩的最小字节数。
+     */
+    private static final int DEFAULT_MIN_SIZE = 1024;
+
+    /**
+     * 默认压缩的内容类型。
+     */
+    private static final String DEFAULT_CONTENT_TYPES = "text/*,application/json,application/javascript,application/xml,image/svg+xml";
+
+    /**
+     * 默认压缩级别。
+     */
+    private static final int DEFAULT_LEVEL = 6;
+
+    /**
+     * 默认最多保留的 {@link Deflater} 数量。
+     */
+    private static final int DEFAULT_POOL_SIZE = 32;
+
+    /**
+     * 压缩输出缓冲区大小。
+     */
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    /**
+     * 异步处理时保存响应包装的请求属性名。
+     */
+    private static final String WRAPPER_ATTRIBUTE = CompressionFilter.class.getName() + ".wrapper";
+
+    private int minSize = DEFAULT_MIN_SIZE;
+
+    private String contentTypesValue = DEFAULT_CONTENT_TYPES;
+
+    private int level = DEFAULT_LEVEL;
+
+    private int poolSize = DEFAULT_POOL_SIZE;
+
+    private ContentTypeMatcher contentTypes;
+
+    private DeflaterPool deflaterPool;
+
+    private BodyBufferPool bufferPool;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("minSize"))) {
+            this.minSize = parseInt(filterConfig, "minSize");
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("contentTypes"))) {
+            this.contentTypesValue = filterConfig.getInitParameter("contentTypes");
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("level"))) {
+            this.level = parseInt(filterConfig, "level");
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("poolSize"))) {
+            this.poolSize = parseInt(filterConfig, "poolSize");
+        }
+        if (minSize < 0) {
+            throw new ServletException("Init parameter minSize must not be negative: " + minSize);
+        }
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new ServletException("Init parameter level must be between 0 and 9: " + level);
+        }
+        if (poolSize < 1) {
+            throw new ServletException("Init parameter poolSize must be positive: " + poolSize);
+        }
+        this.contentTypes = ContentTypeMatcher.parse(contentTypesValue);
+        this.deflaterPool = new DeflaterPool(level, poolSize);
+        this.bufferPool = new BodyBufferPool(DEFLATE_BUFFER_SIZE, poolSize);
+    }
+
+    private static int parseInt(FilterConfig filterConfig, String name)
+        throws ServletException {
+        String value = filterConfig.getInitParameter(name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ServletException("Init parameter " + name + " is not an integer: " + value, e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            chain.doFilter(request, response);
+            // 分派的处理返回后容器结束响应，在这之前结束压缩
+            CompressionResponseWrapper wrapper = (CompressionResponseWrapper) request.getAttribute(WRAPPER_ATTRIBUTE);
+            if (wrapper != null && !request.isAsyncStarted()) {
+                wrapper.finish(false);
+            }
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+        String encoding = null;
+        if (!"HEAD".equals(httpRequest.getMethod())) {
+            if (HttpServletMx.acceptsEncoding(httpRequest, "gzip")) {
+                encoding = "gzip";
+            } else if (HttpServletMx.acceptsEncoding(httpRequest, "deflate")) {
+                encoding = "deflate";
+            }
+        }
+        CompressionResponseWrapper wrapper = new CompressionResponseWrapper((HttpServletResponse) response, encoding, minSize, contentTypes,
+            deflaterPool, bufferPool);
+        boolean failed = true;
+        try {
+            chain.doFilter(new FinishingRequestWrapper(httpRequest, () -> wrapper.finish(false)), wrapper);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                wrapper.stopBuffering();
+                request.setAttribute(WRAPPER_ATTRIBUTE, wrapper);
+            }
+            // 处理抛出异常时丢弃缓冲的内容，由容器输出错误页
+            AsyncCompletion.afterChain(request, failed, wrapper::finish);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (deflaterPool != null) {
+            deflaterPool.close();
+        }
+    }
+
+    /**
+     * 压缩的最小字节数。
+     *
+     * @return 字节数。
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * 压缩的内容类型白名单。
+     *
+     * @return 白名单。
+     */
+    public String getContentTypes() {
+        return contentTypesValue;
+    }
+
+    /**
+     * 压缩级别。
+     *
+     * @return 压缩级别。
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 最多保留的 {@link Deflater} 数量。
+     *
+     * @return 数量。
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * 压缩响应内容的 HTTP 响应包装。
+ * 先缓冲不超过下限的内容，内容达到下限、后续处理刷新输出或处理完成时决定是否压缩，决定后不再缓冲。
+ */
+final class CompressionResponseWrapper
+    extends HttpServletResponseWrapper {
+    /**
+     * 初始缓冲区大小。
+     */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /**
+     * gzip 头，不带文件名和修改时间。
+     */
+    private static final byte[] GZIP_HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    /**
+     * zlib 头，默认压缩级别，不带预置字典。
+     */
+    private static final byte[] ZLIB_HEADER = {
+        0x78, (byte) 0x9c
+    };
+
+    /**
+     * 还在缓冲，未决定是否压缩。
+     */
+    private static final int BUFFERING = 0;
+
+    /**
+     * 不压缩，直接写入原响应。
+     */
+    private static final int IDENTITY = 1;
+
+    /**
+     * 压缩后写入原响应。
+     */
+    private static final int COMPRESSING = 2;
+
+    /**
+     * 压缩已结束。
+     */
+    private static final int FINISHED = 3;
+
+    /**
+     * 内容编码，gzip 或 deflate，为 null 时不压缩。
+     */
+    @Nullable
+    private final String encoding;
+
+    private final int minSize;
+
+    private final ContentTypeMatcher contentTypes;
+
+    private final DeflaterPool deflaterPool;
+
+    private final BodyBufferPool bufferPool;
+
+    private int state = BUFFERING;
+
+    private byte[] buffer;
+
+    private int length;
+
+    /**
+     * 后续处理设置的内容长度，缓冲时推迟到输出时设置，-1 表示未设置。
+     */
+    private long contentLength = -1;
+
+    private Deflater deflater;
+
+    private Checksum checksum;
+
+    private long inputLength;
+
+    private byte[] deflateBuffer;
+
+    /**
+     * 原响应的输出流，决定是否压缩后或调用 sendError、sendRedirect 后第一次输出时获取。
+     */
+    private ServletOutputStream target;
+
+    private CompressionOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    /**
+     * 包装响应。
+     *
+     * @param response
+     *     原响应。
+     * @param encoding
+     *     客户端接受的内容编码，gzip 或 deflate，为 null 时不压缩。
+     * @param minSize
+     *     压缩的最小字节数，不小于 0。
+     * @param contentTypes
+     *     压缩的内容类型。
+     * @param deflaterPool
+     *     {@link Deflater} 池。
+     * @param bufferPool
+     *     压缩输出缓冲区池。
+     */
+    CompressionResponseWrapper(@Nonnull HttpServletResponse response, @Nullable String encoding, int minSize,
+        @Nonnull ContentTypeMatcher contentTypes, @Nonnull DeflaterPool deflaterPool, @Nonnull BodyBufferPool bufferPool) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.contentTypes = contentTypes;
+        this.deflaterPool = deflaterPool;
+        this.bufferPool = bufferPool;
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, minSize)];
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream()
+        throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response.");
+        }
+        return compressionOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter()
+        throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response.");
+            }
+            Charset charset = Charset.forName(getCharacterEncoding());
+            writer = new PrintWriter(new EncodingWriter(compressionOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    private CompressionOutputStream compressionOutputStream() {
+        if (outputStream == null) {
+            outputStream = new CompressionOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (state == BUFFERING) {
+            this.contentLength = len;
+        } else if (state == IDENTITY) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer()
+        throws IOException {
+        flushContent();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (state == BUFFERING) {
+            length = 0;
+        } else if (state == COMPRESSING) {
+            // 原响应中已写入的压缩内容被清除，重新开始压缩
+            deflater.reset();
+            checksum.reset();
+            inputLength = 0;
+            try {
+                writeHeader();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        releaseDeflater();
+        state = BUFFERING;
+        length = 0;
+        contentLength = -1;
+        if (buffer == null) {
+            buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, minSize)];
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg)
+        throws IOException {
+        bypass();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc)
+        throws IOException {
+        bypass();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location)
+        throws IOException {
+        bypass();
+        super.sendRedirect(location);
+    }
+
+    private void bypass() {
+        releaseDeflater();
+        state = IDENTITY;
+        buffer = null;
+        length = 0;
+    }
+
+    /**
+     * 不再缓冲，把已缓冲的内容不压缩直接写入原响应。已开始压缩时不做处理。
+     * 后续处理开始异步处理时调用，异步写入的内容不压缩。
+     *
+     * @throws IOException
+     *     写入失败。
+     */
+    synchronized void stopBuffering()
+        throws IOException {
+        if (state == BUFFERING) {
+            startIdentity(contentLength);
+        }
+    }
+
+    /**
+     * 处理完成，输出缓冲的内容或结束压缩，归还 {@link Deflater}。
+     * 异步处理完成前和完成后都可能调用，已结束时不做处理。
+     *
+     * @param failed
+     *     处理是否失败，失败时丢弃缓冲的内容。
+     * @throws IOException
+     *     写入失败。
+     */
+    synchronized void finish(boolean failed)
+        throws IOException {
+        if (failed) {
+            releaseDeflater();
+            return;
+        }
+        if (state == BUFFERING) {
+            decide(true);
+        }
+        if (state == COMPRESSING) {
+            finishCompression();
+        }
+    }
+
+    /**
+     * 是否已决定压缩。
+     *
+     * @return 是否压缩。
+     */
+    boolean isCompressing() {
+        return state == COMPRESSING || state == FINISHED;
+    }
+
+    /**
+     * 决定是否压缩。
+     *
+     * @param complete
+     *     是否已缓冲全部内容，是时按缓冲的字节数判断，否则按后续处理设置的内容长度判断，未设置时压缩。
+     */
+    private void decide(boolean complete)
+        throws IOException {
+        boolean compressible = isCompressible();
+        if (compressible) {
+            addVary();
+        }
+        long size = complete ? length : contentLength;
+        if (compressible && encoding != null && (size < 0 || size >= minSize)) {
+            startCompression();
+        } else {
+            startIdentity(complete ? length : contentLength);
+        }
+    }
+
+    private boolean isCompressible() {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        int status = response.getStatus();
+        if (status < HttpServletResponse.SC_OK || status >= HttpServletResponse.SC_MULTIPLE_CHOICES || status == HttpServletResponse.SC_NO_CONTENT
+            || status == HttpServletResponse.SC_PARTIAL_CONTENT) {
+            return false;
+        }
+        if (response.containsHeader(HttpHeaders.CONTENT_ENCODING) || response.containsHeader(HttpHeaders.CONTENT_RANGE)) {
+            return false;
+        }
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && StringUtils.containsIgnoreCase(cacheControl, "no-transform")) {
+            return false;
+        }
+        return contentTypes.matches(response.getContentType());
+    }
+
+    private void addVary() {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        for (String vary : response.getHeaders(HttpHeaders.VARY)) {
+            if (StringUtils.containsIgnoreCase(vary, HttpHeaders.ACCEPT_ENCODING) || "*".equals(vary.trim())) {
+                return;
+            }
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private void startIdentity(long declaredLength)
+        throws IOException {
+        state = IDENTITY;
+        if (declaredLength >= 0) {
+            super.setContentLengthLong(declaredLength);
+        }
+        target = getResponse().getOutputStream();
+        if (length > 0) {
+            target.write(buffer, 0, length);
+        }
+        buffer = null;
+        length = 0;
+    }
+
+    private void startCompression()
+        throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        state = COMPRESSING;
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        // 压缩后的内容与原内容不是逐字节相同，强 ETag 改为弱 ETag
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (etag != null && etag.startsWith("\"")) {
+            response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+        }
+        deflater = deflaterPool.acquire();
+        checksum = "gzip".equals(encoding) ? new CRC32() : new Adler32();
+        deflateBuffer = bufferPool.acquire();
+        target = response.getOutputStream();
+        writeHeader();
+        if (length > 0) {
+            compress(buffer, 0, length);
+        }
+        buffer = null;
+        length = 0;
+    }
+
+    private void writeHeader()
+        throws IOException {
+        target.write("gzip".equals(encoding) ? GZIP_HEADER : ZLIB_HEADER);
+    }
+
+    private void compress(byte[] b, int off, int len)
+        throws IOException {
+        if (len == 0) {
+            return;
+        }
+        checksum.update(b, off, len);
+        inputLength += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            int count = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.NO_FLUSH);
+            if (count > 0) {
+                target.write(deflateBuffer, 0, count);
+            }
+        }
+    }
+
+    private void syncFlush()
+        throws IOException {
+        int count;
+        do {
+            count = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+            if (count > 0) {
+                target.write(deflateBuffer, 0, count);
+            }
+        } while (count == deflateBuffer.length);
+    }
+
+    private void finishCompression()
+        throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            int count = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+            if (count > 0) {
+                target.write(deflateBuffer, 0, count);
+            }
+        }
+        long value = checksum.getValue();
+        byte[] trailer;
+        if ("gzip".equals(encoding)) {
+            // CRC32 和原内容长度，小端序
+            trailer = new byte[] {
+                (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24), (byte) inputLength, (byte) (inputLength >> 8),
+                (byte) (inputLength >> 16), (byte) (inputLength >> 24)
+            };
+        } else {
+            // Adler32，大端序
+            trailer = new byte[] {
+                (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value
+            };
+        }
+        target.write(trailer);
+        releaseDeflater();
+        state = FINISHED;
+    }
+
+    private void releaseDeflater() {
+        if (deflater != null) {
+            deflaterPool.release(deflater);
+            bufferPool.release(deflateBuffer);
+            deflater = null;
+            deflateBuffer = null;
+        }
+    }
+
+    private void buffer(byte[] b, int off, int len)
+        throws IOException {
+        if (length + len >= minSize) {
+            decide(false);
+            write(b, off, len);
+            return;
+        }
+        if (length + len > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, length + len), minSize));
+        }
+        System.arraycopy(b, off, buffer, length, len);
+        length += len;
+    }
+
+    private ServletOutputStream target()
+        throws IOException {
+        if (target == null) {
+            target = getResponse().getOutputStream();
+        }
+        return target;
+    }
+
+    /**
+     * 输出已写入的内容，后续处理需要立即输出，内容长度未知时按需要压缩处理。
+     */
+    private void flushContent()
+        throws IOException {
+        if (state == BUFFERING) {
+            decide(false);
+        }
+        if (state == COMPRESSING) {
+            syncFlush();
+        }
+        target().flush();
+    }
+
+    private void write(byte[] b, int off, int len)
+        throws IOException {
+        switch (state) {
+        case BUFFERING:
+            buffer(b, off, len);
+            break;
+        case COMPRESSING:
+            compress(b, off, len);
+            break;
+        case FINISHED:
+            throw new IOException("Compressed response has already been finished");
+        default:
+            target().write(b, off, len);
+            break;
+        }
+    }
+
+    /**
+     * 缓冲或压缩内容的输出流。
+     */
+    private final class CompressionOutputStream
+        extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b)
+            throws IOException {
+            if (state == IDENTITY) {
+                target().write(b);
+            } else {
+                single[0] = (byte) b;
+                CompressionResponseWrapper.this.write(single, 0, 1);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException {
+            CompressionResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush()
+            throws IOException {
+            flushContent();
+        }
+
+        @Override
+        public void close()
+            throws IOException {
+            if (state == BUFFERING) {
+                decide(true);
+            }
+            if (state == COMPRESSING) {
+                finishCompression();
+            }
+            target().close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target == null || target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // 非阻塞输出时不压缩
+            if (state == COMPRESSING) {
+                throw new IllegalStateException("Non-blocking output is not supported after compression started");
+            }
+            try {
+                stopBuffering();
+                target().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 内容类型白名单。
+ * 逗号或空白分隔，不区分大小写，支持 <code>text/*</code> 形式的通配和匹配所有类型的 <code>*&#47;*</code>，忽略内容类型中的参数。
+ */
+@Immutable
+final class ContentTypeMatcher {
+    private final String[] exactTypes;
+
+    private final String[] typePrefixes;
+
+    private final boolean all;
+
+    private ContentTypeMatcher(String[] exactTypes, String[] typePrefixes, boolean all) {
+        this.exactTypes = exactTypes;
+        this.typePrefixes = typePrefixes;
+        this.all = all;
+    }
+
+    /**
+     * 解析白名单。
+     *
+     * @param value
+     *     白名单，例如 <code>text/*,application/json</code>。
+     * @return 白名单。
+     */
+    @Nonnull
+    static ContentTypeMatcher parse(@Nonnull String value) {
+        String[] items = StringUtils.split(value.toLowerCase(Locale.ROOT), ", \t\r\n");
+        int exactCount = 0;
+        int prefixCount = 0;
+        boolean all = false;
+        String[] exactTypes = new String[items.length];
+        String[] typePrefixes = new String[items.length];
+        for (String item : items) {
+            if ("*/*".equals(item) || "*".equals(item)) {
+                all = true;
+            } else if (item.endsWith("/*")) {
+                typePrefixes[prefixCount++] = item.substring(0, item.length() - 1);
+            } else {
+                exactTypes[exactCount++] = item;
+            }
+        }
+        String[] exact = new String[exactCount];
+        System.arraycopy(exactTypes, 0, exact, 0, exactCount);
+        String[] prefixes = new String[prefixCount];
+        System.arraycopy(typePrefixes, 0, prefixes, 0, prefixCount);
+        return new ContentTypeMatcher(exact, prefixes, all);
+    }
+
+    /**
+     * 判断内容类型是否在白名单中。
+     *
+     * @param contentType
+     *     内容类型，可以带参数。
+     * @return 是否在白名单中，内容类型为空时返回 false。
+     */
+    boolean matches(@Nullable String contentType) {
+        if (StringUtils.isBlank(contentType)) {
+            return false;
+        }
+        if (all) {
+            return true;
+        }
+
+        int end = contentType.indexOf(';');
+        String mimeType = (end < 0 ? contentType : contentType.substring(0, end)).trim();
+        for (String type : exactTypes) {
+            if (type.equalsIgnoreCase(mimeType)) {
+                return true;
+            }
+        }
+        for (String prefix : typePrefixes) {
+            if (mimeType.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
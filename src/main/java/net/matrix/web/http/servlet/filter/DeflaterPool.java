@@ -0,0 +1,83 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 压缩响应内容时使用的 {@link Deflater} 池。
+ * 池中最多保留固定数量的实例，池空时临时创建，池满时归还的实例直接释放本地内存。
+ * 实例输出不带 zlib 头和校验的原始 deflate 数据，gzip 和 zlib 格式的头和校验由调用者写入。
+ */
+@ThreadSafe
+final class DeflaterPool {
+    private final int level;
+
+    private final ArrayBlockingQueue<Deflater> deflaters;
+
+    /**
+     * 构造。
+     *
+     * @param level
+     *     压缩级别。
+     * @param poolSize
+     *     最多保留的实例数量。
+     */
+    DeflaterPool(int level, int poolSize) {
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * 取得实例。
+     *
+     * @return 实例。
+     */
+    @Nonnull
+    Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        return deflater;
+    }
+
+    /**
+     * 归还实例。
+     *
+     * @param deflater
+     *     由 {@link #acquire()} 取得的实例。
+     */
+    void release(@Nonnull Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 池中的实例数量。
+     *
+     * @return 数量。
+     */
+    int size() {
+        return deflaters.size();
+    }
+
+    /**
+     * 释放池中所有实例的本地内存。
+     */
+    void close() {
+        Deflater deflater = deflaters.poll();
+        while (deflater != null) {
+            deflater.end();
+            deflater = deflaters.poll();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 请求内容快照的输出格式。
+ */
+interface DumpRenderer {
+    /**
+     * 格式化请求内容快照，追加到缓冲区末尾。
+     *
+     * @param dump
+     *     请求内容快照。
+     * @param out
+     *     缓冲区。
+     */
+    void render(@Nonnull RequestDump dump, @Nonnull StringBuilder out);
+}
@@ -0,0 +1,182 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 请求内容快照中的一节，对应输出中的一张表格或一行消息。
+ * 创建后不再修改，可以安全地交给其它线程格式化。
+ */
+@Immutable
+final class DumpSection {
+    /**
+     * 节类型。
+     */
+    enum Kind {
+        /**
+         * 字符串名值表。
+         */
+        STRING_MAP,
+        /**
+         * 对象名值表，记录对象类型。
+         */
+        OBJECT_MAP,
+        /**
+         * 单行消息。
+         */
+        MESSAGE
+    }
+
+    private static final String[] EMPTY = new String[0];
+
+    @Nonnull
+    final Kind kind;
+
+    /**
+     * 结构化输出时使用的名称。
+     */
+    @Nonnull
+    final String key;
+
+    /**
+     * 同名的节是否可以出现多次，结构化输出时合并为数组。
+     */
+    final boolean repeated;
+
+    @Nonnull
+    final String title;
+
+    @Nonnull
+    final String[] names;
+
+    /**
+     * 对象类型名，仅 {@link Kind#OBJECT_MAP} 使用。
+     */
+    @Nonnull
+    final String[] classNames;
+
+    /**
+     * 值，可以为 null。{@link Kind#MESSAGE} 只有一个值。
+     */
+    @Nonnull
+    final String[] values;
+
+    /**
+     * 从属于本节的节，例如各部分的头信息。结构化输出时以其名称为键嵌入本节，表格输出时紧接在本节之后。
+     */
+    @Nullable
+    final DumpSection detail;
+
+    private DumpSection(Kind kind, String key, boolean repeated, String title, String[] names, String[] classNames, String[] values,
+        DumpSection detail) {
+        this.kind = kind;
+        this.key = key;
+        this.repeated = repeated;
+        this.title = title;
+        this.names = names;
+        this.classNames = classNames;
+        this.values = values;
+        this.detail = detail;
+    }
+
+    /**
+     * 构造字符串名值表。数组归属于新对象，调用者不能再修改。
+     *
+     * @param key
+     *     结构化输出时使用的名称。
+     * @param title
+     *     标题。
+     * @param names
+     *     名称。
+     * @param values
+     *     值。
+     * @return 节。
+     */
+    @Nonnull
+    static DumpSection ofStrings(@Nonnull String key, @Nonnull String title, @Nonnull String[] names, @Nonnull String[] values) {
+        return new DumpSection(Kind.STRING_MAP, key, false, title, names, EMPTY, values, null);
+    }
+
+    /**
+     * 构造可以出现多次的字符串名值表，例如每个 Cookie 一张表。数组归属于新对象，调用者不能再修改。
+     *
+     * @param key
+     *     结构化输出时使用的名称。
+     * @param title
+     *     标题。
+     * @param names
+     *     名称。
+     * @param values
+     *     值。
+     * @return 节。
+     */
+    @Nonnull
+    static DumpSection ofRepeatedStrings(@Nonnull String key, @Nonnull String title, @Nonnull String[] names, @Nonnull String[] values) {
+        return new DumpSection(Kind.STRING_MAP, key, true, title, names, EMPTY, values, null);
+    }
+
+    /**
+     * 构造对象名值表。数组归属于新对象，调用者不能再修改。
+     *
+     * @param key
+     *     结构化输出时使用的名称。
+     * @param title
+     *     标题。
+     * @param names
+     *     名称。
+     * @param classNames
+     *     对象类型名。
+     * @param values
+     *     对象字符串形式。
+     * @return 节。
+     */
+    @Nonnull
+    static DumpSection ofObjects(@Nonnull String key, @Nonnull String title, @Nonnull String[] names, @Nonnull String[] classNames,
+        @Nonnull String[] values) {
+        return new DumpSection(Kind.OBJECT_MAP, key, false, title, names, classNames, values, null);
+    }
+
+    /**
+     * 构造单行消息。结构化输出时值为 null，表示该部分不存在。
+     *
+     * @param key
+     *     结构化输出时使用的名称。
+     * @param title
+     *     标题。
+     * @param message
+     *     消息。
+     * @return 节。
+     */
+    @Nonnull
+    static DumpSection ofMessage(@Nonnull String key, @Nonnull String title, @Nullable String message) {
+        return new DumpSection(Kind.MESSAGE, key, false, title, EMPTY, EMPTY, new String[] {
+            message
+        }, null);
+    }
+
+    /**
+     * 构造带有从属节的副本。
+     *
+     * @param detail
+     *     从属节。
+     * @return 节。
+     */
+    @Nonnull
+    DumpSection withDetail(@Nonnull DumpSection detail) {
+        return new DumpSection(kind, key, repeated, title, names, classNames, values, detail);
+    }
+
+    /**
+     * 名值对数量。
+     *
+     * @return 数量。
+     */
+    int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 每次写入都立即编码并写入字节输出流的字符输出，不缓冲已编码的字节。
+ * 响应包装的字节输出流负责计数、缓冲或压缩，字符输出如果自带缓冲，未刷新的内容在包装看来不存在，异步处理完成或重置响应时会丢失或计错。
+ * 只有被拆开写入的代理对的高位部分会留到下一次写入。
+ */
+@NotThreadSafe
+final class EncodingWriter
+    extends Writer {
+    private static final int BUFFER_SIZE = 1024;
+
+    private final OutputStream out;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer bytes;
+
+    private char highSurrogate;
+
+    private boolean hasHighSurrogate;
+
+    /**
+     * 构造字符输出。
+     *
+     * @param out
+     *     字节输出流。
+     * @param charset
+     *     字符集。
+     */
+    EncodingWriter(@Nonnull OutputStream out, @Nonnull Charset charset) {
+        this.out = out;
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(int c)
+        throws IOException {
+        write(new char[] {
+            (char) c
+        }, 0, 1);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len)
+        throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len)
+        throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len));
+    }
+
+    @Override
+    public void flush()
+        throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+        CharBuffer in = CharBuffer.allocate(0);
+        if (hasHighSurrogate) {
+            in = CharBuffer.wrap(new char[] {
+                highSurrogate
+            });
+            hasHighSurrogate = false;
+        }
+        encoder.encode(in, bytes, true);
+        drain();
+        encoder.flush(bytes);
+        drain();
+        out.close();
+    }
+
+    private void encode(CharBuffer in)
+        throws IOException {
+        if (hasHighSurrogate) {
+            hasHighSurrogate = false;
+            CharBuffer joined = CharBuffer.allocate(in.remaining() + 1);
+            joined.put(highSurrogate).put(in).flip();
+            in = joined;
+        }
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, false);
+            drain();
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        if (in.hasRemaining()) {
+            highSurrogate = in.get();
+            hasHighSurrogate = true;
+        }
+    }
+
+    private void drain()
+        throws IOException {
+        if (bytes.position() > 0) {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.HttpServletMx;
+
+/**
+ * 为 GET 请求的响应生成 ETag。
+ * 缓冲响应内容并在写入时增量计算摘要，处理完成后设置强 ETag，通过 {@link HttpServletMx#checkIfNoneMatchEtag} 判断客户端缓存是否有效，
+ * 有效时返回 304，不输出内容。
+ * 支持以下初始化参数：
+ * <ul>
+ * <li><strong>maxBufferSize</strong> - 最多缓冲的响应内容字节数，默认 65536。超过后已缓冲的内容立即输出，之后直接输出，不设置 ETag。</li>
+ * </ul>
+ * <p>
+ * 只处理状态为 200 的响应；后续处理已设置 ETag、调用了 sendError 或 sendRedirect、开始异步处理或非阻塞输出时，直接输出缓冲的内容。
+ * 后续处理调用 {@link ServletResponse#flushBuffer()} 不会提交响应。
+ */
+public class EtagFilter
+    implements Filter {
+    /**
+     * 默认最多缓冲的字节数。
+     */
+    private static final int DEFAULT_MAX_BUFFER_SIZE = 65536;
+
+    private int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("maxBufferSize"))) {
+            this.maxBufferSize = Integer.parseInt(filterConfig.getInitParameter("maxBufferSize"));
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)
+            || request.getDispatcherType() == DispatcherType.ASYNC) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (!"GET".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        EtagResponseWrapper wrapper = new EtagResponseWrapper(httpResponse, maxBufferSize);
+        // 处理抛出异常时丢弃缓冲的内容，由容器输出错误页
+        chain.doFilter(request, wrapper);
+        if (request.isAsyncStarted()) {
+            // 异步处理的内容在过滤器返回后才写入
+            wrapper.startStreaming();
+            return;
+        }
+        if (!wrapper.isBuffered() || wrapper.isBypassed() || httpResponse.getStatus() != HttpServletResponse.SC_OK
+            || httpResponse.containsHeader(HttpHeaders.ETAG)) {
+            wrapper.startStreaming();
+            return;
+        }
+
+        String etag = wrapper.getEtag();
+        if (HttpServletMx.checkIfNoneMatchEtag(httpRequest, httpResponse, etag)) {
+            wrapper.writeBuffered();
+        }
+    }
+
+    /**
+     * 最多缓冲的字节数。
+     *
+     * @return 字节数。
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * 缓冲响应内容并在写入时增量计算摘要的 HTTP 响应包装。
+ * 缓冲内容超过上限后，把已缓冲的内容写入原响应，之后直接写入原响应，不再计算摘要。
+ * 字符输出逐次编码写入，开始直接写入后，异步处理写入的字符不会滞留在包装中。
+ */
+final class EtagResponseWrapper
+    extends HttpServletResponseWrapper {
+    /**
+     * 摘要算法，非加密的 128 位 MurmurHash3。
+     */
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * 初始缓冲区大小。
+     */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final int maxBufferSize;
+
+    private byte[] buffer;
+
+    private int length;
+
+    private Hasher hasher = HASH_FUNCTION.newHasher();
+
+    /**
+     * 是否已改为直接写入原响应。
+     */
+    private boolean streaming;
+
+    /**
+     * 是否调用了 sendError 或 sendRedirect，缓冲的内容不再输出。
+     */
+    private boolean bypassed;
+
+    /**
+     * 后续处理设置的内容长度，缓冲时推迟到输出时设置，-1 表示未设置。
+     */
+    private long contentLength = -1;
+
+    /**
+     * 原响应的输出流，开始直接写入后获取。
+     */
+    private ServletOutputStream target;
+
+    private BufferingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    /**
+     * 包装响应。
+     *
+     * @param response
+     *     原响应。
+     * @param maxBufferSize
+     *     最多缓冲的字节数。
+     */
+    EtagResponseWrapper(@Nonnull HttpServletResponse response, int maxBufferSize) {
+        super(response);
+        this.maxBufferSize = maxBufferSize;
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, Math.max(maxBufferSize, 0))];
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream()
+        throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response.");
+        }
+        return bufferingOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter()
+        throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response.");
+            }
+            Charset charset = Charset.forName(getCharacterEncoding());
+            writer = new PrintWriter(new EncodingWriter(bufferingOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    private BufferingOutputStream bufferingOutputStream() {
+        if (outputStream == null) {
+            outputStream = new BufferingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (streaming) {
+            super.setContentLengthLong(len);
+        } else {
+            this.contentLength = len;
+        }
+    }
+
+    @Override
+    public void flushBuffer()
+        throws IOException {
+        // 缓冲时忽略，提交响应后不能再设置 ETag
+        if (streaming) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (!streaming) {
+            clearBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (!streaming) {
+            clearBuffer();
+            contentLength = -1;
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg)
+        throws IOException {
+        bypass();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc)
+        throws IOException {
+        bypass();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location)
+        throws IOException {
+        bypass();
+        super.sendRedirect(location);
+    }
+
+    private void bypass() {
+        bypassed = true;
+        streaming = true;
+        buffer = null;
+        length = 0;
+        hasher = null;
+    }
+
+    private void clearBuffer() {
+        length = 0;
+        hasher = HASH_FUNCTION.newHasher();
+    }
+
+    /**
+     * 是否缓冲了全部响应内容，可以计算 ETag。
+     *
+     * @return 是否缓冲了全部内容。
+     */
+    boolean isBuffered() {
+        return !streaming;
+    }
+
+    /**
+     * 缓冲内容的强 ETag。
+     *
+     * @return ETag，没有缓冲全部内容时返回 null。
+     */
+    @Nullable
+    String getEtag() {
+        if (streaming) {
+            return null;
+        }
+        return "\"" + hasher.hash() + '"';
+    }
+
+    /**
+     * 改为直接写入原响应，把已缓冲的内容和推迟的内容长度写入原响应。
+     *
+     * @throws IOException
+     *     写入失败。
+     */
+    void startStreaming()
+        throws IOException {
+        if (!streaming) {
+            release(contentLength);
+        }
+    }
+
+    /**
+     * 把缓冲的内容写入原响应，内容长度设置为缓冲的字节数。
+     *
+     * @throws IOException
+     *     写入失败。
+     */
+    void writeBuffered()
+        throws IOException {
+        if (!streaming) {
+            release(length);
+        }
+    }
+
+    private void release(long declaredLength)
+        throws IOException {
+        streaming = true;
+        if (declaredLength >= 0) {
+            super.setContentLengthLong(declaredLength);
+        }
+        target = getResponse().getOutputStream();
+        if (length > 0) {
+            target.write(buffer, 0, length);
+        }
+        buffer = null;
+        length = 0;
+        hasher = null;
+    }
+
+    private ServletOutputStream target()
+        throws IOException {
+        if (target == null) {
+            target = getResponse().getOutputStream();
+        }
+        return target;
+    }
+
+    /**
+     * 是否调用了 sendError 或 sendRedirect。
+     *
+     * @return 是否调用。
+     */
+    boolean isBypassed() {
+        return bypassed;
+    }
+
+    private void buffer(byte[] b, int off, int len)
+        throws IOException {
+        if (length + len > maxBufferSize) {
+            startStreaming();
+            target.write(b, off, len);
+            return;
+        }
+        if (length + len > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, length + len), maxBufferSize));
+        }
+        System.arraycopy(b, off, buffer, length, len);
+        length += len;
+        hasher.putBytes(b, off, len);
+    }
+
+    /**
+     * 写入缓冲区的输出流。
+     */
+    private final class BufferingOutputStream
+        extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b)
+            throws IOException {
+            if (streaming) {
+                target().write(b);
+            } else {
+                single[0] = (byte) b;
+                buffer(single, 0, 1);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException {
+            if (streaming) {
+                target().write(b, off, len);
+            } else {
+                buffer(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush()
+            throws IOException {
+            if (streaming) {
+                target().flush();
+            }
+        }
+
+        @Override
+        public void close()
+            throws IOException {
+            if (streaming) {
+                target().close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return target == null || target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // 非阻塞输出时不能推迟输出
+            try {
+                startStreaming();
+                target().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
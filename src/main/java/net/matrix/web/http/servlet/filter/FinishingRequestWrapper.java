@@ -0,0 +1,166 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.annotation.Nonnull;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * 在后续处理调用 {@link AsyncContext#complete()} 时先执行收尾工作的 HTTP 请求包装。
+ * 容器在 complete() 之后结束响应，{@link AsyncListener#onComplete} 执行时响应可能已经发送完毕，需要写入响应的收尾工作要在这之前完成。
+ */
+final class FinishingRequestWrapper
+    extends HttpServletRequestWrapper {
+    /**
+     * 收尾工作。
+     */
+    @FunctionalInterface
+    interface Finisher {
+        /**
+         * 执行收尾工作，可能执行多次。
+         *
+         * @throws IOException
+         *     写入失败。
+         */
+        void finish()
+            throws IOException;
+    }
+
+    private final Finisher finisher;
+
+    private volatile FinishingAsyncContext asyncContext;
+
+    /**
+     * 包装请求。
+     *
+     * @param request
+     *     原请求。
+     * @param finisher
+     *     收尾工作。
+     */
+    FinishingRequestWrapper(@Nonnull HttpServletRequest request, @Nonnull Finisher finisher) {
+        super(request);
+        this.finisher = finisher;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        return wrap(super.startAsync());
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        return wrap(super.startAsync(servletRequest, servletResponse));
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        return wrap(super.getAsyncContext());
+    }
+
+    private AsyncContext wrap(AsyncContext context) {
+        FinishingAsyncContext current = asyncContext;
+        if (current == null || current.delegate != context) {
+            current = new FinishingAsyncContext(context);
+            asyncContext = current;
+        }
+        return current;
+    }
+
+    /**
+     * 完成前执行收尾工作的异步上下文。
+     */
+    private final class FinishingAsyncContext
+        implements AsyncContext {
+        private final AsyncContext delegate;
+
+        FinishingAsyncContext(AsyncContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void complete() {
+            try {
+                finisher.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                delegate.complete();
+            }
+        }
+
+        @Override
+        public ServletRequest getRequest() {
+            return delegate.getRequest();
+        }
+
+        @Override
+        public ServletResponse getResponse() {
+            return delegate.getResponse();
+        }
+
+        @Override
+        public boolean hasOriginalRequestAndResponse() {
+            return delegate.hasOriginalRequestAndResponse();
+        }
+
+        @Override
+        public void dispatch() {
+            delegate.dispatch();
+        }
+
+        @Override
+        public void dispatch(String path) {
+            delegate.dispatch(path);
+        }
+
+        @Override
+        public void dispatch(ServletContext context, String path) {
+            delegate.dispatch(context, path);
+        }
+
+        @Override
+        public void start(Runnable run) {
+            delegate.start(run);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener) {
+            delegate.addListener(listener);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+            delegate.addListener(listener, servletRequest, servletResponse);
+        }
+
+        @Override
+        public <T extends AsyncListener> T createListener(Class<T> clazz)
+            throws ServletException {
+            return delegate.createListener(clazz);
+        }
+
+        @Override
+        public void setTimeout(long timeout) {
+            delegate.setTimeout(timeout);
+        }
+
+        @Override
+        public long getTimeout() {
+            return delegate.getTimeout();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 每个不同的 URI 每分钟只输出前若干个请求。
+ * 记录的 URI 数量有上限，超出上限的新 URI 在本分钟内不输出。
+ */
+@ThreadSafe
+final class FirstPerUriSampler
+    implements RequestSampler {
+    /**
+     * 统计周期。
+     */
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int limit;
+
+    private final int maxUris;
+
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    private final AtomicLong windowStart;
+
+    /**
+     * 构造。
+     *
+     * @param limit
+     *     每个 URI 每分钟输出数量。
+     * @param maxUris
+     *     每分钟记录的 URI 数量上限。
+     * @param nanoTime
+     *     当前 {@link System#nanoTime()}，作为第一个周期的开始时间。
+     */
+    FirstPerUriSampler(int limit, int maxUris, long nanoTime) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit: " + limit);
+        }
+        this.limit = limit;
+        this.maxUris = maxUris;
+        this.windowStart = new AtomicLong(nanoTime);
+    }
+
+    @Override
+    public boolean sample(@Nonnull String uri, long nanoTime) {
+        long start = windowStart.get();
+        if (nanoTime - start >= WINDOW_NANOS && windowStart.compareAndSet(start, nanoTime)) {
+            counts.clear();
+        }
+
+        AtomicInteger count = counts.get(uri);
+        if (count == null) {
+            if (counts.size() >= maxUris) {
+                return false;
+            }
+            count = counts.computeIfAbsent(uri, key -> new AtomicInteger());
+        }
+        // 达到上限后不再递增，避免计数溢出
+        if (count.get() >= limit) {
+            return false;
+        }
+        return count.incrementAndGet() <= limit;
+    }
+}
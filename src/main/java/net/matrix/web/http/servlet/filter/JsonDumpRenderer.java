@@ -0,0 +1,169 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 把请求内容快照格式化为一行 JSON（NDJSON），便于日志采集程序直接解析。
+ * 不计算列宽，字符串按不需要转义的连续片段整段追加。
+ * 可以出现多次的节（如 Cookie）合并为数组，从属的节（如各部分的头信息）嵌入所属的对象，不存在的部分（如未创建的会话）输出为 null。
+ */
+@ThreadSafe
+final class JsonDumpRenderer
+    implements DumpRenderer {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * JavaScript 中视为换行的字符，也需要转义。
+     */
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    @Override
+    public void render(@Nonnull RequestDump dump, @Nonnull StringBuilder out) {
+        List<DumpSection> sections = dump.getSections();
+        int size = sections.size();
+        out.append('{');
+        // 可以出现多次的节在第一次出现时已经全部输出，之后出现的位置在此标记
+        boolean[] merged = null;
+        boolean first = true;
+        for (int i = 0; i < size; ++i) {
+            DumpSection section = sections.get(i);
+            if (merged != null && merged[i]) {
+                continue;
+            }
+
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendString(out, section.key);
+            out.append(':');
+            if (section.repeated) {
+                out.append('[');
+                appendSection(out, section);
+                for (int j = i + 1; j < size; ++j) {
+                    DumpSection other = sections.get(j);
+                    if (other.key.equals(section.key)) {
+                        out.append(',');
+                        appendSection(out, other);
+                        if (merged == null) {
+                            merged = new boolean[size];
+                        }
+                        merged[j] = true;
+                    }
+                }
+                out.append(']');
+            } else {
+                appendSection(out, section);
+            }
+        }
+        out.append('}');
+    }
+
+    private static void appendSection(StringBuilder out, DumpSection section) {
+        switch (section.kind) {
+        case STRING_MAP:
+            out.append('{');
+            for (int i = 0; i < section.size(); ++i) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendString(out, section.names[i]);
+                out.append(':');
+                appendString(out, section.values[i]);
+            }
+            appendDetail(out, section);
+            out.append('}');
+            break;
+        case OBJECT_MAP:
+            out.append('{');
+            for (int i = 0; i < section.size(); ++i) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendString(out, section.names[i]);
+                out.append(":{\"class\":");
+                appendString(out, section.classNames[i]);
+                out.append(",\"value\":");
+                appendString(out, section.values[i]);
+                out.append('}');
+            }
+            appendDetail(out, section);
+            out.append('}');
+            break;
+        default:
+            out.append("null");
+            break;
+        }
+    }
+
+    private static void appendDetail(StringBuilder out, DumpSection section) {
+        DumpSection detail = section.detail;
+        if (detail != null) {
+            if (section.size() > 0) {
+                out.append(',');
+            }
+            appendString(out, detail.key);
+            out.append(':');
+            appendSection(out, detail);
+        }
+    }
+
+    /**
+     * 追加 JSON 字符串，null 输出为 null。
+     *
+     * @param out
+     *     缓冲区。
+     * @param value
+     *     字符串。
+     */
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char ch = value.charAt(i);
+            if (ch >= 0x20 && ch != '"' && ch != '\\' && ch != LINE_SEPARATOR && ch != PARAGRAPH_SEPARATOR) {
+                continue;
+            }
+
+            out.append(value, start, i);
+            switch (ch) {
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            default:
+                out.append("\\u").append(HEX[ch >> 12 & 0xF]).append(HEX[ch >> 8 & 0xF]).append(HEX[ch >> 4 & 0xF]).append(HEX[ch & 0xF]);
+                break;
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length);
+        out.append('"');
+    }
+}
@@ -5,16 +5,28 @@
 package net.matrix.web.http.servlet.filter;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -33,15 +45,67 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.ImmutableSet;
 
 import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.web.http.servlet.journal.JournalRecord;
+import net.matrix.web.http.servlet.journal.RequestJournal;
 
 /**
  * 输出请求内容到日志。
+ * 支持以下初始化参数：
+ * <ul>
+ * <li><strong>enable</strong> - 是否输出，默认 false。</li>
+ * <li><strong>hasRequest</strong>、<strong>hasResponse</strong>、<strong>hasSession</strong> - 是否输出请求、响应、会话内容，默认 true。</li>
+ * <li><strong>fields</strong> - 采集的请求内容，逗号分隔，形式见 {@link CapturePlan}，例如
+ * <code>Method,RequestURI,QueryString,headers,params</code>。默认采集除可能触发反向 DNS 解析的 RemoteHost、LocalName 以外的所有内容。</li>
+ * <li><strong>partsMode</strong> - multipart 请求各部分的采集方式，默认 parse。parse 调用 {@link HttpServletRequest#getParts()}，
+ * 容器会完整解析并缓存请求内容；header 只输出分隔符和 Content-Length，不读取请求内容；scan 在后续处理读取请求内容时复制前面有限的字节，
+ * 处理完成后从中解析各部分的头信息，不改变上传内容的流式读取，只在 after、slow 模式下有效，其它模式按 header 处理。</li>
+ * <li><strong>partsScanLimit</strong> - scan 方式复制的最大字节数，默认 8192。</li>
+ * <li><strong>captureBody</strong> - 是否输出请求、响应内容的前缀，默认 false。只在 after、slow 模式下有效。
+ * 后续处理读写内容时同时复制到池化的定长缓冲区，不预先读取，也不改变流式读写；由容器自行读取的表单内容不会被复制。</li>
+ * <li><strong>bodyMaxBytes</strong> - 每个请求、响应最多输出的内容字节数，默认 4096。</li>
+ * <li><strong>bodyContentTypes</strong> - 输出内容的内容类型白名单，逗号分隔，支持 <code>text/*</code> 形式的通配，默认
+ * <code>text/*,application/json,application/xml,application/x-www-form-urlencoded</code>。</li>
+ * <li><strong>valueMaxLength</strong> - 请求属性、会话属性的值输出的最大字符数，超出部分截断，默认 4096。</li>
+ * <li><strong>recordMaxLength</strong> - 每条记录中请求属性、会话属性的值输出的最大总字符数，默认 65536。</li>
+ * <li><strong>maxLength</strong> - 值的最大显示宽度，默认 100。</li>
+ * <li><strong>mode</strong> - 采集时机，默认 before。before 在后续处理之前采集并输出；after 在处理前采集请求，
+ * 处理完成后再采集最终的响应状态、响应头、写出字节数、会话和纳秒级耗时，可以同时作为访问日志和耗时统计；
+ * slow 只输出慢请求和出错的请求，处理前只记录请求方法、URI、查询字符串和客户端地址，确定输出时才读取其余内容并格式化；
+ * summary 不输出单个请求，按请求方法、路径模板和查询参数名汇总请求数量、响应状态和耗时，定期输出一张汇总表，
+ * 输出量只与请求形态的数量有关，不受抽样的影响，路径中的数字、UUID 等标识段替换为 <code>{id}</code>。</li>
+ * <li><strong>slowThresholdMillis</strong> - slow 模式下的耗时阈值，单位毫秒，默认 1000。</li>
+ * <li><strong>summaryIntervalSeconds</strong> - summary 模式下输出汇总表的间隔，单位秒，默认 60。</li>
+ * <li><strong>summaryMaxShapes</strong> - summary 模式下每个周期最多区分的请求形态数量，超出的计入 (other)，默认 1000。</li>
+ * <li><strong>sampling</strong> - 按请求路径抽样，形式见 {@link SamplingRules}，例如
+ * <code>/api/*=rate:0.01;/upload/*=perSecond:5;/*=firstPerUri:3</code>。默认输出所有请求。</li>
+ * <li><strong>format</strong> - 输出格式，table 为文本表格，json 为每个请求一行 JSON（NDJSON），默认 table。</li>
+ * <li><strong>async</strong> - 是否在后台线程中格式化和输出，默认 false。请求线程只采集快照。</li>
+ * <li><strong>asyncBufferSize</strong> - 异步输出缓冲区容量，默认 1024。</li>
+ * <li><strong>asyncOverflow</strong> - 异步输出缓冲区满时的处理策略，drop、sample 或 block，默认 drop。</li>
+ * <li><strong>asyncSampleRate</strong> - sample 策略下缓冲区超过一半时每多少条记录保留一条，默认 10。</li>
+ * <li><strong>output</strong> - 输出方式，逗号分隔，log 为输出到日志，jfr 为每个请求记录一条 JFR 事件 {@link RequestEvent}，
+ * journal 为每个请求追加一条二进制记录到 {@link RequestJournal}，默认 log。
+ * JFR 事件包含请求方法、URI、响应状态、写出字节数、会话标识，以及 JFR 自动记录的耗时和处理线程，
+ * 不受抽样和采集时机的影响，在 JFR 配置中启用 <code>net.matrix.web.HttpRequest</code> 时才记录。
+ * 二进制记录在处理完成后采集请求方法、URI、查询字符串、请求头、请求参数，以及 captureBody 为 true 时的请求内容前缀，
+ * 不受抽样的影响，可以用 {@link net.matrix.web.http.servlet.journal.JournalReplayer} 重放。</li>
+ * <li><strong>journalDirectory</strong> - 二进制记录的目录，输出方式包含 journal 时必须设置。</li>
+ * <li><strong>journalSegmentSize</strong> - 二进制记录分段文件的大小，默认 64MB。</li>
+ * <li><strong>journalMaxSegments</strong> - 最多保留的二进制记录分段文件数量，默认 16。</li>
+ * <li><strong>journalRedactedHeaders</strong> - 二进制记录中只保留名称、隐去值的请求头，逗号分隔，不区分大小写，
+ * 默认 <code>Authorization,Proxy-Authorization,Cookie</code>。</li>
+ * <li><strong>jmx</strong> - 是否注册 {@link LogRequestFilterMBean}，在运行时修改除 format、async 相关参数以外的设置，默认 false。
+ * 名称为 <code>net.matrix.web:type=LogRequestFilter,context="上下文路径",name="过滤器名称"</code>，注册失败时只记录警告。</li>
+ * </ul>
+ * <p>
+ * 后续处理开始异步处理时，处理完成后的采集推迟到异步处理完成时进行，耗时和响应状态是异步处理完成时的结果，异步处理超时或出错按处理失败记录。
+ * 异步处理再次派发到过滤器时不重复记录。
  */
 public class LogRequestFilter
-    implements Filter {
+    implements Filter, LogRequestFilterMBean {
     private static final Logger LOG = LoggerFactory.getLogger(LogRequestFilter.class);
 
     /**
@@ -49,15 +113,127 @@ public class LogRequestFilter
      */
     private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(LogRequestFilter.class).useCurrentLocale();
 
-    private boolean enabled;
+    /**
+     * 停止时等待异步输出完成的最长时间。
+     */
+    private static final long ASYNC_STOP_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 默认的内容类型白名单。
+     */
+    private static final String DEFAULT_BODY_CONTENT_TYPES = "text/*,application/json,application/xml,application/x-www-form-urlencoded";
+
+    /**
+     * 复制内容的缓冲区池最多保留的缓冲区数量。
+     */
+    private static final int BODY_BUFFER_POOL_SIZE = 64;
+
+    /**
+     * 格式化缓冲区的初始容量。
+     */
+    private static final int BUFFER_CAPACITY = 4096;
+
+    /**
+     * 格式化缓冲区超过此容量时不再重用，避免长期占用内存。
+     */
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 64 * 1024;
+
+    /**
+     * 每个线程重用的格式化缓冲区。
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_CAPACITY));
+
+    private volatile boolean enabled;
+
+    private volatile boolean hasRequest = true;
+
+    private volatile boolean hasResponse = true;
+
+    private volatile boolean hasSession = true;
+
+    private volatile int maxLength = 100;
+
+    private volatile int valueMaxLength = 4096;
+
+    private volatile int recordMaxLength = 65536;
+
+    private volatile String fields;
+
+    private volatile CapturePlan capturePlan = CapturePlan.DEFAULT;
+
+    private volatile PartsMode partsMode = PartsMode.PARSE;
+
+    private volatile int partsScanLimit = 8192;
+
+    private volatile boolean captureBody;
+
+    private volatile int bodyMaxBytes = 4096;
+
+    private volatile String bodyContentTypesValue = DEFAULT_BODY_CONTENT_TYPES;
+
+    private volatile ContentTypeMatcher bodyContentTypes = ContentTypeMatcher.parse(DEFAULT_BODY_CONTENT_TYPES);
+
+    private volatile CaptureMode mode = CaptureMode.BEFORE;
+
+    private volatile long slowThresholdMillis = 1000;
+
+    private int summaryIntervalSeconds = 60;
+
+    private int summaryMaxShapes = 1000;
+
+    private volatile String sampling;
+
+    private volatile SamplingRules samplingRules;
+
+    private volatile boolean logOutput = true;
+
+    private volatile boolean jfrOutput;
+
+    private volatile boolean journalOutput;
+
+    private String journalDirectory;
+
+    private int journalSegmentSize = 64 * 1024 * 1024;
+
+    private int journalMaxSegments = 16;
+
+    private volatile RequestJournal journal;
+
+    private Set<String> journalRedactedHeaders = JournalRecord.DEFAULT_REDACTED_HEADERS;
+
+    private String format = "table";
+
+    private boolean async;
+
+    private int asyncBufferSize = 1024;
+
+    private OverflowPolicy asyncOverflow = OverflowPolicy.DROP;
+
+    private int asyncSampleRate = 10;
+
+    private String filterName;
+
+    private volatile DumpRenderer renderer;
+
+    private volatile BodyBufferPool requestBufferPool;
+
+    private volatile BodyBufferPool responseBufferPool;
+
+    private volatile AsyncDumpWriter asyncWriter;
 
-    private boolean hasRequest = true;
+    private volatile RequestShapeAggregator aggregator;
 
-    private boolean hasResponse = true;
+    private ScheduledExecutorService summaryExecutor;
 
-    private boolean hasSession = true;
+    private long summaryStartTime;
 
-    private int maxLength = 100;
+    private ObjectName objectName;
+
+    private final LongAdder recordsWritten = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final TimeHistogram emitTime = new TimeHistogram();
 
     @Override
     public void init(FilterConfig filterConfig)
@@ -75,401 +251,1090 @@ public class LogRequestFilter
         if (StringUtils.isNotEmpty(filterConfig.getInitParameter("maxLength"))) {
             this.maxLength = Integer.parseInt(filterConfig.getInitParameter("maxLength"));
         }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("valueMaxLength"))) {
+            this.valueMaxLength = Integer.parseInt(filterConfig.getInitParameter("valueMaxLength"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("recordMaxLength"))) {
+            this.recordMaxLength = Integer.parseInt(filterConfig.getInitParameter("recordMaxLength"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("slowThresholdMillis"))) {
+            this.slowThresholdMillis = Long.parseLong(filterConfig.getInitParameter("slowThresholdMillis"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("summaryIntervalSeconds"))) {
+            this.summaryIntervalSeconds = Integer.parseInt(filterConfig.getInitParameter("summaryIntervalSeconds"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("summaryMaxShapes"))) {
+            this.summaryMaxShapes = Integer.parseInt(filterConfig.getInitParameter("summaryMaxShapes"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("partsScanLimit"))) {
+            this.partsScanLimit = Integer.parseInt(filterConfig.getInitParameter("partsScanLimit"));
+        }
+        this.captureBody = "true".equals(filterConfig.getInitParameter("captureBody"));
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("bodyMaxBytes"))) {
+            this.bodyMaxBytes = Integer.parseInt(filterConfig.getInitParameter("bodyMaxBytes"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("bodyContentTypes"))) {
+            this.bodyContentTypesValue = filterConfig.getInitParameter("bodyContentTypes");
+            this.bodyContentTypes = ContentTypeMatcher.parse(bodyContentTypesValue);
+        }
+        try {
+            this.mode = parseEnum(CaptureMode.class, filterConfig.getInitParameter("mode"), CaptureMode.BEFORE);
+            this.partsMode = parseEnum(PartsMode.class, filterConfig.getInitParameter("partsMode"), PartsMode.PARSE);
+            this.asyncOverflow = parseEnum(OverflowPolicy.class, filterConfig.getInitParameter("asyncOverflow"), OverflowPolicy.DROP);
+            this.fields = filterConfig.getInitParameter("fields");
+            this.capturePlan = CapturePlan.parse(fields);
+            this.sampling = filterConfig.getInitParameter("sampling");
+            this.samplingRules = SamplingRules.parse(sampling, System.nanoTime());
+        } catch (IllegalArgumentException e) {
+            throw new ServletException(e);
+        }
+        this.journalDirectory = filterConfig.getInitParameter("journalDirectory");
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("journalSegmentSize"))) {
+            this.journalSegmentSize = Integer.parseInt(filterConfig.getInitParameter("journalSegmentSize"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("journalMaxSegments"))) {
+            this.journalMaxSegments = Integer.parseInt(filterConfig.getInitParameter("journalMaxSegments"));
+        }
+        if (filterConfig.getInitParameter("journalRedactedHeaders") != null) {
+            ImmutableSet.Builder<String> redactedHeaders = ImmutableSet.builder();
+            for (String name : StringUtils.split(filterConfig.getInitParameter("journalRedactedHeaders"), ", \t\r\n")) {
+                redactedHeaders.add(name.toLowerCase(Locale.ROOT));
+            }
+            this.journalRedactedHeaders = redactedHeaders.build();
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("output"))) {
+            try {
+                setOutput(filterConfig.getInitParameter("output"));
+            } catch (IllegalArgumentException | UncheckedIOException e) {
+                throw new ServletException(e);
+            }
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("format"))) {
+            this.format = filterConfig.getInitParameter("format");
+        }
+        this.async = "true".equals(filterConfig.getInitParameter("async"));
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("asyncBufferSize"))) {
+            this.asyncBufferSize = Integer.parseInt(filterConfig.getInitParameter("asyncBufferSize"));
+        }
+        if (StringUtils.isNotEmpty(filterConfig.getInitParameter("asyncSampleRate"))) {
+            this.asyncSampleRate = Integer.parseInt(filterConfig.getInitParameter("asyncSampleRate"));
+        }
+
+        if (!"json".equals(format) && !"table".equals(format)) {
+            throw new ServletException("Unknown format: " + format);
+        }
+        this.filterName = filterConfig.getFilterName();
+
+        updateRenderer();
+        updateBufferPools();
+        if (enabled) {
+            startAsyncWriter();
+            startSummary();
+        }
+        if ("true".equals(filterConfig.getInitParameter("jmx"))) {
+            // 同一 JVM 中可能部署多个应用，名称中包含应用的上下文路径
+            String contextPath = StringUtils.defaultIfEmpty(filterConfig.getServletContext().getContextPath(), "/");
+            try {
+                ObjectName name = new ObjectName("net.matrix.web:type=LogRequestFilter,context=" + ObjectName.quote(contextPath) + ",name="
+                    + ObjectName.quote(String.valueOf(filterName)));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+                this.objectName = name;
+            } catch (JMException e) {
+                // 管理接口不影响记录请求
+                LOG.warn("", e);
+            }
+        }
+    }
+
+    private void updateRenderer() {
+        if ("json".equals(format)) {
+            this.renderer = new JsonDumpRenderer();
+        } else {
+            this.renderer = new TableDumpRenderer(maxLength);
+        }
+    }
+
+    /**
+     * 按当前的大小设置重建缓冲区池，缓冲区在使用时才分配。
+     */
+    private void updateBufferPools() {
+        this.requestBufferPool = new BodyBufferPool(Math.max(partsScanLimit, bodyMaxBytes), BODY_BUFFER_POOL_SIZE);
+        this.responseBufferPool = new BodyBufferPool(bodyMaxBytes, BODY_BUFFER_POOL_SIZE);
+    }
+
+    private synchronized void startAsyncWriter() {
+        if (async && asyncWriter == null) {
+            AsyncDumpWriter writer = new AsyncDumpWriter("LogRequestFilter-" + filterName, asyncBufferSize, asyncOverflow, asyncSampleRate,
+                this::write);
+            writer.start();
+            this.asyncWriter = writer;
+        }
+    }
+
+    private synchronized void stopAsyncWriter() {
+        if (asyncWriter != null) {
+            asyncWriter.stop(ASYNC_STOP_TIMEOUT_MILLIS);
+            asyncWriter = null;
+        }
+    }
+
+    /**
+     * summary 模式下启动定期输出汇总表的线程。
+     */
+    private synchronized void startSummary() {
+        if (mode == CaptureMode.SUMMARY && summaryExecutor == null) {
+            this.aggregator = new RequestShapeAggregator(summaryMaxShapes);
+            this.summaryStartTime = System.currentTimeMillis();
+            this.summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LogRequestFilter-" + filterName + "-summary");
+                thread.setDaemon(true);
+                return thread;
+            });
+            summaryExecutor.scheduleAtFixedRate(this::flushSummary, summaryIntervalSeconds, summaryIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 停止定期输出，并输出最后一个周期的汇总表。
+     */
+    private synchronized void stopSummary() {
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdownNow();
+            summaryExecutor = null;
+            flushSummary();
+            aggregator = null;
+        }
+    }
+
+    /**
+     * 输出当前周期的汇总表。
+     */
+    private synchronized void flushSummary() {
+        RequestShapeAggregator currentAggregator = aggregator;
+        if (currentAggregator == null) {
+            return;
+        }
+        long endTime = System.currentTimeMillis();
+        String title = "Request Summary: " + Instant.ofEpochMilli(summaryStartTime) + " - " + Instant.ofEpochMilli(endTime);
+        DumpSection section = currentAggregator.drain(title);
+        summaryStartTime = endTime;
+        if (section != null && logOutput) {
+            emit(new RequestDump(Collections.singletonList(section)));
+        }
+    }
+
+    /**
+     * 解析不区分大小写的枚举值。
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E defaultValue) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
     }
 
     @Override
     public void destroy() {
         this.enabled = false;
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("", e);
+            }
+            objectName = null;
+        }
+        stopSummary();
+        stopAsyncWriter();
+        closeJournal();
+    }
+
+    private synchronized void openJournal() {
+        if (journal == null) {
+            if (StringUtils.isEmpty(journalDirectory)) {
+                throw new IllegalArgumentException("journalDirectory is required for journal output");
+            }
+            try {
+                this.journal = new RequestJournal(Paths.get(journalDirectory), journalSegmentSize, journalMaxSegments);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private synchronized void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
         throws IOException, ServletException {
-        if (enabled) {
-            HttpServletRequest httpRequest = (HttpServletRequest) request;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // 异步处理再次派发时，由开始异步处理前注册的监听器在完成时记录
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        // 二进制记录和日志共用同一个请求包装，请求内容只复制一次
+        TeeRequestWrapper requestWrapper = isJournalBodyCaptured(httpRequest) ? new TeeRequestWrapper(httpRequest, requestBufferPool) : null;
+        boolean failed = true;
+        try {
+            RequestEvent event = enabled && jfrOutput ? new RequestEvent() : null;
+            if (event != null && event.isEnabled()) {
+                doFilterEvent(event, httpRequest, requestWrapper, (HttpServletResponse) response, chain);
+            } else {
+                doFilterJournal(httpRequest, requestWrapper, response, chain);
+            }
+            failed = false;
+        } finally {
+            if (requestWrapper != null) {
+                // 在内层的收尾工作之后执行
+                AsyncCompletion.afterChain(request, failed, requestFailed -> requestWrapper.release());
+            }
+        }
+    }
+
+    /**
+     * 记录 JFR 事件，事件中的内容只在 JFR 确定提交时才读取。
+     */
+    private void doFilterEvent(RequestEvent event, HttpServletRequest request, TeeRequestWrapper requestWrapper, HttpServletResponse response,
+        FilterChain chain)
+        throws IOException, ServletException {
+        CaptureResponseWrapper responseWrapper = new CaptureResponseWrapper(response);
+        event.begin();
+        boolean failed = true;
+        try {
+            doFilterJournal(request, requestWrapper, responseWrapper, chain);
+            failed = false;
+        } finally {
+            AsyncCompletion.afterChain(request, failed, requestFailed -> {
+                event.end();
+                if (event.shouldCommit()) {
+                    HttpSession session = request.getSession(false);
+                    event.method = request.getMethod();
+                    event.uri = request.getRequestURI();
+                    event.status = response.getStatus();
+                    event.bytesWritten = responseWrapper.getBytesWritten();
+                    event.sessionId = session == null ? null : session.getId();
+                    event.commit();
+                }
+            });
+        }
+    }
+
+    /**
+     * 处理完成后追加二进制记录。
+     *
+     * @param requestWrapper
+     *     复制请求内容的包装，由 {@link #doFilter(ServletRequest, ServletResponse, FilterChain)} 创建和归还，不复制时为 null。
+     */
+    private void doFilterJournal(HttpServletRequest request, TeeRequestWrapper requestWrapper, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        RequestJournal currentJournal = journal;
+        if (!enabled || !journalOutput || currentJournal == null) {
+            doFilterLog(request, requestWrapper, response, chain);
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        boolean failed = true;
+        try {
+            doFilterLog(request, requestWrapper, response, chain);
+            failed = false;
+        } finally {
+            AsyncCompletion.afterChain(request, failed, requestFailed -> {
+                JournalRecord record;
+                if (requestWrapper == null) {
+                    record = JournalRecord.capture(request, timestamp, null, -1, journalRedactedHeaders);
+                } else {
+                    int length = Math.min(requestWrapper.getCapturedLength(), bodyMaxBytes);
+                    record = JournalRecord.capture(request, timestamp, requestWrapper.getCaptured(), length, journalRedactedHeaders);
+                }
+                try {
+                    currentJournal.append(record);
+                } catch (IOException e) {
+                    LOG.warn("", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 输出请求内容到日志。
+     */
+    private void doFilterLog(HttpServletRequest request, TeeRequestWrapper requestWrapper, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        HttpServletRequest chainRequest = requestWrapper == null ? request : requestWrapper;
+        boolean logging = enabled && logOutput;
+        CaptureMode currentMode = mode;
+        if (logging && currentMode == CaptureMode.SUMMARY) {
+            doFilterSummary(chainRequest, (HttpServletResponse) response, chain);
+            return;
+        }
+        if (logging && !sample(request)) {
+            // Pass control on to the next filter
+            chain.doFilter(chainRequest, response);
+            return;
+        }
+
+        if (logging && currentMode == CaptureMode.AFTER) {
+            doFilterAfter(request, requestWrapper, (HttpServletResponse) response, chain);
+            return;
+        }
+        if (logging && currentMode == CaptureMode.SLOW) {
+            doFilterSlow(request, requestWrapper, (HttpServletResponse) response, chain);
+            return;
+        }
+
+        if (logging) {
             HttpServletResponse httpResponse = (HttpServletResponse) response;
-            HttpSession httpSession = httpRequest.getSession(false);
+            HttpSession httpSession = request.getSession(false);
 
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            pw.println();
-            pw.println(RBMF.get("============================== 请求内容开始 ======================================"));
+            List<DumpSection> sections = new ArrayList<>();
+            ValueRenderer valueRenderer = newValueRenderer();
             if (hasRequest) {
-                dumpRequest(httpRequest, pw);
+                dumpRequest(request, valueRenderer, sections);
             }
             if (hasResponse) {
-                dumpResponse(httpResponse, pw);
+                dumpResponse(httpResponse, -1, sections);
             }
             if (hasSession) {
-                dumpSession(httpSession, pw);
+                dumpSession(httpSession, valueRenderer, sections);
             }
-            pw.print(RBMF.get("============================== 请求内容结束 ======================================"));
-            LOG.info(sw.toString());
+            emit(new RequestDump(sections));
         }
 
         // Pass control on to the next filter
-        chain.doFilter(request, response);
+        chain.doFilter(chainRequest, response);
+    }
+
+    private boolean sample(HttpServletRequest request) {
+        SamplingRules rules = samplingRules;
+        return rules == null || rules.sample(request, System.nanoTime());
     }
 
-    private void dumpRequest(HttpServletRequest request, PrintWriter writer)
+    /**
+     * 只把请求形态、响应状态和耗时计入汇总。
+     */
+    private void doFilterSummary(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
         throws IOException, ServletException {
-        // request properties
-        Map<String, String> properties = Maps.newLinkedHashMapWithExpectedSize(23);
-        properties.put("CharacterEncoding", request.getCharacterEncoding());
-        properties.put("ContentLength", Long.toString(request.getContentLengthLong()));
-        properties.put("ContentType", request.getContentType());
-        properties.put("Protocol", request.getProtocol());
-        properties.put("Scheme", request.getScheme());
-        properties.put("ServerName", request.getServerName());
-        properties.put("ServerPort", Integer.toString(request.getServerPort()));
-        properties.put("RemoteAddr", request.getRemoteAddr());
-        properties.put("RemoteHost", request.getRemoteHost());
-        properties.put("Locale", request.getLocale().toString());
-        properties.put("Locales", Collections.list(request.getLocales()).toString());
-        properties.put("Secure", Boolean.toString(request.isSecure()));
-        properties.put("RemotePort", Integer.toString(request.getRemotePort()));
-        properties.put("LocalName", request.getLocalName());
-        properties.put("LocalAddr", request.getLocalAddr());
-        properties.put("LocalPort", Integer.toString(request.getLocalPort()));
-        properties.put("Method", request.getMethod());
-        properties.put("PathInfo", request.getPathInfo());
-        properties.put("ContextPath", request.getContextPath());
-        properties.put("QueryString", request.getQueryString());
-        properties.put("RequestedSessionId", request.getRequestedSessionId());
-        properties.put("RequestURI", request.getRequestURI());
-        properties.put("ServletPath", request.getServletPath());
-        dumpStringMap(writer, "Request: " + request, properties);
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            // Pass control on to the next filter
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            AsyncCompletion.afterChain(request, failed, requestFailed -> {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                RequestShapeAggregator currentAggregator = aggregator;
+                if (currentAggregator != null) {
+                    currentAggregator.record(request.getMethod(), request.getRequestURI(), request.getQueryString(), response.getStatus(),
+                        elapsedNanos, requestFailed);
+                }
+            });
+        }
+    }
 
-        // request headers
-        List<String> names = Collections.list(ObjectUtils.defaultIfNull(request.getHeaderNames(), Collections.emptyEnumeration()));
-        Collections.sort(names);
-        Map<String, String> headers = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            List<String> values = Collections.list(request.getHeaders(name));
-            if (values.size() == 1) {
-                headers.put(name, values.get(0));
-            } else {
-                headers.put(name, values.toString());
-            }
+    /**
+     * 处理前采集请求，处理完成后采集响应、会话和耗时。
+     */
+    private void doFilterAfter(HttpServletRequest request, TeeRequestWrapper sharedWrapper, HttpServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        List<DumpSection> sections = new ArrayList<>();
+        ValueRenderer valueRenderer = newValueRenderer();
+        if (hasRequest) {
+            dumpRequest(request, valueRenderer, sections);
         }
-        dumpStringMap(writer, "Request Headers", headers);
 
-        // request parameters
-        names = Collections.list(request.getParameterNames());
-        Collections.sort(names);
-        Map<String, String> parameters = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            String[] values = request.getParameterValues(name);
-            if (values.length == 1) {
-                parameters.put(name, values[0]);
-            } else {
-                parameters.put(name, Arrays.toString(values));
-            }
+        TeeRequestWrapper requestWrapper = sharedWrapper == null ? wrapRequest(request) : sharedWrapper;
+        BodyBufferPool bodyPool = captureBody && hasResponse ? responseBufferPool : null;
+        CaptureResponseWrapper responseWrapper = new CaptureResponseWrapper(response, bodyPool, bodyContentTypes);
+        boolean failed = true;
+        try {
+            // Pass control on to the next filter
+            chain.doFilter(requestWrapper == null ? request : requestWrapper, responseWrapper);
+            failed = false;
+        } finally {
+            AsyncCompletion.afterChain(request, failed, requestFailed -> {
+                long elapsedNanos = System.nanoTime() - startNanos;
+
+                if (requestWrapper != null) {
+                    dumpRequestContent(requestWrapper, sections);
+                }
+                dumpTiming(startTime, elapsedNanos, sections);
+                if (hasResponse) {
+                    dumpResponse(response, responseWrapper.getBytesWritten(), sections);
+                    dumpResponseContent(responseWrapper, sections);
+                }
+                if (hasSession) {
+                    dumpSession(request.getSession(false), valueRenderer, sections);
+                }
+                emit(new RequestDump(sections));
+
+                // 快照中已是字符串，缓冲区可以立即重用
+                if (sharedWrapper == null && requestWrapper != null) {
+                    requestWrapper.release();
+                }
+                responseWrapper.release();
+            });
         }
-        dumpStringMap(writer, "Request Parameters", parameters);
+    }
 
-        // request cookies
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                dumpCookie(cookie, writer);
-            }
+    /**
+     * 处理完成后，只对慢请求和出错的请求采集全部内容。
+     * 处理前只记录请求到达时的基本属性，快速请求不读取参数，也不触发表单内容的解析；其余内容在确定输出时读取。
+     */
+    private void doFilterSlow(HttpServletRequest request, TeeRequestWrapper sharedWrapper, HttpServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        long startNanos = System.nanoTime();
+        RequestSnapshot snapshot = hasRequest ? RequestSnapshot.captureBasic(request, capturePlan) : null;
+        TeeRequestWrapper requestWrapper = sharedWrapper == null ? wrapRequest(request) : sharedWrapper;
+        CaptureResponseWrapper responseWrapper = captureBody && hasResponse
+            ? new CaptureResponseWrapper(response, responseBufferPool, bodyContentTypes) : null;
+        boolean failed = true;
+        try {
+            // Pass control on to the next filter
+            chain.doFilter(requestWrapper == null ? request : requestWrapper, responseWrapper == null ? response : responseWrapper);
+            failed = false;
+        } finally {
+            AsyncCompletion.afterChain(request, failed, requestFailed -> {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                if (requestFailed || elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis)
+                    || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+                    long startTime = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+                    List<DumpSection> sections = new ArrayList<>();
+                    ValueRenderer valueRenderer = newValueRenderer();
+                    if (snapshot != null) {
+                        dumpRequest(request, snapshot.complete(request), valueRenderer, sections);
+                        if (requestWrapper != null) {
+                            dumpRequestContent(requestWrapper, sections);
+                        }
+                    }
+                    dumpTiming(startTime, elapsedNanos, sections);
+                    if (hasResponse) {
+                        dumpResponse(response, -1, sections);
+                        if (responseWrapper != null) {
+                            dumpResponseContent(responseWrapper, sections);
+                        }
+                    }
+                    if (hasSession) {
+                        dumpSession(request.getSession(false), valueRenderer, sections);
+                    }
+                    emit(new RequestDump(sections));
+                }
+
+                if (sharedWrapper == null && requestWrapper != null) {
+                    requestWrapper.release();
+                }
+                if (responseWrapper != null) {
+                    responseWrapper.release();
+                }
+            });
         }
+    }
 
-        // request parts
-        Collection<Part> parts = request.getParts();
-        for (Part part : parts) {
-            dumpPart(part, writer);
+    /**
+     * 需要时包装请求，复制后续处理读取的请求内容前缀。
+     *
+     * @return 包装后的请求，不需要复制时返回 null。
+     */
+    private TeeRequestWrapper wrapRequest(HttpServletRequest request) {
+        if (isPartsScanned(request) || isRequestBodyCaptured(request)) {
+            return new TeeRequestWrapper(request, requestBufferPool);
         }
+        return null;
+    }
 
-        // request attributes
-        names = Collections.list(request.getAttributeNames());
-        Collections.sort(names);
-        Map<String, Object> attributes = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            Object value = request.getAttribute(name);
-            attributes.put(name, value);
-        }
-        dumpObjectMap(writer, "Request Attributes", attributes);
-    }
-
-    private void dumpCookie(Cookie cookie, PrintWriter writer) {
-        Map<String, String> properties = new LinkedHashMap<>();
-        properties.put("Domain", cookie.getDomain());
-        properties.put("MaxAge", Integer.toString(cookie.getMaxAge()));
-        properties.put("Path", cookie.getPath());
-        properties.put("Secure", Boolean.toString(cookie.getSecure()));
-        properties.put("Name", cookie.getName());
-        properties.put("Value", cookie.getValue());
-        properties.put("HttpOnly", Boolean.toString(cookie.isHttpOnly()));
-        dumpStringMap(writer, "Cookie: " + cookie, properties);
-    }
-
-    private void dumpPart(Part part, PrintWriter writer) {
-        Map<String, String> properties = new LinkedHashMap<>();
-        properties.put("ContentType", part.getContentType());
-        properties.put("Name", part.getName());
-        properties.put("SubmittedFileName", part.getSubmittedFileName());
-        properties.put("Size", Long.toString(part.getSize()));
-        dumpStringMap(writer, "Part: " + part, properties);
+    private boolean isJournalBodyCaptured(HttpServletRequest request) {
+        return enabled && journalOutput && journal != null && captureBody && bodyContentTypes.matches(request.getContentType());
+    }
 
-        // part headers
-        List<String> names = new ArrayList(ObjectUtils.defaultIfNull(part.getHeaderNames(), Collections.emptyList()));
-        Collections.sort(names);
-        Map<String, String> headers = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            Collection<String> values = part.getHeaders(name);
-            if (values.size() == 1) {
-                headers.put(name, IterableUtils.first(values));
-            } else {
-                headers.put(name, values.toString());
-            }
+    private boolean isPartsScanned(HttpServletRequest request) {
+        return hasRequest && capturePlan.parts && partsMode == PartsMode.SCAN && MultipartScanner.getBoundary(request.getContentType()) != null;
+    }
+
+    private boolean isRequestBodyCaptured(HttpServletRequest request) {
+        return hasRequest && captureBody && bodyContentTypes.matches(request.getContentType());
+    }
+
+    private void emit(RequestDump dump) {
+        long startNanos = System.nanoTime();
+        AsyncDumpWriter writer = asyncWriter;
+        if (writer == null) {
+            write(dump);
+        } else {
+            writer.submit(dump);
         }
-        dumpStringMap(writer, "Part Headers", headers);
+        emitTime.record(System.nanoTime() - startNanos);
     }
 
-    private void dumpResponse(HttpServletResponse response, PrintWriter writer) {
-        // response properties
-        Map<String, String> properties = new LinkedHashMap<>();
-        properties.put("CharacterEncoding", response.getCharacterEncoding());
-        properties.put("ContentType", response.getContentType());
-        properties.put("Locale", response.getLocale().toString());
-        properties.put("Status", Integer.toString(response.getStatus()));
-        dumpStringMap(writer, "Response: " + response, properties);
+    private void write(RequestDump dump) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderer.render(dump, buffer);
+        LOG.info(buffer.toString());
+        recordsWritten.increment();
+        bytesWritten.add(utf8Length(buffer));
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+            BUFFER.remove();
+        }
+    }
 
-        // response headers
-        List<String> names = new ArrayList(ObjectUtils.defaultIfNull(response.getHeaderNames(), Collections.emptyList()));
-        Collections.sort(names);
-        Map<String, String> headers = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            Collection<String> values = response.getHeaders(name);
-            if (values.size() == 1) {
-                headers.put(name, IterableUtils.first(values));
-            } else {
-                headers.put(name, values.toString());
+    /**
+     * 按 UTF-8 编码计算字节数，不实际编码。
+     */
+    private static long utf8Length(CharSequence text) {
+        long length = text.length();
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c >= 0x800 && !Character.isSurrogate(c)) {
+                length += 2;
+            } else if (c >= 0x80) {
+                // 代理对两个字符共 4 字节
+                ++length;
             }
         }
-        dumpStringMap(writer, "Response Headers", headers);
+        return length;
     }
 
-    private void dumpSession(HttpSession session, PrintWriter writer) {
-        if (session == null) {
-            writer.print("Session: ");
-            writer.println(RBMF.get("未创建"));
-            return;
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled) {
+            startAsyncWriter();
+            startSummary();
         }
+        this.enabled = enabled;
+    }
 
-        // session properties
-        Map<String, String> properties = new LinkedHashMap<>();
-        properties.put("CreationTime", Long.toString(session.getCreationTime()));
-        properties.put("Id", session.getId());
-        properties.put("LastAccessedTime", Long.toString(session.getLastAccessedTime()));
-        properties.put("New", Boolean.toString(session.isNew()));
-        dumpStringMap(writer, "Session: " + session, properties);
+    @Override
+    public boolean isHasRequest() {
+        return hasRequest;
+    }
 
-        // session attributes
-        List<String> names = Collections.list(session.getAttributeNames());
-        Collections.sort(names);
-        Map<String, Object> attributes = Maps.newLinkedHashMapWithExpectedSize(names.size());
-        for (String name : names) {
-            Object value = session.getAttribute(name);
-            attributes.put(name, value);
-        }
-        dumpObjectMap(writer, "Session Attributes", attributes);
-    }
-
-    private void dumpStringMap(PrintWriter writer, String title, Map<String, String> map) {
-        int maxNameLen = 0;
-        int maxValueLen = 0;
-        int totalLen = title.length();
-        if (!map.isEmpty()) {
-            for (Map.Entry<String, String> item : map.entrySet()) {
-                if (item.getValue() == null) {
-                    item.setValue("(null)");
-                }
-                if (item.getKey().length() > maxNameLen) {
-                    maxNameLen = item.getKey().length();
-                }
-                if (item.getValue().length() <= maxLength && item.getValue().length() > maxValueLen) {
-                    maxValueLen = item.getValue().length();
-                } else if (item.getValue().length() > maxLength) {
-                    maxValueLen = maxLength;
-                }
+    @Override
+    public void setHasRequest(boolean hasRequest) {
+        this.hasRequest = hasRequest;
+    }
+
+    @Override
+    public boolean isHasResponse() {
+        return hasResponse;
+    }
+
+    @Override
+    public void setHasResponse(boolean hasResponse) {
+        this.hasResponse = hasResponse;
+    }
+
+    @Override
+    public boolean isHasSession() {
+        return hasSession;
+    }
+
+    @Override
+    public void setHasSession(boolean hasSession) {
+        this.hasSession = hasSession;
+    }
+
+    @Override
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public synchronized void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+        updateRenderer();
+    }
+
+    @Override
+    public String getMode() {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void setMode(String mode) {
+        this.mode = parseEnum(CaptureMode.class, mode, CaptureMode.BEFORE);
+        if (this.mode == CaptureMode.SUMMARY) {
+            if (enabled) {
+                startSummary();
             }
-            if (maxNameLen + maxValueLen + 1 > totalLen) {
-                totalLen = maxNameLen + maxValueLen + 1;
+        } else {
+            stopSummary();
+        }
+    }
+
+    @Override
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    @Override
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    @Override
+    public String getFields() {
+        return fields;
+    }
+
+    @Override
+    public synchronized void setFields(String fields) {
+        this.capturePlan = CapturePlan.parse(fields);
+        this.fields = fields;
+    }
+
+    @Override
+    public String getSampling() {
+        return sampling;
+    }
+
+    @Override
+    public synchronized void setSampling(String sampling) {
+        this.samplingRules = SamplingRules.parse(sampling, System.nanoTime());
+        this.sampling = sampling;
+    }
+
+    @Override
+    public String getPartsMode() {
+        return partsMode.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void setPartsMode(String partsMode) {
+        this.partsMode = parseEnum(PartsMode.class, partsMode, PartsMode.PARSE);
+    }
+
+    @Override
+    public int getPartsScanLimit() {
+        return partsScanLimit;
+    }
+
+    @Override
+    public synchronized void setPartsScanLimit(int partsScanLimit) {
+        this.partsScanLimit = partsScanLimit;
+        updateBufferPools();
+    }
+
+    @Override
+    public boolean isCaptureBody() {
+        return captureBody;
+    }
+
+    @Override
+    public void setCaptureBody(boolean captureBody) {
+        this.captureBody = captureBody;
+    }
+
+    @Override
+    public int getBodyMaxBytes() {
+        return bodyMaxBytes;
+    }
+
+    @Override
+    public synchronized void setBodyMaxBytes(int bodyMaxBytes) {
+        this.bodyMaxBytes = bodyMaxBytes;
+        updateBufferPools();
+    }
+
+    @Override
+    public String getBodyContentTypes() {
+        return bodyContentTypesValue;
+    }
+
+    @Override
+    public synchronized void setBodyContentTypes(String bodyContentTypes) {
+        this.bodyContentTypes = ContentTypeMatcher.parse(StringUtils.defaultString(bodyContentTypes));
+        this.bodyContentTypesValue = bodyContentTypes;
+    }
+
+    @Override
+    public int getValueMaxLength() {
+        return valueMaxLength;
+    }
+
+    @Override
+    public void setValueMaxLength(int valueMaxLength) {
+        this.valueMaxLength = valueMaxLength;
+    }
+
+    @Override
+    public int getRecordMaxLength() {
+        return recordMaxLength;
+    }
+
+    @Override
+    public void setRecordMaxLength(int recordMaxLength) {
+        this.recordMaxLength = recordMaxLength;
+    }
+
+    @Override
+    public String getOutput() {
+        List<String> outputs = new ArrayList<>(3);
+        if (logOutput) {
+            outputs.add("log");
+        }
+        if (jfrOutput) {
+            outputs.add("jfr");
+        }
+        if (journalOutput) {
+            outputs.add("journal");
+        }
+        return String.join(",", outputs);
+    }
+
+    @Override
+    public synchronized void setOutput(String output) {
+        boolean log = false;
+        boolean jfr = false;
+        boolean journalEnabled = false;
+        for (String item : StringUtils.split(output, ", ")) {
+            if ("log".equalsIgnoreCase(item)) {
+                log = true;
+            } else if ("jfr".equalsIgnoreCase(item)) {
+                jfr = true;
+            } else if ("journal".equalsIgnoreCase(item)) {
+                journalEnabled = true;
             } else {
-                maxValueLen = totalLen - (maxNameLen + 1);
+                throw new IllegalArgumentException("Unknown output: " + item);
             }
         }
-        writer.print('+');
-        printChar(writer, '-', totalLen);
-        writer.println('+');
-        writer.print('|');
-        writer.print(title);
-        printChar(writer, ' ', totalLen - title.length());
-        writer.println('|');
-        if (map.isEmpty()) {
-            writer.print('+');
-            printChar(writer, '-', totalLen);
-            writer.println('+');
-        } else {
-            writer.print('+');
-            printChar(writer, '-', maxNameLen);
-            writer.print('+');
-            printChar(writer, '-', maxValueLen);
-            writer.println('+');
-            for (Map.Entry<String, String> item : map.entrySet()) {
-                writer.print('|');
-                writer.print(item.getKey());
-                printChar(writer, ' ', maxNameLen - item.getKey().length());
-                writer.print('|');
-                int linNum = item.getValue().length() / maxLength;
-                if (item.getValue().length() % maxLength != 0) {
-                    ++linNum;
-                }
-                if (linNum == 0) {
-                    printChar(writer, ' ', maxValueLen);
-                    writer.println('|');
-                }
-                for (int i = 0; i < linNum; ++i) {
-                    if (i < linNum - 1) {
-                        writer.append(item.getValue(), i * maxLength, (i + 1) * maxLength);
-                        writer.println('|');
-                        writer.print('|');
-                        printChar(writer, ' ', maxNameLen);
-                        writer.print('|');
-                    } else if (linNum > 1) {
-                        writer.append(item.getValue(), i * maxLength, item.getValue().length());
-                        printChar(writer, ' ', (i + 1) * maxLength - item.getValue().length());
-                        writer.println('|');
-                    } else {
-                        writer.append(item.getValue());
-                        printChar(writer, ' ', maxValueLen - item.getValue().length());
-                        writer.println('|');
-                    }
+        if (journalEnabled) {
+            openJournal();
+        }
+        this.logOutput = log;
+        this.jfrOutput = jfr;
+        this.journalOutput = journalEnabled;
+    }
+
+    @Override
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public boolean isAsync() {
+        return async;
+    }
+
+    @Override
+    public long getRecordsWritten() {
+        return recordsWritten.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long[] getEmitTimeHistogram() {
+        return emitTime.getCounts();
+    }
+
+    @Override
+    public long getEmitTimeTotalNanos() {
+        return emitTime.getTotalNanos();
+    }
+
+    @Override
+    public long getAsyncDroppedCount() {
+        AsyncDumpWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.getDroppedCount();
+    }
+
+    @Override
+    public long getAsyncSampledOutCount() {
+        AsyncDumpWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.getSampledOutCount();
+    }
+
+    @Override
+    public int getAsyncPendingCount() {
+        AsyncDumpWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.getPendingCount();
+    }
+
+    @Override
+    public void resetStatistics() {
+        recordsWritten.reset();
+        bytesWritten.reset();
+        emitTime.reset();
+    }
+
+    private ValueRenderer newValueRenderer() {
+        return new ValueRenderer(valueMaxLength, recordMaxLength);
+    }
+
+    private void dumpRequest(HttpServletRequest request, ValueRenderer valueRenderer, List<DumpSection> sections)
+        throws IOException, ServletException {
+        dumpRequest(request, RequestSnapshot.capture(request, capturePlan), valueRenderer, sections);
+    }
+
+    private void dumpRequest(HttpServletRequest request, RequestSnapshot snapshot, ValueRenderer valueRenderer, List<DumpSection> sections)
+        throws IOException, ServletException {
+        CapturePlan plan = snapshot.plan;
+
+        // request properties
+        if (plan.properties.length > 0) {
+            sections.add(DumpSection.ofStrings("request", "Request: " + request, plan.propertyNames, snapshot.propertyValues));
+        }
+
+        // request headers
+        if (plan.headers) {
+            List<String> headerNames = Collections.list(ObjectUtils.defaultIfNull(request.getHeaderNames(), Collections.emptyEnumeration()));
+            Collections.sort(headerNames);
+            String[] names = headerNames.toArray(new String[0]);
+            String[] values = new String[names.length];
+            for (int i = 0; i < names.length; ++i) {
+                List<String> headerValues = Collections.list(request.getHeaders(names[i]));
+                if (headerValues.size() == 1) {
+                    values[i] = headerValues.get(0);
+                } else {
+                    values[i] = headerValues.toString();
                 }
             }
-            writer.print('+');
-            printChar(writer, '-', maxNameLen);
-            writer.print('+');
-            printChar(writer, '-', maxValueLen);
-            writer.println('+');
-        }
-    }
-
-    private void dumpObjectMap(PrintWriter writer, String title, Map<String, Object> objMap) {
-        Map<String, ClassAndToString> map = Maps.newLinkedHashMapWithExpectedSize(objMap.size());
-        for (Map.Entry<String, Object> item : objMap.entrySet()) {
-            map.put(item.getKey(), new ClassAndToString(item.getValue()));
-        }
-        int maxNameLen = 0;
-        int maxClassLen = 0;
-        int maxValueLen = title.length();
-        if (!map.isEmpty()) {
-            for (Map.Entry<String, ClassAndToString> item : map.entrySet()) {
-                if (item.getKey().length() > maxNameLen) {
-                    maxNameLen = item.getKey().length();
-                }
-                if (item.getValue().className.length() > maxClassLen) {
-                    maxClassLen = item.getValue().className.length();
+            sections.add(DumpSection.ofStrings("headers", "Request Headers", names, values));
+        }
+
+        // request parameters
+        if (snapshot.parameters != null) {
+            String[] names = snapshot.parameters.keySet().toArray(new String[0]);
+            Arrays.sort(names);
+            String[] values = new String[names.length];
+            for (int i = 0; i < names.length; ++i) {
+                String[] parameterValues = snapshot.parameters.get(names[i]);
+                if (parameterValues.length == 1) {
+                    values[i] = parameterValues[0];
+                } else {
+                    values[i] = Arrays.toString(parameterValues);
                 }
-                if (item.getValue().toString.length() <= maxLength && item.getValue().toString.length() > maxValueLen) {
-                    maxValueLen = item.getValue().toString.length();
-                } else if (item.getValue().toString.length() > maxLength) {
-                    maxValueLen = maxLength;
+            }
+            sections.add(DumpSection.ofStrings("parameters", "Request Parameters", names, values));
+        }
+
+        // request cookies
+        if (plan.cookies) {
+            Cookie[] cookies = request.getCookies();
+            if (cookies != null) {
+                for (Cookie cookie : cookies) {
+                    dumpCookie(cookie, sections);
                 }
             }
-            if (maxNameLen + maxClassLen + 1 > maxValueLen) {
-                maxValueLen = maxNameLen + maxClassLen + 1;
+        }
+
+        // request parts
+        if (plan.parts && MultipartScanner.isMultipart(request.getContentType())) {
+            if (partsMode == PartsMode.PARSE) {
+                Collection<Part> parts = request.getParts();
+                for (Part part : parts) {
+                    dumpPart(part, sections);
+                }
             } else {
-                maxClassLen = maxValueLen - (maxNameLen + 1);
+                dumpMultipart(request, sections);
             }
         }
-        writer.print('+');
-        printChar(writer, '-', maxValueLen);
-        writer.println('+');
-        writer.print('|');
-        writer.print(title);
-        printChar(writer, ' ', maxValueLen - title.length());
-        writer.println('|');
-        if (map.isEmpty()) {
-            writer.print('+');
-            printChar(writer, '-', maxValueLen);
-            writer.println('+');
-        } else {
-            writer.print('+');
-            printChar(writer, '-', maxNameLen);
-            writer.print('+');
-            printChar(writer, '-', maxClassLen);
-            writer.println('+');
-            for (Map.Entry<String, ClassAndToString> item : map.entrySet()) {
-                writer.print('|');
-                writer.print(item.getKey());
-                printChar(writer, ' ', maxNameLen - item.getKey().length());
-                writer.print('|');
-                writer.print(item.getValue().className);
-                printChar(writer, ' ', maxClassLen - item.getValue().className.length());
-                writer.println('|');
-                int linNum = item.getValue().toString.length() / maxLength;
-                if (item.getValue().toString.length() % maxLength != 0) {
-                    ++linNum;
-                }
-                if (linNum == 0) {
-                    printChar(writer, ' ', maxValueLen);
-                    writer.println('|');
-                }
-                for (int i = 0; i < linNum; ++i) {
-                    writer.print('|');
-                    if (i < linNum - 1) {
-                        writer.append(item.getValue().toString, i * maxLength, (i + 1) * maxLength);
-                        writer.println('|');
-                    } else if (linNum > 1) {
-                        writer.append(item.getValue().toString, i * maxLength, item.getValue().toString.length());
-                        printChar(writer, ' ', (i + 1) * maxLength - item.getValue().toString.length());
-                        writer.println('|');
-                    } else {
-                        writer.append(item.getValue().toString);
-                        printChar(writer, ' ', maxValueLen - item.getValue().toString.length());
-                        writer.println('|');
-                    }
-                }
+
+        // request attributes
+        if (plan.attributes) {
+            List<String> attributeNames = Collections.list(request.getAttributeNames());
+            Collections.sort(attributeNames);
+            String[] names = attributeNames.toArray(new String[0]);
+            String[] classNames = new String[names.length];
+            String[] values = new String[names.length];
+            for (int i = 0; i < names.length; ++i) {
+                Object value = request.getAttribute(names[i]);
+                classNames[i] = ValueRenderer.className(value);
+                values[i] = valueRenderer.render(value);
             }
-            writer.print('+');
-            printChar(writer, '-', maxValueLen);
-            writer.println('+');
+            sections.add(DumpSection.ofObjects("attributes", "Request Attributes", names, classNames, values));
         }
     }
 
-    private static final class ClassAndToString {
-        final String className;
+    private void dumpCookie(Cookie cookie, List<DumpSection> sections) {
+        String[] names = {
+            "Domain", "MaxAge", "Path", "Secure", "Name", "Value", "HttpOnly"
+        };
+        String[] values = {
+            cookie.getDomain(), Integer.toString(cookie.getMaxAge()), cookie.getPath(), Boolean.toString(cookie.getSecure()), cookie.getName(),
+            cookie.getValue(), Boolean.toString(cookie.isHttpOnly())
+        };
+        sections.add(DumpSection.ofRepeatedStrings("cookies", "Cookie: " + cookie, names, values));
+    }
 
-        final String toString;
+    private void dumpPart(Part part, List<DumpSection> sections) {
+        String[] names = {
+            "ContentType", "Name", "SubmittedFileName", "Size"
+        };
+        String[] values = {
+            part.getContentType(), part.getName(), part.getSubmittedFileName(), Long.toString(part.getSize())
+        };
+        DumpSection partSection = DumpSection.ofRepeatedStrings("parts", "Part: " + part, names, values);
 
-        /**
-         * 根据对象信息构造。
-         *
-         * @param obj
-         *     对象
-         */
-        ClassAndToString(Object obj) {
-            if (obj == null) {
-                this.className = "(n/a)";
-                this.toString = "(null)";
+        // part headers
+        List<String> headerNames = new ArrayList<>(ObjectUtils.defaultIfNull(part.getHeaderNames(), Collections.emptyList()));
+        Collections.sort(headerNames);
+        names = headerNames.toArray(new String[0]);
+        values = new String[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            Collection<String> headerValues = part.getHeaders(names[i]);
+            if (headerValues.size() == 1) {
+                values[i] = IterableUtils.first(headerValues);
             } else {
-                this.className = obj.getClass().toString();
-                if (obj.getClass().isArray()) {
-                    this.toString = Arrays.toString((Object[]) obj);
-                } else {
-                    this.toString = obj.toString();
-                }
+                values[i] = headerValues.toString();
+            }
+        }
+        sections.add(partSection.withDetail(DumpSection.ofStrings("headers", "Part Headers", names, values)));
+    }
+
+    private void dumpMultipart(HttpServletRequest request, List<DumpSection> sections) {
+        String[] names = {
+            "ContentType", "Boundary", "ContentLength"
+        };
+        String[] values = {
+            request.getContentType(), MultipartScanner.getBoundary(request.getContentType()), Long.toString(request.getContentLengthLong())
+        };
+        sections.add(DumpSection.ofStrings("multipart", "Multipart", names, values));
+    }
+
+    private void dumpRequestContent(TeeRequestWrapper request, List<DumpSection> sections) {
+        if (isPartsScanned(request)) {
+            dumpScannedParts(request, sections);
+        }
+        if (isRequestBodyCaptured(request)) {
+            int length = Math.min(request.getCapturedLength(), bodyMaxBytes);
+            dumpBody("requestBody", "Request Body", request.getCaptured(), length, request.getBytesRead(), request.getCharacterEncoding(), sections);
+        }
+    }
+
+    private void dumpResponseContent(CaptureResponseWrapper response, List<DumpSection> sections) {
+        if (response.isBodyCaptured()) {
+            dumpBody("responseBody", "Response Body", response.getBody(), response.getBodyLength(), response.getBytesWritten(),
+                response.getCharacterEncoding(), sections);
+        }
+    }
+
+    private void dumpBody(String key, String title, byte[] body, int length, long totalLength, String characterEncoding, List<DumpSection> sections) {
+        String[] names = {
+            "Length", "Truncated", "Content"
+        };
+        String[] values = {
+            Long.toString(totalLength), Boolean.toString(totalLength > length), new String(body, 0, length, charset(characterEncoding))
+        };
+        sections.add(DumpSection.ofStrings(key, title, names, values));
+    }
+
+    private void dumpScannedParts(TeeRequestWrapper request, List<DumpSection> sections) {
+        String boundary = MultipartScanner.getBoundary(request.getContentType());
+        for (MultipartScanner.ScannedPart part : MultipartScanner.scan(request.getCaptured(), request.getCapturedLength(), boundary)) {
+            String[] names = {
+                "ContentType", "Name", "SubmittedFileName", "Size"
+            };
+            String[] values = {
+                part.getContentType(), part.getName(), part.getSubmittedFileName(), Long.toString(part.size)
+            };
+            sections.add(DumpSection.ofRepeatedStrings("parts", "Part: " + part.getName(), names, values)
+                .withDetail(DumpSection.ofStrings("headers", "Part Headers", part.headerNames, part.headerValues)));
+        }
+    }
+
+    private void dumpTiming(long startTime, long elapsedNanos, List<DumpSection> sections) {
+        String[] names = {
+            "StartTime", "ElapsedNanos"
+        };
+        String[] values = {
+            Instant.ofEpochMilli(startTime).toString(), Long.toString(elapsedNanos)
+        };
+        sections.add(DumpSection.ofStrings("timing", "Timing", names, values));
+    }
+
+    private void dumpResponse(HttpServletResponse response, long bytesWritten, List<DumpSection> sections) {
+        // response properties
+        String[] names;
+        String[] values;
+        if (bytesWritten < 0) {
+            names = new String[] {
+                "CharacterEncoding", "ContentType", "Locale", "Status"
+            };
+            values = new String[] {
+                response.getCharacterEncoding(), response.getContentType(), response.getLocale().toString(), Integer.toString(response.getStatus())
+            };
+        } else {
+            names = new String[] {
+                "CharacterEncoding", "ContentType", "Locale", "Status", "Committed", "BytesWritten"
+            };
+            values = new String[] {
+                response.getCharacterEncoding(), response.getContentType(), response.getLocale().toString(), Integer.toString(response.getStatus()),
+                Boolean.toString(response.isCommitted()), Long.toString(bytesWritten)
+            };
+        }
+        sections.add(DumpSection.ofStrings("response", "Response: " + response, names, values));
+
+        // response headers
+        List<String> headerNames = new ArrayList<>(ObjectUtils.defaultIfNull(response.getHeaderNames(), Collections.emptyList()));
+        Collections.sort(headerNames);
+        names = headerNames.toArray(new String[0]);
+        values = new String[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            Collection<String> headerValues = response.getHeaders(names[i]);
+            if (headerValues.size() == 1) {
+                values[i] = IterableUtils.first(headerValues);
+            } else {
+                values[i] = headerValues.toString();
             }
         }
+        sections.add(DumpSection.ofStrings("responseHeaders", "Response Headers", names, values));
+    }
+
+    private void dumpSession(HttpSession session, ValueRenderer valueRenderer, List<DumpSection> sections) {
+        if (session == null) {
+            sections.add(DumpSection.ofMessage("session", "Session: ", RBMF.get("未创建")));
+            return;
+        }
+
+        // session properties
+        String[] names = {
+            "CreationTime", "Id", "LastAccessedTime", "New"
+        };
+        String[] values = {
+            Long.toString(session.getCreationTime()), session.getId(), Long.toString(session.getLastAccessedTime()), Boolean.toString(session.isNew())
+        };
+        sections.add(DumpSection.ofStrings("session", "Session: " + session, names, values));
+
+        // session attributes
+        List<String> attributeNames = Collections.list(session.getAttributeNames());
+        Collections.sort(attributeNames);
+        names = attributeNames.toArray(new String[0]);
+        String[] classNames = new String[names.length];
+        values = new String[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            Object value = session.getAttribute(names[i]);
+            classNames[i] = ValueRenderer.className(value);
+            values[i] = valueRenderer.render(value);
+        }
+        sections.add(DumpSection.ofObjects("sessionAttributes", "Session Attributes", names, classNames, values));
     }
 
-    private static void printChar(PrintWriter writer, char ch, int repeat) {
-        for (int i = 0; i < repeat; ++i) {
-            writer.print(ch);
+    private static Charset charset(String characterEncoding) {
+        if (StringUtils.isNotEmpty(characterEncoding)) {
+            try {
+                return Charset.forName(characterEncoding);
+            } catch (IllegalArgumentException e) {
+                // 无法识别的编码按 UTF-8 处理
+            }
         }
+        return StandardCharsets.UTF_8;
     }
 }
@@ -0,0 +1,337 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+/**
+ * {@link LogRequestFilter} 的管理接口，可以在运行时修改输出设置，并查看过滤器自身的开销。
+ * 初始化参数 <strong>jmx</strong> 为 true 时注册到平台 MBeanServer，名称为
+ * <code>net.matrix.web:type=LogRequestFilter,name=过滤器名</code>。
+ * 各设置的含义见 {@link LogRequestFilter} 的同名初始化参数。
+ */
+public interface LogRequestFilterMBean {
+    /**
+     * 是否输出。
+     *
+     * @return 是否输出。
+     */
+    boolean isEnabled();
+
+    /**
+     * 设置是否输出。
+     *
+     * @param enabled
+     *     是否输出。
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * 是否输出请求内容。
+     *
+     * @return 是否输出。
+     */
+    boolean isHasRequest();
+
+    /**
+     * 设置是否输出请求内容。
+     *
+     * @param hasRequest
+     *     是否输出。
+     */
+    void setHasRequest(boolean hasRequest);
+
+    /**
+     * 是否输出响应内容。
+     *
+     * @return 是否输出。
+     */
+    boolean isHasResponse();
+
+    /**
+     * 设置是否输出响应内容。
+     *
+     * @param hasResponse
+     *     是否输出。
+     */
+    void setHasResponse(boolean hasResponse);
+
+    /**
+     * 是否输出会话内容。
+     *
+     * @return 是否输出。
+     */
+    boolean isHasSession();
+
+    /**
+     * 设置是否输出会话内容。
+     *
+     * @param hasSession
+     *     是否输出。
+     */
+    void setHasSession(boolean hasSession);
+
+    /**
+     * 值的最大显示宽度。
+     *
+     * @return 宽度。
+     */
+    int getMaxLength();
+
+    /**
+     * 设置值的最大显示宽度。
+     *
+     * @param maxLength
+     *     宽度。
+     */
+    void setMaxLength(int maxLength);
+
+    /**
+     * 采集时机。
+     *
+     * @return before、after、slow 或 summary。
+     */
+    String getMode();
+
+    /**
+     * 设置采集时机。
+     *
+     * @param mode
+     *     before、after、slow 或 summary。
+     */
+    void setMode(String mode);
+
+    /**
+     * slow 模式下的耗时阈值。
+     *
+     * @return 阈值，单位毫秒。
+     */
+    long getSlowThresholdMillis();
+
+    /**
+     * 设置 slow 模式下的耗时阈值。
+     *
+     * @param slowThresholdMillis
+     *     阈值，单位毫秒。
+     */
+    void setSlowThresholdMillis(long slowThresholdMillis);
+
+    /**
+     * 采集的请求内容。
+     *
+     * @return 采集的请求内容，为空表示默认。
+     */
+    String getFields();
+
+    /**
+     * 设置采集的请求内容。
+     *
+     * @param fields
+     *     采集的请求内容，为空表示默认。
+     */
+    void setFields(String fields);
+
+    /**
+     * 抽样规则。
+     *
+     * @return 抽样规则，为空表示输出所有请求。
+     */
+    String getSampling();
+
+    /**
+     * 设置抽样规则，抽样状态重新开始。
+     *
+     * @param sampling
+     *     抽样规则，为空表示输出所有请求。
+     */
+    void setSampling(String sampling);
+
+    /**
+     * multipart 请求各部分的采集方式。
+     *
+     * @return parse、header 或 scan。
+     */
+    String getPartsMode();
+
+    /**
+     * 设置 multipart 请求各部分的采集方式。
+     *
+     * @param partsMode
+     *     parse、header 或 scan。
+     */
+    void setPartsMode(String partsMode);
+
+    /**
+     * scan 方式复制的最大字节数。
+     *
+     * @return 字节数。
+     */
+    int getPartsScanLimit();
+
+    /**
+     * 设置 scan 方式复制的最大字节数。
+     *
+     * @param partsScanLimit
+     *     字节数。
+     */
+    void setPartsScanLimit(int partsScanLimit);
+
+    /**
+     * 是否输出请求、响应内容的前缀。
+     *
+     * @return 是否输出。
+     */
+    boolean isCaptureBody();
+
+    /**
+     * 设置是否输出请求、响应内容的前缀。
+     *
+     * @param captureBody
+     *     是否输出。
+     */
+    void setCaptureBody(boolean captureBody);
+
+    /**
+     * 每个请求、响应最多输出的内容字节数。
+     *
+     * @return 字节数。
+     */
+    int getBodyMaxBytes();
+
+    /**
+     * 设置每个请求、响应最多输出的内容字节数。
+     *
+     * @param bodyMaxBytes
+     *     字节数。
+     */
+    void setBodyMaxBytes(int bodyMaxBytes);
+
+    /**
+     * 输出内容的内容类型白名单。
+     *
+     * @return 白名单。
+     */
+    String getBodyContentTypes();
+
+    /**
+     * 设置输出内容的内容类型白名单。
+     *
+     * @param bodyContentTypes
+     *     白名单。
+     */
+    void setBodyContentTypes(String bodyContentTypes);
+
+    /**
+     * 请求属性、会话属性的值输出的最大字符数。
+     *
+     * @return 字符数。
+     */
+    int getValueMaxLength();
+
+    /**
+     * 设置请求属性、会话属性的值输出的最大字符数。
+     *
+     * @param valueMaxLength
+     *     字符数。
+     */
+    void setValueMaxLength(int valueMaxLength);
+
+    /**
+     * 每条记录中请求属性、会话属性的值输出的最大总字符数。
+     *
+     * @return 字符数。
+     */
+    int getRecordMaxLength();
+
+    /**
+     * 设置每条记录中请求属性、会话属性的值输出的最大总字符数。
+     *
+     * @param recordMaxLength
+     *     字符数。
+     */
+    void setRecordMaxLength(int recordMaxLength);
+
+    /**
+     * 输出方式。
+     *
+     * @return 逗号分隔的 log、jfr、journal。
+     */
+    String getOutput();
+
+    /**
+     * 设置输出方式。
+     *
+     * @param output
+     *     逗号分隔的 log、jfr、journal。
+     */
+    void setOutput(String output);
+
+    /**
+     * 输出格式，只能在初始化参数中设置。
+     *
+     * @return table 或 json。
+     */
+    String getFormat();
+
+    /**
+     * 是否在后台线程中格式化和输出，只能在初始化参数中设置。
+     *
+     * @return 是否异步输出。
+     */
+    boolean isAsync();
+
+    /**
+     * 已输出的记录数量。
+     *
+     * @return 数量。
+     */
+    long getRecordsWritten();
+
+    /**
+     * 已输出记录的字节数，按 UTF-8 编码计算。
+     *
+     * @return 字节数。
+     */
+    long getBytesWritten();
+
+    /**
+     * 请求线程中格式化并输出记录的耗时分布，异步输出时为提交到缓冲区的耗时。
+     * 第 0 桶为不足 1 微秒，第 i 桶为 [2<sup>i-1</sup>, 2<sup>i</sup>) 微秒，最后一桶包含所有更长的耗时。
+     *
+     * @return 各桶的计数。
+     */
+    long[] getEmitTimeHistogram();
+
+    /**
+     * 请求线程中格式化并输出记录的总耗时，异步输出时为提交到缓冲区的耗时。
+     *
+     * @return 总耗时，单位纳秒。
+     */
+    long getEmitTimeTotalNanos();
+
+    /**
+     * 异步输出时因缓冲区满而丢弃的记录数量。
+     *
+     * @return 数量。
+     */
+    long getAsyncDroppedCount();
+
+    /**
+     * 异步输出时因抽样而丢弃的记录数量。
+     *
+     * @return 数量。
+     */
+    long getAsyncSampledOutCount();
+
+    /**
+     * 异步输出缓冲区中等待输出的记录数量。
+     *
+     * @return 数量。
+     */
+    int getAsyncPendingCount();
+
+    /**
+     * 清零输出记录数量、字符数量和耗时分布。
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,217 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 从 multipart 请求内容的前缀中解析各部分的头信息，不需要完整的请求内容。
+ */
+@ThreadSafe
+final class MultipartScanner {
+    /**
+     * 阻止实例化。
+     */
+    private MultipartScanner() {
+    }
+
+    /**
+     * 从 Content-Type 中读取分隔符。
+     *
+     * @param contentType
+     *     Content-Type。
+     * @return 分隔符，不是 multipart 类型或没有分隔符时返回 null。
+     */
+    @Nullable
+    static String getBoundary(@Nullable String contentType) {
+        if (!isMultipart(contentType)) {
+            return null;
+        }
+
+        String boundary = getParameter(contentType, "boundary");
+        if (StringUtils.isEmpty(boundary)) {
+            return null;
+        }
+        return boundary;
+    }
+
+    /**
+     * 是否为 multipart 类型。
+     *
+     * @param contentType
+     *     Content-Type。
+     * @return 是否为 multipart 类型。
+     */
+    static boolean isMultipart(@Nullable String contentType) {
+        return StringUtils.startsWithIgnoreCase(contentType, "multipart/");
+    }
+
+    /**
+     * 解析请求内容前缀中的各部分。
+     *
+     * @param data
+     *     请求内容前缀。
+     * @param length
+     *     有效长度。
+     * @param boundary
+     *     分隔符。
+     * @return 头信息完整的各部分。
+     */
+    @Nonnull
+    static List<ScannedPart> scan(@Nonnull byte[] data, int length, @Nonnull String boundary) {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        List<ScannedPart> parts = new ArrayList<>();
+
+        int position = indexOf(data, length, delimiter, 0);
+        while (position >= 0) {
+            int headerStart = position + delimiter.length;
+            // 结束分隔符，或者内容不完整
+            if (headerStart + 2 > length || data[headerStart] == '-' && data[headerStart + 1] == '-') {
+                break;
+            }
+            headerStart = skipLineEnd(data, length, headerStart);
+            int headerEnd = indexOf(data, length, new byte[] {
+                '\r', '\n', '\r', '\n'
+            }, headerStart);
+            if (headerEnd < 0) {
+                break;
+            }
+
+            int bodyStart = headerEnd + 4;
+            int next = indexOf(data, length, delimiter, bodyStart);
+            long size = -1;
+            if (next >= 0) {
+                // 去掉分隔符前的换行
+                size = Math.max(next - 2 - bodyStart, 0);
+            }
+            parts.add(new ScannedPart(new String(data, headerStart, headerEnd - headerStart, StandardCharsets.UTF_8), size));
+            position = next;
+        }
+        return parts;
+    }
+
+    private static int skipLineEnd(byte[] data, int length, int position) {
+        if (position < length && data[position] == '\r') {
+            ++position;
+        }
+        if (position < length && data[position] == '\n') {
+            ++position;
+        }
+        return position;
+    }
+
+    private static int indexOf(byte[] data, int length, byte[] target, int from) {
+        int last = length - target.length;
+        outer:
+        for (int i = from; i <= last; ++i) {
+            for (int j = 0; j < target.length; ++j) {
+                if (data[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 读取头信息中的参数，如 <code>name="file"</code>。
+     */
+    private static String getParameter(String header, String name) {
+        for (String item : StringUtils.split(header, ';')) {
+            int equalsIndex = item.indexOf('=');
+            if (equalsIndex < 0 || !item.substring(0, equalsIndex).trim().equalsIgnoreCase(name)) {
+                continue;
+            }
+            String value = item.substring(equalsIndex + 1).trim();
+            if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+        return null;
+    }
+
+    /**
+     * 从前缀中解析出的一个部分。
+     */
+    @Immutable
+    static final class ScannedPart {
+        final String[] headerNames;
+
+        final String[] headerValues;
+
+        /**
+         * 内容字节数，内容超出前缀范围时为 -1。
+         */
+        final long size;
+
+        ScannedPart(String headerBlock, long size) {
+            String[] lines = StringUtils.splitByWholeSeparator(headerBlock, "\r\n");
+            this.headerNames = new String[lines.length];
+            this.headerValues = new String[lines.length];
+            for (int i = 0; i < lines.length; ++i) {
+                int colonIndex = lines[i].indexOf(':');
+                if (colonIndex < 0) {
+                    headerNames[i] = lines[i];
+                    headerValues[i] = "";
+                } else {
+                    headerNames[i] = lines[i].substring(0, colonIndex).trim();
+                    headerValues[i] = lines[i].substring(colonIndex + 1).trim();
+                }
+            }
+            this.size = size;
+        }
+
+        /**
+         * 读取头信息。
+         *
+         * @param name
+         *     名称，不区分大小写。
+         * @return 值。
+         */
+        @Nullable
+        String getHeader(@Nonnull String name) {
+            for (int i = 0; i < headerNames.length; ++i) {
+                if (headerNames[i].equalsIgnoreCase(name)) {
+                    return headerValues[i];
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        String getContentType() {
+            return getHeader("Content-Type");
+        }
+
+        @Nullable
+        String getName() {
+            return getDispositionParameter("name");
+        }
+
+        @Nullable
+        String getSubmittedFileName() {
+            return getDispositionParameter("filename");
+        }
+
+        private String getDispositionParameter(String name) {
+            String disposition = getHeader("Content-Disposition");
+            if (disposition == null) {
+                return null;
+            }
+            return getParameter(disposition, name);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+/**
+ * 异步输出缓冲区满时的处理策略。
+ */
+enum OverflowPolicy {
+    /**
+     * 丢弃新记录。
+     */
+    DROP,
+    /**
+     * 缓冲区超过一半时按比例抽样，满时丢弃。
+     */
+    SAMPLE,
+    /**
+     * 阻塞请求线程，直到缓冲区有空位。
+     */
+    BLOCK
+}
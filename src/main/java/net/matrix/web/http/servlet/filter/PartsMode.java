@@ -0,0 +1,24 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+/**
+ * multipart 请求各部分的采集方式。
+ */
+enum PartsMode {
+    /**
+     * 调用 {@link jakarta.servlet.http.HttpServletRequest#getParts()}，容器会完整解析并缓存请求内容。
+     */
+    PARSE,
+    /**
+     * 只输出 Content-Type 中的分隔符和 Content-Length，不读取请求内容。
+     */
+    HEADER,
+    /**
+     * 在后续处理读取请求内容时复制前面有限的字节，处理完成后从中解析各部分的头信息，不改变请求内容的读取方式。
+     * 只在处理完成后采集的模式下有效，其它模式按 {@link #HEADER} 处理。
+     */
+    SCAN
+}
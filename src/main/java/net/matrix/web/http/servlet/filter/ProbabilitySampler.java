@@ -0,0 +1,43 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 按固定概率抽样。
+ */
+@ThreadSafe
+final class ProbabilitySampler
+    implements RequestSampler {
+    private final double probability;
+
+    /**
+     * 构造。
+     *
+     * @param probability
+     *     抽样概率，0 到 1 之间。
+     */
+    ProbabilitySampler(double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability: " + probability);
+        }
+        this.probability = probability;
+    }
+
+    @Override
+    public boolean sample(@Nonnull String uri, long nanoTime) {
+        if (probability >= 1) {
+            return true;
+        }
+        if (probability <= 0) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextDouble() < probability;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 一次请求的内容快照。
+ * 在请求线程中采集，之后不再修改，格式化可以在其它线程中进行。
+ */
+@Immutable
+final class RequestDump {
+    @Nonnull
+    private final List<DumpSection> sections;
+
+    /**
+     * 构造。
+     *
+     * @param sections
+     *     各节内容，按输出顺序排列。
+     */
+    RequestDump(@Nonnull List<DumpSection> sections) {
+        this.sections = Collections.unmodifiableList(new ArrayList<>(sections));
+    }
+
+    /**
+     * 各节内容。
+     *
+     * @return 各节内容，按输出顺序排列。
+     */
+    @Nonnull
+    List<DumpSection> getSections() {
+        return sections;
+    }
+}
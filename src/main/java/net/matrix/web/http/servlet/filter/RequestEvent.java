@@ -0,0 +1,44 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 每个 HTTP 请求一条的 JFR 事件，由 {@link LogRequestFilter} 输出。
+ * 开始时间、耗时和处理线程由 JFR 自动记录。默认不启用，需要在 JFR 配置中启用
+ * <code>net.matrix.web.HttpRequest</code>，可以同时设置 threshold 只记录慢请求。
+ */
+@Name("net.matrix.web.HttpRequest")
+@Label("HTTP Request")
+@Category({
+    "Matrix", "Web"
+})
+@Description("HTTP request processed by LogRequestFilter")
+@StackTrace(false)
+final class RequestEvent
+    extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Status")
+    int status;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Session Id")
+    String sessionId;
+}
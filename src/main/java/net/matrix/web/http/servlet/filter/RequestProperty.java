@@ -0,0 +1,83 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Collections;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 可以输出的请求属性。
+ */
+enum RequestProperty {
+    CHARACTER_ENCODING("CharacterEncoding", HttpServletRequest::getCharacterEncoding),
+    CONTENT_LENGTH("ContentLength", request -> Long.toString(request.getContentLengthLong())),
+    CONTENT_TYPE("ContentType", HttpServletRequest::getContentType),
+    PROTOCOL("Protocol", HttpServletRequest::getProtocol),
+    SCHEME("Scheme", HttpServletRequest::getScheme),
+    SERVER_NAME("ServerName", HttpServletRequest::getServerName),
+    SERVER_PORT("ServerPort", request -> Integer.toString(request.getServerPort())),
+    REMOTE_ADDR("RemoteAddr", HttpServletRequest::getRemoteAddr),
+    /**
+     * 可能触发反向 DNS 解析，默认不输出。
+     */
+    REMOTE_HOST("RemoteHost", HttpServletRequest::getRemoteHost, true),
+    LOCALE("Locale", request -> request.getLocale().toString()),
+    LOCALES("Locales", request -> Collections.list(request.getLocales()).toString()),
+    SECURE("Secure", request -> Boolean.toString(request.isSecure())),
+    REMOTE_PORT("RemotePort", request -> Integer.toString(request.getRemotePort())),
+    /**
+     * 可能触发反向 DNS 解析，默认不输出。
+     */
+    LOCAL_NAME("LocalName", HttpServletRequest::getLocalName, true),
+    LOCAL_ADDR("LocalAddr", HttpServletRequest::getLocalAddr),
+    LOCAL_PORT("LocalPort", request -> Integer.toString(request.getLocalPort())),
+    METHOD("Method", HttpServletRequest::getMethod),
+    PATH_INFO("PathInfo", HttpServletRequest::getPathInfo),
+    CONTEXT_PATH("ContextPath", HttpServletRequest::getContextPath),
+    QUERY_STRING("QueryString", HttpServletRequest::getQueryString),
+    REQUESTED_SESSION_ID("RequestedSessionId", HttpServletRequest::getRequestedSessionId),
+    REQUEST_URI("RequestURI", HttpServletRequest::getRequestURI),
+    SERVLET_PATH("ServletPath", HttpServletRequest::getServletPath);
+
+    /**
+     * 输出时使用的名称。
+     */
+    @Nonnull
+    final String displayName;
+
+    /**
+     * 是否可能触发反向 DNS 解析。
+     */
+    final boolean resolving;
+
+    private final Function<HttpServletRequest, String> accessor;
+
+    RequestProperty(String displayName, Function<HttpServletRequest, String> accessor) {
+        this(displayName, accessor, false);
+    }
+
+    RequestProperty(String displayName, Function<HttpServletRequest, String> accessor, boolean resolving) {
+        this.displayName = displayName;
+        this.accessor = accessor;
+        this.resolving = resolving;
+    }
+
+    /**
+     * 读取属性值。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @return 属性值。
+     */
+    @Nullable
+    String get(@Nonnull HttpServletRequest request) {
+        return accessor.apply(request);
+    }
+}
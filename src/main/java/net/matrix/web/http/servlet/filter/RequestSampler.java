@@ -0,0 +1,24 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 决定是否输出某个请求的详细内容。
+ * 对不输出的请求只调用一次本接口，实现必须足够轻量。
+ */
+interface RequestSampler {
+    /**
+     * 是否输出请求的详细内容。
+     *
+     * @param uri
+     *     请求 URI。
+     * @param nanoTime
+     *     当前 {@link System#nanoTime()}。
+     * @return 是否输出。
+     */
+    boolean sample(@Nonnull String uri, long nanoTime);
+}
@@ -0,0 +1,327 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 按请求形态汇总请求数量、响应状态和耗时分布。
+ * 请求形态由请求方法、归一化的路径模板和排序后的查询参数名组成，例如 <code>GET /users/{id} ?fields,page</code>。
+ * 形态数量达到上限后，新的形态计入 {@link #OTHER}。
+ */
+@ThreadSafe
+final class RequestShapeAggregator {
+    /**
+     * 超出形态数量上限的请求的形态。
+     */
+    static final String OTHER = "(other)";
+
+    /**
+     * 路径中被替换的标识段。
+     */
+    static final String ID_SEGMENT = "{id}";
+
+    /**
+     * 按长度判断为标识的最短路径段。
+     */
+    private static final int MIN_TOKEN_LENGTH = 16;
+
+    private final int maxShapes;
+
+    private volatile Window window = new Window();
+
+    /**
+     * 构造。
+     *
+     * @param maxShapes
+     *     一个汇总周期内最多区分的形态数量。
+     */
+    RequestShapeAggregator(int maxShapes) {
+        this.maxShapes = Math.max(maxShapes, 1);
+    }
+
+    /**
+     * 记录一个请求。
+     *
+     * @param method
+     *     请求方法。
+     * @param requestUri
+     *     请求 URI。
+     * @param queryString
+     *     查询字符串。
+     * @param status
+     *     响应状态。
+     * @param nanos
+     *     耗时，单位纳秒。
+     * @param failed
+     *     处理是否抛出异常。
+     */
+    void record(@Nonnull String method, @Nonnull String requestUri, @Nullable String queryString, int status, long nanos, boolean failed) {
+        String shape = shapeOf(method, requestUri, queryString);
+        Window current = window;
+        ShapeStats stats = current.stats.get(shape);
+        if (stats == null) {
+            stats = current.newStats(shape, maxShapes);
+        }
+        stats.record(status, nanos, failed);
+    }
+
+    /**
+     * 取出当前周期的汇总并开始新的周期。取出时仍在记录的少量请求可能丢失。
+     *
+     * @param title
+     *     汇总表标题。
+     * @return 汇总表，当前周期没有请求时返回 null。
+     */
+    @Nullable
+    DumpSection drain(@Nonnull String title) {
+        Window previous = window;
+        window = new Window();
+        if (previous.stats.isEmpty()) {
+            return null;
+        }
+
+        List<Map.Entry<String, ShapeStats>> entries = new ArrayList<>(previous.stats.entrySet());
+        long[] counts = new long[entries.size()];
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = entries.get(i).getValue().count.sum();
+            order[i] = i;
+        }
+        // 按请求数量从多到少排列
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> counts[i]).reversed());
+        String[] names = new String[order.length];
+        String[] values = new String[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            Map.Entry<String, ShapeStats> entry = entries.get(order[i]);
+            names[i] = entry.getKey();
+            values[i] = entry.getValue().describe(counts[order[i]]);
+        }
+        return DumpSection.ofStrings("summary", title, names, values);
+    }
+
+    /**
+     * 计算请求形态。
+     *
+     * @param method
+     *     请求方法。
+     * @param requestUri
+     *     请求 URI。
+     * @param queryString
+     *     查询字符串。
+     * @return 请求形态。
+     */
+    @Nonnull
+    static String shapeOf(@Nonnull String method, @Nonnull String requestUri, @Nullable String queryString) {
+        StringBuilder sb = new StringBuilder(method.length() + requestUri.length() + 16);
+        sb.append(method).append(' ');
+        appendPathTemplate(sb, requestUri);
+        if (StringUtils.isNotEmpty(queryString)) {
+            TreeSet<String> parameterNames = new TreeSet<>();
+            int start = 0;
+            while (start <= queryString.length()) {
+                int end = queryString.indexOf('&', start);
+                if (end < 0) {
+                    end = queryString.length();
+                }
+                int equals = queryString.indexOf('=', start);
+                int nameEnd = equals >= 0 && equals < end ? equals : end;
+                if (nameEnd > start) {
+                    parameterNames.add(queryString.substring(start, nameEnd));
+                }
+                start = end + 1;
+            }
+            if (!parameterNames.isEmpty()) {
+                sb.append(" ?").append(String.join(",", parameterNames));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把路径中的数字、UUID 和较长的编码标识替换为 {@link #ID_SEGMENT}。
+     */
+    private static void appendPathTemplate(StringBuilder sb, String path) {
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (isIdentifier(path, start, end)) {
+                sb.append(ID_SEGMENT);
+            } else {
+                sb.append(path, start, end);
+            }
+            if (end < path.length()) {
+                sb.append('/');
+            }
+            start = end + 1;
+        }
+    }
+
+    private static boolean isIdentifier(String path, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return false;
+        }
+        boolean hasDigit = false;
+        boolean allDigits = true;
+        boolean tokenChars = true;
+        for (int i = start; i < end; ++i) {
+            char ch = path.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                hasDigit = true;
+            } else {
+                allDigits = false;
+                if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch == '-' || ch == '_')) {
+                    tokenChars = false;
+                }
+            }
+        }
+        // UUID、十六进制摘要、Base64URL 编码的标识都由字母数字和连字符组成
+        return allDigits || hasDigit && tokenChars && length >= MIN_TOKEN_LENGTH;
+    }
+
+    /**
+     * 一个汇总周期。
+     */
+    private static final class Window {
+        final ConcurrentHashMap<String, ShapeStats> stats = new ConcurrentHashMap<>();
+
+        final AtomicInteger size = new AtomicInteger();
+
+        ShapeStats newStats(String shape, int maxShapes) {
+            if (size.get() >= maxShapes) {
+                return stats.computeIfAbsent(OTHER, key -> new ShapeStats());
+            }
+            ShapeStats created = new ShapeStats();
+            ShapeStats existing = stats.putIfAbsent(shape, created);
+            if (existing != null) {
+                return existing;
+            }
+            if (size.incrementAndGet() > maxShapes) {
+                // 并发创建超出上限，撤回并计入其它
+                stats.remove(shape, created);
+                return stats.computeIfAbsent(OTHER, key -> new ShapeStats());
+            }
+            return created;
+        }
+    }
+
+    /**
+     * 一个形态的统计。
+     */
+    private static final class ShapeStats {
+        final LongAdder count = new LongAdder();
+
+        final LongAdder failed = new LongAdder();
+
+        /**
+         * 按 1xx 至 5xx 分类的响应状态数量。
+         */
+        final LongAdder[] statusClasses = new LongAdder[5];
+
+        final TimeHistogram latency = new TimeHistogram();
+
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        ShapeStats() {
+            for (int i = 0; i < statusClasses.length; ++i) {
+                statusClasses[i] = new LongAdder();
+            }
+        }
+
+        void record(int status, long nanos, boolean failed) {
+            count.increment();
+            if (failed) {
+                this.failed.increment();
+            } else if (status >= 100 && status < 600) {
+                statusClasses[status / 100 - 1].increment();
+            }
+            latency.record(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        String describe(long total) {
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("count=").append(total);
+            for (int i = 0; i < statusClasses.length; ++i) {
+                long statusCount = statusClasses[i].sum();
+                if (statusCount > 0) {
+                    sb.append(' ').append(i + 1).append("xx=").append(statusCount);
+                }
+            }
+            long failedCount = failed.sum();
+            if (failedCount > 0) {
+                sb.append(" error=").append(failedCount);
+            }
+            long[] buckets = latency.getCounts();
+            long bucketTotal = 0;
+            for (long bucket : buckets) {
+                bucketTotal += bucket;
+            }
+            if (bucketTotal > 0) {
+                sb.append(" avg=");
+                appendMillis(sb, latency.getTotalNanos() / bucketTotal);
+                sb.append(" p50<=");
+                appendBucketBound(sb, buckets, bucketTotal, 0.5);
+                sb.append(" p99<=");
+                appendBucketBound(sb, buckets, bucketTotal, 0.99);
+                sb.append(" max=");
+                appendMillis(sb, maxNanos.get());
+            }
+            return sb.toString();
+        }
+
+        /**
+         * 输出分位数所在桶的上界，最后一桶没有上界，输出最大值。
+         */
+        private void appendBucketBound(StringBuilder sb, long[] buckets, long total, double quantile) {
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; ++i) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    if (i == buckets.length - 1) {
+                        appendMillis(sb, maxNanos.get());
+                    } else {
+                        appendMillis(sb, (1L << i) * 1000);
+                    }
+                    return;
+                }
+            }
+            appendMillis(sb, maxNanos.get());
+        }
+
+        private static void appendMillis(StringBuilder sb, long nanos) {
+            long micros = nanos / 1000;
+            sb.append(micros / 1000).append('.');
+            long fraction = micros % 1000;
+            if (fraction < 100) {
+                sb.append('0');
+            }
+            if (fraction < 10) {
+                sb.append('0');
+            }
+            sb.append(fraction).append("ms");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 采集的请求属性和参数，不做排序和格式化，在确定需要输出时再生成输出内容。
+ * 完整采集会调用采集计划中的每个属性访问方法并复制参数表，读取参数可能触发容器解析表单内容，
+ * 在后续处理之前采集时，后续处理再读取请求内容已经读不到表单内容。
+ * 只在处理完成后才确定是否输出时，先采集请求到达时的基本属性，确定输出时再补充其余内容。
+ */
+@Immutable
+final class RequestSnapshot {
+    /**
+     * 基本属性。
+     */
+    private static final Set<RequestProperty> BASIC_PROPERTIES = EnumSet.of(RequestProperty.METHOD, RequestProperty.REQUEST_URI,
+        RequestProperty.QUERY_STRING, RequestProperty.REMOTE_ADDR);
+
+    /**
+     * 采集时使用的采集计划。
+     */
+    @Nonnull
+    final CapturePlan plan;
+
+    /**
+     * 请求属性的值，与 {@link CapturePlan#properties} 一一对应。
+     */
+    @Nonnull
+    final String[] propertyValues;
+
+    /**
+     * 参数名和参数值，未采集参数时为 null。
+     */
+    @Nullable
+    final Map<String, String[]> parameters;
+
+    /**
+     * 是否只采集了基本属性。
+     */
+    private final boolean partial;
+
+    private RequestSnapshot(CapturePlan plan, String[] propertyValues, Map<String, String[]> parameters, boolean partial) {
+        this.plan = plan;
+        this.propertyValues = propertyValues;
+        this.parameters = parameters;
+        this.partial = partial;
+    }
+
+    /**
+     * 采集请求属性和参数。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param plan
+     *     采集计划。
+     * @return 采集结果。
+     */
+    @Nonnull
+    static RequestSnapshot capture(@Nonnull HttpServletRequest request, @Nonnull CapturePlan plan) {
+        String[] propertyValues = new String[plan.properties.length];
+        for (int i = 0; i < propertyValues.length; ++i) {
+            propertyValues[i] = plan.properties[i].get(request);
+        }
+        return new RequestSnapshot(plan, propertyValues, captureParameters(request, plan), false);
+    }
+
+    /**
+     * 只采集采集计划中的基本属性：请求方法、URI、查询字符串和客户端地址，这些值在请求到达时已经确定，读取时没有额外开销。
+     * 其余内容由 {@link #complete(HttpServletRequest)} 补充。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param plan
+     *     采集计划。
+     * @return 采集结果。
+     */
+    @Nonnull
+    static RequestSnapshot captureBasic(@Nonnull HttpServletRequest request, @Nonnull CapturePlan plan) {
+        String[] propertyValues = new String[plan.properties.length];
+        for (int i = 0; i < propertyValues.length; ++i) {
+            if (BASIC_PROPERTIES.contains(plan.properties[i])) {
+                propertyValues[i] = plan.properties[i].get(request);
+            }
+        }
+        return new RequestSnapshot(plan, propertyValues, null, true);
+    }
+
+    /**
+     * 补充只采集了基本属性时未采集的请求属性和参数。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @return 完整的采集结果，已经完整采集时返回自身。
+     */
+    @Nonnull
+    RequestSnapshot complete(@Nonnull HttpServletRequest request) {
+        if (!partial) {
+            return this;
+        }
+        String[] values = propertyValues.clone();
+        for (int i = 0; i < values.length; ++i) {
+            if (!BASIC_PROPERTIES.contains(plan.properties[i])) {
+                values[i] = plan.properties[i].get(request);
+            }
+        }
+        return new RequestSnapshot(plan, values, captureParameters(request, plan), false);
+    }
+
+    private static Map<String, String[]> captureParameters(HttpServletRequest request, CapturePlan plan) {
+        if (!plan.parameters) {
+            return null;
+        }
+        Map<String, String[]> parameters = new HashMap<>();
+        for (Enumeration<String> names = request.getParameterNames(); names.hasMoreElements();) {
+            String name = names.nextElement();
+            parameters.put(name, request.getParameterValues(name));
+        }
+        return parameters;
+    }
+}
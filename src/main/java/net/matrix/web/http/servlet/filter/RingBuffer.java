@@ -0,0 +1,136 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 有界无锁环形缓冲区，支持多个生产者、单个消费者。
+ * 每个槽位带有序号，生产者通过 CAS 领取位置，满时立即返回失败而不等待。
+ *
+ * @param <E>
+ *     元素类型。
+ */
+@ThreadSafe
+final class RingBuffer<E> {
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 只由消费者线程修改。
+     */
+    private volatile long head;
+
+    /**
+     * 构造。
+     *
+     * @param capacity
+     *     容量，向上取整为 2 的幂。
+     */
+    RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 容量。
+     *
+     * @return 容量。
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 当前元素数量的近似值。
+     *
+     * @return 元素数量。
+     */
+    int size() {
+        long size = tail.get() - head;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity());
+    }
+
+    /**
+     * 是否为空。
+     *
+     * @return 是否为空。
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * 加入元素。
+     *
+     * @param element
+     *     元素。
+     * @return 缓冲区已满时返回 false。
+     */
+    boolean offer(@Nonnull E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出元素，只能由消费者线程调用。
+     *
+     * @return 元素，缓冲区为空时返回 null。
+     */
+    @Nullable
+    E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 按请求路径选择抽样策略。
+ * 规则之间用分号或换行分隔，形式为 <code>路径模式=策略:参数</code>，按声明顺序匹配第一个符合的规则，
+ * 没有符合的规则时输出请求。路径模式与 Servlet 的 url-pattern 相同，匹配不含上下文路径的请求路径：
+ * <ul>
+ * <li><code>/a/b</code> - 完全匹配。</li>
+ * <li><code>/a/*</code> - 前缀匹配，<code>/*</code> 匹配所有请求。</li>
+ * <li><code>*.do</code> - 扩展名匹配。</li>
+ * <li><code>/</code> - 匹配所有请求。</li>
+ * </ul>
+ * 策略：
+ * <ul>
+ * <li><code>rate:0.01</code> - 按固定概率抽样。</li>
+ * <li><code>perSecond:5</code> - 每秒最多输出若干个请求。</li>
+ * <li><code>firstPerUri:3</code> - 每个不同的 URI 每分钟只输出前若干个请求。</li>
+ * </ul>
+ * 例如 <code>/api/*=rate:0.01;/upload/*=perSecond:5;/*=firstPerUri:3</code>。
+ */
+@ThreadSafe
+final class SamplingRules {
+    /**
+     * firstPerUri 策略每分钟记录的 URI 数量上限。
+     */
+    static final int MAX_URIS = 10000;
+
+    private final Rule[] rules;
+
+    private SamplingRules(List<Rule> rules) {
+        this.rules = rules.toArray(new Rule[0]);
+    }
+
+    /**
+     * 解析规则。
+     *
+     * @param value
+     *     规则配置。
+     * @param nanoTime
+     *     当前 {@link System#nanoTime()}。
+     * @return 规则，配置为空时返回 null。
+     * @throws IllegalArgumentException
+     *     规则格式错误。
+     */
+    @Nullable
+    static SamplingRules parse(@Nullable String value, long nanoTime) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (String item : StringUtils.split(value, ";\r\n")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int equalsIndex = item.lastIndexOf('=');
+            int colonIndex = item.indexOf(':', equalsIndex + 1);
+            if (equalsIndex <= 0 || colonIndex < 0) {
+                throw new IllegalArgumentException("Invalid sampling rule: " + item);
+            }
+            String pattern = item.substring(0, equalsIndex).trim();
+            String strategy = item.substring(equalsIndex + 1, colonIndex).trim();
+            String argument = item.substring(colonIndex + 1).trim();
+            rules.add(new Rule(pattern, createSampler(strategy, argument, nanoTime)));
+        }
+        return new SamplingRules(rules);
+    }
+
+    private static RequestSampler createSampler(String strategy, String argument, long nanoTime) {
+        switch (strategy) {
+        case "rate":
+            return new ProbabilitySampler(Double.parseDouble(argument));
+        case "perSecond":
+            return new TokenBucketSampler(Integer.parseInt(argument), nanoTime);
+        case "firstPerUri":
+            return new FirstPerUriSampler(Integer.parseInt(argument), MAX_URIS, nanoTime);
+        default:
+            throw new IllegalArgumentException("Unknown sampling strategy: " + strategy);
+        }
+    }
+
+    /**
+     * 是否输出请求的详细内容。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param nanoTime
+     *     当前 {@link System#nanoTime()}。
+     * @return 是否输出。
+     */
+    boolean sample(@Nonnull HttpServletRequest request, long nanoTime) {
+        String uri = request.getRequestURI();
+        int offset = StringUtils.length(request.getContextPath());
+        if (offset > uri.length()) {
+            offset = 0;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(uri, offset)) {
+                return rule.sampler.sample(uri, nanoTime);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 路径模式和对应的抽样策略。
+     */
+    private static final class Rule {
+        /**
+         * 模式类型。
+         */
+        private enum Type {
+            EXACT, PREFIX, EXTENSION, ALL
+        }
+
+        private final Type type;
+
+        /**
+         * 完全匹配时为整个路径，前缀匹配时为不含 <code>/*</code> 的前缀，扩展名匹配时为包含点号的扩展名。
+         */
+        private final String text;
+
+        final RequestSampler sampler;
+
+        Rule(String pattern, RequestSampler sampler) {
+            if ("/".equals(pattern) || "/*".equals(pattern)) {
+                this.type = Type.ALL;
+                this.text = "";
+            } else if (pattern.startsWith("*.")) {
+                this.type = Type.EXTENSION;
+                this.text = pattern.substring(1);
+            } else if (pattern.endsWith("/*")) {
+                this.type = Type.PREFIX;
+                this.text = pattern.substring(0, pattern.length() - 2);
+            } else {
+                this.type = Type.EXACT;
+                this.text = pattern;
+            }
+            this.sampler = sampler;
+        }
+
+        /**
+         * 请求路径是否符合模式。
+         *
+         * @param uri
+         *     请求 URI。
+         * @param offset
+         *     请求路径在 URI 中的开始位置，即上下文路径长度。
+         * @return 是否符合。
+         */
+        boolean matches(String uri, int offset) {
+            int length = uri.length() - offset;
+            switch (type) {
+            case ALL:
+                return true;
+            case EXTENSION:
+                return uri.endsWith(text);
+            case PREFIX:
+                return length >= text.length() && uri.startsWith(text, offset)
+                    && (length == text.length() || uri.charAt(offset + text.length()) == '/');
+            default:
+                return length == text.length() && uri.startsWith(text, offset);
+            }
+        }
+    }
+}
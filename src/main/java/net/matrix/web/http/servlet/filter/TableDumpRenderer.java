@@ -0,0 +1,260 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 把请求内容快照格式化为文本表格。
+ * 直接追加到调用者提供的缓冲区，边框和填充使用预先生成的字符串批量追加，不产生中间对象。
+ */
+@ThreadSafe
+final class TableDumpRenderer
+    implements DumpRenderer {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(LogRequestFilter.class).useCurrentLocale();
+
+    /**
+     * 换行符，与 {@link java.io.PrintWriter#println()} 一致。
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * 批量追加的字符串长度。
+     */
+    private static final int RUN_LENGTH = 128;
+
+    private static final String DASHES = "-".repeat(RUN_LENGTH);
+
+    private static final String SPACES = " ".repeat(RUN_LENGTH);
+
+    private final int maxLength;
+
+    /**
+     * 构造。
+     *
+     * @param maxLength
+     *     值的最大显示宽度，超出部分折行。
+     */
+    TableDumpRenderer(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void render(@Nonnull RequestDump dump, @Nonnull StringBuilder out) {
+        out.append(LINE_SEPARATOR);
+        out.append(RBMF.get("============================== 请求内容开始 ======================================")).append(LINE_SEPARATOR);
+        for (DumpSection section : dump.getSections()) {
+            dumpSection(out, section);
+        }
+        out.append(RBMF.get("============================== 请求内容结束 ======================================"));
+    }
+
+    private void dumpSection(StringBuilder out, DumpSection section) {
+        switch (section.kind) {
+        case STRING_MAP:
+            dumpStringMap(out, section);
+            break;
+        case OBJECT_MAP:
+            dumpObjectMap(out, section);
+            break;
+        default:
+            out.append(section.title);
+            out.append(section.values[0]).append(LINE_SEPARATOR);
+            break;
+        }
+        if (section.detail != null) {
+            dumpSection(out, section.detail);
+        }
+    }
+
+    private void dumpStringMap(StringBuilder out, DumpSection section) {
+        String title = section.title;
+        int size = section.size();
+        int maxNameLen = 0;
+        int maxValueLen = 0;
+        int totalLen = title.length();
+        if (size > 0) {
+            for (int i = 0; i < size; ++i) {
+                int nameLen = section.names[i].length();
+                int valueLen = valueOf(section, i).length();
+                if (nameLen > maxNameLen) {
+                    maxNameLen = nameLen;
+                }
+                if (valueLen <= maxLength && valueLen > maxValueLen) {
+                    maxValueLen = valueLen;
+                } else if (valueLen > maxLength) {
+                    maxValueLen = maxLength;
+                }
+            }
+            if (maxNameLen + maxValueLen + 1 > totalLen) {
+                totalLen = maxNameLen + maxValueLen + 1;
+            } else {
+                maxValueLen = totalLen - (maxNameLen + 1);
+            }
+        }
+        appendBorder(out, totalLen);
+        out.append('|').append(title);
+        appendRun(out, SPACES, totalLen - title.length());
+        out.append('|').append(LINE_SEPARATOR);
+        if (size == 0) {
+            appendBorder(out, totalLen);
+        } else {
+            appendBorder(out, maxNameLen, maxValueLen);
+            for (int j = 0; j < size; ++j) {
+                String name = section.names[j];
+                String value = valueOf(section, j);
+                out.append('|').append(name);
+                appendRun(out, SPACES, maxNameLen - name.length());
+                out.append('|');
+                int linNum = lineCount(value);
+                if (linNum == 0) {
+                    appendRun(out, SPACES, maxValueLen);
+                    out.append('|').append(LINE_SEPARATOR);
+                }
+                for (int i = 0; i < linNum; ++i) {
+                    if (i < linNum - 1) {
+                        out.append(value, i * maxLength, (i + 1) * maxLength);
+                        out.append('|').append(LINE_SEPARATOR);
+                        out.append('|');
+                        appendRun(out, SPACES, maxNameLen);
+                        out.append('|');
+                    } else if (linNum > 1) {
+                        out.append(value, i * maxLength, value.length());
+                        appendRun(out, SPACES, (i + 1) * maxLength - value.length());
+                        out.append('|').append(LINE_SEPARATOR);
+                    } else {
+                        out.append(value);
+                        appendRun(out, SPACES, maxValueLen - value.length());
+                        out.append('|').append(LINE_SEPARATOR);
+                    }
+                }
+            }
+            appendBorder(out, maxNameLen, maxValueLen);
+        }
+    }
+
+    private void dumpObjectMap(StringBuilder out, DumpSection section) {
+        String title = section.title;
+        int size = section.size();
+        int maxNameLen = 0;
+        int maxClassLen = 0;
+        int maxValueLen = title.length();
+        if (size > 0) {
+            for (int i = 0; i < size; ++i) {
+                int nameLen = section.names[i].length();
+                int classLen = classNameOf(section, i).length();
+                int valueLen = valueOf(section, i).length();
+                if (nameLen > maxNameLen) {
+                    maxNameLen = nameLen;
+                }
+                if (classLen > maxClassLen) {
+                    maxClassLen = classLen;
+                }
+                if (valueLen <= maxLength && valueLen > maxValueLen) {
+                    maxValueLen = valueLen;
+                } else if (valueLen > maxLength) {
+                    maxValueLen = maxLength;
+                }
+            }
+            if (maxNameLen + maxClassLen + 1 > maxValueLen) {
+                maxValueLen = maxNameLen + maxClassLen + 1;
+            } else {
+                maxClassLen = maxValueLen - (maxNameLen + 1);
+            }
+        }
+        appendBorder(out, maxValueLen);
+        out.append('|').append(title);
+        appendRun(out, SPACES, maxValueLen - title.length());
+        out.append('|').append(LINE_SEPARATOR);
+        if (size == 0) {
+            appendBorder(out, maxValueLen);
+        } else {
+            appendBorder(out, maxNameLen, maxClassLen);
+            for (int j = 0; j < size; ++j) {
+                String name = section.names[j];
+                String className = classNameOf(section, j);
+                String value = valueOf(section, j);
+                out.append('|').append(name);
+                appendRun(out, SPACES, maxNameLen - name.length());
+                out.append('|').append(className);
+                appendRun(out, SPACES, maxClassLen - className.length());
+                out.append('|').append(LINE_SEPARATOR);
+                int linNum = lineCount(value);
+                if (linNum == 0) {
+                    appendRun(out, SPACES, maxValueLen);
+                    out.append('|').append(LINE_SEPARATOR);
+                }
+                for (int i = 0; i < linNum; ++i) {
+                    out.append('|');
+                    if (i < linNum - 1) {
+                        out.append(value, i * maxLength, (i + 1) * maxLength);
+                        out.append('|').append(LINE_SEPARATOR);
+                    } else if (linNum > 1) {
+                        out.append(value, i * maxLength, value.length());
+                        appendRun(out, SPACES, (i + 1) * maxLength - value.length());
+                        out.append('|').append(LINE_SEPARATOR);
+                    } else {
+                        out.append(value);
+                        appendRun(out, SPACES, maxValueLen - value.length());
+                        out.append('|').append(LINE_SEPARATOR);
+                    }
+                }
+            }
+            appendBorder(out, maxValueLen);
+        }
+    }
+
+    private static String valueOf(DumpSection section, int index) {
+        String value = section.values[index];
+        return value == null ? "(null)" : value;
+    }
+
+    private static String classNameOf(DumpSection section, int index) {
+        String className = section.classNames[index];
+        return className == null ? "(n/a)" : className;
+    }
+
+    /**
+     * 值折行后的行数。
+     */
+    private int lineCount(String value) {
+        int linNum = value.length() / maxLength;
+        if (value.length() % maxLength != 0) {
+            ++linNum;
+        }
+        return linNum;
+    }
+
+    private static void appendBorder(StringBuilder out, int width) {
+        out.append('+');
+        appendRun(out, DASHES, width);
+        out.append('+').append(LINE_SEPARATOR);
+    }
+
+    private static void appendBorder(StringBuilder out, int width1, int width2) {
+        out.append('+');
+        appendRun(out, DASHES, width1);
+        out.append('+');
+        appendRun(out, DASHES, width2);
+        out.append('+').append(LINE_SEPARATOR);
+    }
+
+    /**
+     * 追加重复字符，按预先生成的字符串分段批量追加。
+     */
+    private static void appendRun(StringBuilder out, String run, int repeat) {
+        while (repeat > 0) {
+            int count = Math.min(repeat, RUN_LENGTH);
+            out.append(run, 0, count);
+            repeat -= count;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * 在后续处理读取请求内容时，把前面有限字节复制到缓冲区池中的定长缓冲区的 HTTP 请求包装。
+ * 不预先读取，也不改变读取方式，请求内容照常流向后续处理。
+ */
+final class TeeRequestWrapper
+    extends HttpServletRequestWrapper {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final BodyBufferPool pool;
+
+    private byte[] captured = EMPTY;
+
+    private int capturedLength;
+
+    private long bytesRead;
+
+    private TeeInputStream inputStream;
+
+    /**
+     * 包装请求。
+     *
+     * @param request
+     *     原请求。
+     * @param pool
+     *     缓冲区池，缓冲区大小即最多复制的字节数。
+     */
+    TeeRequestWrapper(@Nonnull HttpServletRequest request, @Nonnull BodyBufferPool pool) {
+        super(request);
+        this.pool = pool;
+    }
+
+    @Override
+    public ServletInputStream getInputStream()
+        throws IOException {
+        if (inputStream == null) {
+            // 只有读取请求内容时才取得缓冲区
+            captured = pool.acquire();
+            inputStream = new TeeInputStream(getRequest().getInputStream());
+        }
+        return inputStream;
+    }
+
+    /**
+     * 已复制的内容，有效长度见 {@link #getCapturedLength()}。
+     *
+     * @return 已复制的内容。
+     */
+    @Nonnull
+    byte[] getCaptured() {
+        return captured;
+    }
+
+    /**
+     * 已复制的字节数。
+     *
+     * @return 字节数。
+     */
+    int getCapturedLength() {
+        return capturedLength;
+    }
+
+    /**
+     * 后续处理已读取的字节数。
+     *
+     * @return 字节数。
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * 把缓冲区归还缓冲区池，之后不能再使用已复制的内容。
+     */
+    void release() {
+        if (captured != EMPTY) {
+            pool.release(captured);
+            captured = EMPTY;
+            capturedLength = 0;
+        }
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        bytesRead += len;
+        int count = Math.min(len, captured.length - capturedLength);
+        if (count > 0) {
+            System.arraycopy(b, off, captured, capturedLength, count);
+            capturedLength += count;
+        }
+    }
+
+    /**
+     * 复制读取内容的输入流。
+     */
+    private final class TeeInputStream
+        extends ServletInputStream {
+        private final ServletInputStream source;
+
+        TeeInputStream(ServletInputStream source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read()
+            throws IOException {
+            int b = source.read();
+            if (b >= 0) {
+                ++bytesRead;
+                if (capturedLength < captured.length) {
+                    captured[capturedLength++] = (byte) b;
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+            throws IOException {
+            int count = source.read(b, off, len);
+            if (count > 0) {
+                capture(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public int available()
+            throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close()
+            throws IOException {
+            source.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return source.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return source.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+    }
+}
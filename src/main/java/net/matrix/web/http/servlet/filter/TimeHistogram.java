@@ -0,0 +1,81 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 按 2 的幂次微秒分桶的耗时分布。
+ * 第 0 桶为不足 1 微秒，第 i 桶为 [2<sup>i-1</sup>, 2<sup>i</sup>) 微秒，最后一桶包含所有更长的耗时。
+ */
+@ThreadSafe
+final class TimeHistogram {
+    /**
+     * 桶数量，最后一桶从 2<sup>19</sup> 微秒（约 0.5 秒）开始。
+     */
+    static final int BUCKET_COUNT = 21;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * 构造。
+     */
+    TimeHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时。
+     *
+     * @param nanos
+     *     耗时，单位纳秒。
+     */
+    void record(long nanos) {
+        long micros = nanos / 1000;
+        int index = micros <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+        buckets[index].increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * 各桶的计数。并发记录时各桶之间不保证一致。
+     *
+     * @return 各桶的计数。
+     */
+    @Nonnull
+    long[] getCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * 总耗时。
+     *
+     * @return 总耗时，单位纳秒。
+     */
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * 清零。
+     */
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 每秒最多输出指定数量的请求。
+ * 以无锁方式实现令牌桶：只记录下一个令牌的理论到达时间，每次判断最多一次 CAS，桶容量为一秒的令牌数。
+ */
+@ThreadSafe
+final class TokenBucketSampler
+    implements RequestSampler {
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    /**
+     * 下一个令牌的理论到达时间。
+     */
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * 构造。
+     *
+     * @param permitsPerSecond
+     *     每秒输出数量。
+     * @param nanoTime
+     *     当前 {@link System#nanoTime()}，桶初始为满。
+     */
+    TokenBucketSampler(int permitsPerSecond, long nanoTime) {
+        if (permitsPerSecond < 1) {
+            throw new IllegalArgumentException("permitsPerSecond: " + permitsPerSecond);
+        }
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.burstNanos = intervalNanos * permitsPerSecond;
+        this.theoreticalArrival = new AtomicLong(nanoTime - burstNanos);
+    }
+
+    @Override
+    public boolean sample(@Nonnull String uri, long nanoTime) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nanoTime - burstNanos) + intervalNanos;
+            if (next - nanoTime > 0) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+}
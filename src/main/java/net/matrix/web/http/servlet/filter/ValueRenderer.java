@@ -0,0 +1,243 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 限制长度的对象字符串形式，用于请求属性和会话属性。
+ * 数组、集合和 Map 逐个元素输出，达到长度限制后立即停止，不会完整生成字符串；基本类型数组不装箱。
+ * 每个值有单独的长度限制，同一条记录中的所有值共享总长度限制。每条记录使用一个实例。
+ */
+@NotThreadSafe
+final class ValueRenderer {
+    /**
+     * 截断标记。
+     */
+    static final String TRUNCATED = "...";
+
+    /**
+     * 类型名缓存。
+     */
+    private static final ClassValue<String> CLASS_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.toString();
+        }
+    };
+
+    private final int maxValueLength;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private int remaining;
+
+    private int limit;
+
+    /**
+     * 构造。
+     *
+     * @param maxValueLength
+     *     每个值的最大长度。
+     * @param maxRecordLength
+     *     所有值的最大总长度。
+     */
+    ValueRenderer(int maxValueLength, int maxRecordLength) {
+        this.maxValueLength = maxValueLength;
+        this.remaining = maxRecordLength;
+    }
+
+    /**
+     * 对象类型名，同一类型重复使用同一字符串。
+     *
+     * @param obj
+     *     对象。
+     * @return 类型名，对象为 null 时返回 null。
+     */
+    @Nullable
+    static String className(@Nullable Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        return CLASS_NAMES.get(obj.getClass());
+    }
+
+    /**
+     * 生成对象的字符串形式，超出长度限制的部分以 {@link #TRUNCATED} 代替。
+     *
+     * @param obj
+     *     对象。
+     * @return 字符串形式，对象为 null 时返回 null。
+     */
+    @Nullable
+    String render(@Nullable Object obj) {
+        if (obj == null) {
+            return null;
+        }
+
+        limit = Math.min(maxValueLength, remaining);
+        buffer.setLength(0);
+        append(obj);
+        if (buffer.length() > limit) {
+            buffer.setLength(limit);
+            buffer.append(TRUNCATED);
+        }
+        remaining -= Math.min(buffer.length(), remaining);
+        return buffer.toString();
+    }
+
+    /**
+     * 同一记录中剩余的长度。
+     *
+     * @return 剩余长度。
+     */
+    int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * 是否已超出长度限制。超出时多保留一个字符，用于判断是否截断。
+     */
+    private boolean isFull() {
+        return buffer.length() > limit;
+    }
+
+    private void appendText(@Nonnull CharSequence text) {
+        int count = Math.min(text.length(), limit + 1 - buffer.length());
+        if (count > 0) {
+            buffer.append(text, 0, count);
+        }
+    }
+
+    private void append(Object obj) {
+        if (obj == null) {
+            appendText("null");
+        } else if (obj instanceof CharSequence) {
+            appendText((CharSequence) obj);
+        } else if (obj.getClass().isArray()) {
+            appendArray(obj);
+        } else if (obj instanceof Collection) {
+            appendCollection((Collection<?>) obj);
+        } else if (obj instanceof Map) {
+            appendMap((Map<?, ?>) obj);
+        } else {
+            appendText(obj.toString());
+        }
+    }
+
+    private void appendCollection(Collection<?> collection) {
+        buffer.append('[');
+        Iterator<?> iterator = collection.iterator();
+        boolean first = true;
+        while (iterator.hasNext() && !isFull()) {
+            if (!first) {
+                appendText(", ");
+            }
+            first = false;
+            Object element = iterator.next();
+            if (element == collection) {
+                appendText("(this Collection)");
+            } else {
+                append(element);
+            }
+        }
+        appendText("]");
+    }
+
+    private void appendMap(Map<?, ?> map) {
+        buffer.append('{');
+        Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+        boolean first = true;
+        while (iterator.hasNext() && !isFull()) {
+            if (!first) {
+                appendText(", ");
+            }
+            first = false;
+            Map.Entry<?, ?> entry = iterator.next();
+            Object key = entry.getKey();
+            append(key == map ? "(this Map)" : key);
+            appendText("=");
+            Object value = entry.getValue();
+            append(value == map ? "(this Map)" : value);
+        }
+        appendText("}");
+    }
+
+    private void appendArray(Object array) {
+        buffer.append('[');
+        if (array instanceof Object[]) {
+            Object[] objects = (Object[]) array;
+            for (int i = 0; i < objects.length && !isFull(); ++i) {
+                appendSeparator(i);
+                if (objects[i] == array) {
+                    appendText("[...]");
+                } else {
+                    append(objects[i]);
+                }
+            }
+        } else if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof byte[]) {
+            byte[] values = (byte[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof char[]) {
+            char[] values = (char[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof short[]) {
+            short[] values = (short[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] values = (boolean[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof double[]) {
+            double[] values = (double[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        } else if (array instanceof float[]) {
+            float[] values = (float[]) array;
+            for (int i = 0; i < values.length && !isFull(); ++i) {
+                appendSeparator(i);
+                buffer.append(values[i]);
+            }
+        }
+        appendText("]");
+    }
+
+    private void appendSeparator(int index) {
+        if (index > 0) {
+            appendText(", ");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableListMultimap;
+
+/**
+ * 请求记录的二进制编码，整数为大端序。
+ * 字符串为 4 字节的 UTF-8 字节数加内容，-1 表示 null。记录内容依次为：
+ * <ol>
+ * <li>请求方法、请求 URI、查询字符串；</li>
+ * <li>4 字节的请求头数量，每个值一对名称和值；</li>
+ * <li>4 字节的请求参数数量，每个值一对名称和值；</li>
+ * <li>4 字节的请求内容长度，-1 表示没有采集，之后是请求内容。</li>
+ * </ol>
+ */
+@ThreadSafe
+final class JournalCodec {
+    /**
+     * 阻止实例化。
+     */
+    private JournalCodec() {
+    }
+
+    /**
+     * 编码记录内容，不含记录头。
+     *
+     * @param record
+     *     记录。
+     * @param out
+     *     输出缓冲区。
+     */
+    static void encode(@Nonnull JournalRecord record, @Nonnull Encoder out) {
+        out.putString(record.getMethod());
+        out.putString(record.getRequestUri());
+        out.putString(record.getQueryString());
+        out.putInt(record.getHeaders().size());
+        for (Map.Entry<String, String> entry : record.getHeaders().entries()) {
+            out.putString(entry.getKey());
+            out.putString(entry.getValue());
+        }
+        out.putInt(record.getParameters().size());
+        for (Map.Entry<String, String> entry : record.getParameters().entries()) {
+            out.putString(entry.getKey());
+            out.putString(entry.getValue());
+        }
+        byte[] body = record.body();
+        if (body == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(body.length);
+            out.put(body, 0, body.length);
+        }
+    }
+
+    /**
+     * 解码记录内容。
+     *
+     * @param timestamp
+     *     记录头中的请求时间。
+     * @param in
+     *     记录内容。
+     * @return 记录。
+     */
+    @Nonnull
+    static JournalRecord decode(long timestamp, @Nonnull ByteBuffer in) {
+        String method = getString(in);
+        String requestUri = getString(in);
+        String queryString = getString(in);
+        int headerCount = in.getInt();
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+        for (int i = 0; i < headerCount; ++i) {
+            headers.put(getString(in), getString(in));
+        }
+        int parameterCount = in.getInt();
+        ImmutableListMultimap.Builder<String, String> parameters = ImmutableListMultimap.builder();
+        for (int i = 0; i < parameterCount; ++i) {
+            parameters.put(getString(in), getString(in));
+        }
+        int bodyLength = in.getInt();
+        byte[] body = null;
+        if (bodyLength >= 0) {
+            body = new byte[bodyLength];
+            in.get(body);
+        }
+        return new JournalRecord(timestamp, method, requestUri, queryString, headers.build(), parameters.build(), body);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * 可重用的编码缓冲区。
+     */
+    @NotThreadSafe
+    static final class Encoder {
+        private byte[] buffer;
+
+        private int length;
+
+        Encoder(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        byte[] array() {
+            return buffer;
+        }
+
+        int length() {
+            return length;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        void putInt(int value) {
+            ensureCapacity(4);
+            buffer[length] = (byte) (value >>> 24);
+            buffer[length + 1] = (byte) (value >>> 16);
+            buffer[length + 2] = (byte) (value >>> 8);
+            buffer[length + 3] = (byte) value;
+            length += 4;
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            put(bytes, 0, bytes.length);
+        }
+
+        void put(byte[] bytes, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(bytes, offset, buffer, length, count);
+            length += count;
+        }
+
+        private void ensureCapacity(int count) {
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+        }
+    }
+}
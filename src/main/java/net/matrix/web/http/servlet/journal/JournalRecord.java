@@ -0,0 +1,234 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * 一条请求记录，包含重放请求所需的内容。
+ */
+@Immutable
+public final class JournalRecord {
+    /**
+     * 默认隐去值的请求头，小写。
+     */
+    public static final ImmutableSet<String> DEFAULT_REDACTED_HEADERS = ImmutableSet.of("authorization", "proxy-authorization", "cookie");
+
+    /**
+     * 隐去的请求头的值。
+     */
+    public static final String REDACTED = "[REDACTED]";
+
+    private final long timestamp;
+
+    private final String method;
+
+    private final String requestUri;
+
+    private final String queryString;
+
+    private final ImmutableListMultimap<String, String> headers;
+
+    private final ImmutableListMultimap<String, String> parameters;
+
+    private final byte[] body;
+
+    /**
+     * 构造。
+     *
+     * @param timestamp
+     *     请求时间，自 1970-01-01T00:00:00Z 起的毫秒数。
+     * @param method
+     *     请求方法。
+     * @param requestUri
+     *     请求 URI，不含查询字符串。
+     * @param queryString
+     *     查询字符串。
+     * @param headers
+     *     请求头，同名请求头的多个值按顺序排列。
+     * @param parameters
+     *     请求参数，同名参数的多个值按顺序排列。
+     * @param body
+     *     请求内容，可能只是前缀。数组归属于新对象，调用者不能再修改。
+     */
+    public JournalRecord(long timestamp, @Nonnull String method, @Nonnull String requestUri, @Nullable String queryString,
+        @Nonnull ImmutableListMultimap<String, String> headers, @Nonnull ImmutableListMultimap<String, String> parameters, @Nullable byte[] body) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.requestUri = requestUri;
+        this.queryString = queryString;
+        this.headers = headers;
+        this.parameters = parameters;
+        this.body = body;
+    }
+
+    /**
+     * 从 HTTP 请求中采集记录，隐去 {@link #DEFAULT_REDACTED_HEADERS} 中请求头的值。请求参数在调用时读取，表单请求的内容可能因此被容器解析。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param timestamp
+     *     请求时间，自 1970-01-01T00:00:00Z 起的毫秒数。
+     * @param body
+     *     请求内容。
+     * @param bodyLength
+     *     请求内容的有效长度，小于 0 表示没有采集请求内容。
+     * @return 记录。
+     */
+    @Nonnull
+    public static JournalRecord capture(@Nonnull HttpServletRequest request, long timestamp, @Nullable byte[] body, int bodyLength) {
+        return capture(request, timestamp, body, bodyLength, DEFAULT_REDACTED_HEADERS);
+    }
+
+    /**
+     * 从 HTTP 请求中采集记录。请求参数在调用时读取，表单请求的内容可能因此被容器解析。
+     * 记录会写入磁盘，凭据类请求头只保留名称，值替换为 {@link #REDACTED}。
+     *
+     * @param request
+     *     HTTP 请求。
+     * @param timestamp
+     *     请求时间，自 1970-01-01T00:00:00Z 起的毫秒数。
+     * @param body
+     *     请求内容。
+     * @param bodyLength
+     *     请求内容的有效长度，小于 0 表示没有采集请求内容。
+     * @param redactedHeaders
+     *     隐去值的请求头，小写。
+     * @return 记录。
+     */
+    @Nonnull
+    public static JournalRecord capture(@Nonnull HttpServletRequest request, long timestamp, @Nullable byte[] body, int bodyLength,
+        @Nonnull Set<String> redactedHeaders) {
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        if (headerNames != null) {
+            for (String name : Collections.list(headerNames)) {
+                boolean redacted = redactedHeaders.contains(name.toLowerCase(Locale.ROOT));
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    headers.put(name, redacted ? REDACTED : value);
+                }
+            }
+        }
+
+        ImmutableListMultimap.Builder<String, String> parameters = ImmutableListMultimap.builder();
+        for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+            for (String value : entry.getValue()) {
+                parameters.put(entry.getKey(), value);
+            }
+        }
+
+        byte[] bodyCopy = null;
+        if (body != null && bodyLength >= 0) {
+            bodyCopy = new byte[bodyLength];
+            System.arraycopy(body, 0, bodyCopy, 0, bodyLength);
+        }
+        return new JournalRecord(timestamp, request.getMethod(), request.getRequestURI(), request.getQueryString(), headers.build(),
+            parameters.build(), bodyCopy);
+    }
+
+    /**
+     * 请求时间。
+     *
+     * @return 自 1970-01-01T00:00:00Z 起的毫秒数。
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 请求方法。
+     *
+     * @return 请求方法。
+     */
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * 请求 URI。
+     *
+     * @return 请求 URI，不含查询字符串。
+     */
+    @Nonnull
+    public String getRequestUri() {
+        return requestUri;
+    }
+
+    /**
+     * 查询字符串。
+     *
+     * @return 查询字符串。
+     */
+    @Nullable
+    public String getQueryString() {
+        return queryString;
+    }
+
+    /**
+     * 请求头。
+     *
+     * @return 请求头，同名请求头的多个值按顺序排列。
+     */
+    @Nonnull
+    public ImmutableListMultimap<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 请求参数。
+     *
+     * @return 请求参数，同名参数的多个值按顺序排列。
+     */
+    @Nonnull
+    public ImmutableListMultimap<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * 请求内容。
+     *
+     * @return 请求内容的副本，没有采集时为 null。
+     */
+    @Nullable
+    public byte[] getBody() {
+        if (body == null) {
+            return null;
+        }
+        return body.clone();
+    }
+
+    /**
+     * 请求内容的长度。
+     *
+     * @return 长度，没有采集时为 -1。
+     */
+    public int getBodyLength() {
+        if (body == null) {
+            return -1;
+        }
+        return body.length;
+    }
+
+    /**
+     * 请求内容，不复制。
+     */
+    byte[] body() {
+        return body;
+    }
+}
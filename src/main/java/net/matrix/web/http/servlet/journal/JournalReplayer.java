@@ -0,0 +1,220 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在进程内重放 {@link RequestJournal} 记录的请求，用于压力测试。
+ * 请求按记录顺序发出，由多个线程并发处理，可以限制每秒发出的请求数量。
+ * 请求中没有会话和身份认证信息，响应内容只统计字节数后丢弃。
+ */
+@ThreadSafe
+public final class JournalReplayer {
+    private static final Logger LOG = LoggerFactory.getLogger(JournalReplayer.class);
+
+    private final Supplier<? extends FilterChain> chainFactory;
+
+    private final int concurrency;
+
+    private final double requestsPerSecond;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder serverErrorCount = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    /**
+     * 构造。
+     *
+     * @param chainFactory
+     *     为每个请求提供过滤器链，无状态的过滤器链可以重复使用。
+     * @param concurrency
+     *     并发处理的请求数量。
+     * @param requestsPerSecond
+     *     每秒发出的请求数量，不大于 0 表示不限制。
+     */
+    public JournalReplayer(@Nonnull Supplier<? extends FilterChain> chainFactory, int concurrency, double requestsPerSecond) {
+        this.chainFactory = chainFactory;
+        this.concurrency = Math.max(concurrency, 1);
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * 构造直接由 Servlet 处理请求的重放工具。
+     *
+     * @param servlet
+     *     已初始化的 Servlet。
+     * @param concurrency
+     *     并发处理的请求数量。
+     * @param requestsPerSecond
+     *     每秒发出的请求数量，不大于 0 表示不限制。
+     * @return 重放工具。
+     */
+    @Nonnull
+    public static JournalReplayer forServlet(@Nonnull Servlet servlet, int concurrency, double requestsPerSecond) {
+        FilterChain chain = servlet::service;
+        return new JournalReplayer(() -> chain, concurrency, requestsPerSecond);
+    }
+
+    /**
+     * 构造重放记录时使用的请求，不依赖容器，可以在其它工具中单独使用。
+     *
+     * @param record
+     *     记录。
+     * @return 请求。
+     */
+    @Nonnull
+    public static HttpServletRequest newRequest(@Nonnull JournalRecord record) {
+        return new ReplayRequest(record);
+    }
+
+    /**
+     * 构造重放记录时使用的响应，只统计写出的字节数，丢弃内容。
+     *
+     * @return 响应。
+     */
+    @Nonnull
+    public static HttpServletResponse newResponse() {
+        return new ReplayResponse();
+    }
+
+    /**
+     * 重放目录中的所有记录，等待全部处理完成后返回。
+     *
+     * @param directory
+     *     记录目录。
+     * @return 发出的请求数量。
+     * @throws IOException
+     *     读取记录失败。
+     * @throws InterruptedException
+     *     等待时被中断。
+     */
+    public long replay(@Nonnull Path directory)
+        throws IOException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "JournalReplayer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore permits = new Semaphore(concurrency);
+        long intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        long count = 0;
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            long nextNanos = System.nanoTime();
+            JournalRecord record = reader.read();
+            while (record != null) {
+                if (intervalNanos > 0) {
+                    long delay = nextNanos - System.nanoTime();
+                    while (delay > 0) {
+                        LockSupport.parkNanos(this, delay);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                        delay = nextNanos - System.nanoTime();
+                    }
+                    nextNanos += intervalNanos;
+                }
+
+                permits.acquire();
+                JournalRecord current = record;
+                executor.execute(() -> {
+                    try {
+                        execute(current);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                ++count;
+                record = reader.read();
+            }
+
+            // 等待所有请求处理完成
+            permits.acquire(concurrency);
+            permits.release(concurrency);
+        } finally {
+            executor.shutdownNow();
+        }
+        return count;
+    }
+
+    private void execute(JournalRecord record) {
+        ReplayRequest request = new ReplayRequest(record);
+        ReplayResponse response = new ReplayResponse();
+        requestCount.increment();
+        try {
+            chainFactory.get().doFilter(request, response);
+            if (response.getStatus() >= 500) {
+                serverErrorCount.increment();
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            errorCount.increment();
+            LOG.debug("", e);
+        } finally {
+            bytesWritten.add(response.getBytesWritten());
+        }
+    }
+
+    /**
+     * 已处理的请求数量。
+     *
+     * @return 数量。
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * 处理时抛出异常的请求数量。
+     *
+     * @return 数量。
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 响应状态为 5xx 的请求数量。
+     *
+     * @return 数量。
+     */
+    public long getServerErrorCount() {
+        return serverErrorCount.sum();
+    }
+
+    /**
+     * 写出的响应内容字节数。
+     *
+     * @return 字节数。
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+}
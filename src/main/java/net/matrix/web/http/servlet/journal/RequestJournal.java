@@ -0,0 +1,255 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 把请求记录追加到滚动的内存映射分段文件中。
+ * 分段文件创建时即映射为固定大小，开头是 {@value #SEGMENT_HEADER_SIZE} 字节的分段头（魔数、版本、创建时间），
+ * 之后每条记录是 {@value #RECORD_HEADER_SIZE} 字节的记录头（内容长度、内容的 CRC32C、请求时间）加内容，内容格式见 {@link JournalCodec}。
+ * 内容长度为 0 表示分段结束。写满后创建新的分段文件，超过保留数量时删除最旧的分段文件。
+ * 追加时不同步到磁盘，映射的内存页由操作系统回写，需要持久化时调用 {@link #flush()}。
+ * 编码在调用线程中进行，只有复制到映射内存的过程需要加锁。
+ */
+@ThreadSafe
+public final class RequestJournal
+    implements Closeable {
+    /**
+     * 分段文件魔数，ASCII 的 MXRJ。
+     */
+    static final int SEGMENT_MAGIC = 0x4D58524A;
+
+    /**
+     * 格式版本。
+     */
+    static final int VERSION = 1;
+
+    /**
+     * 分段头字节数。
+     */
+    static final int SEGMENT_HEADER_SIZE = 16;
+
+    /**
+     * 记录头字节数。
+     */
+    static final int RECORD_HEADER_SIZE = 16;
+
+    /**
+     * 分段文件名前缀。
+     */
+    static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * 分段文件名后缀。
+     */
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * 每个线程重用的编码缓冲区。
+     */
+    private static final ThreadLocal<JournalCodec.Encoder> ENCODER = ThreadLocal.withInitial(() -> new JournalCodec.Encoder(1024));
+
+    /**
+     * 编码缓冲区超过此容量时不再重用。
+     */
+    private static final int MAX_RETAINED_ENCODER_CAPACITY = 64 * 1024;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+
+    private MappedByteBuffer segment;
+
+    private boolean closed;
+
+    private final LongAdder appendedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * 打开目录中的记录。已有的分段文件保留，新记录写入新的分段文件。
+     *
+     * @param directory
+     *     目录，不存在时创建。
+     * @param segmentSize
+     *     分段文件大小。
+     * @param maxSegments
+     *     最多保留的分段文件数量。
+     * @throws IOException
+     *     读取目录失败。
+     */
+    public RequestJournal(@Nonnull Path directory, int segmentSize, int maxSegments)
+        throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(maxSegments, 1);
+        Files.createDirectories(directory);
+        for (Path path : listSegments(directory)) {
+            segments.addLast(path);
+            nextSequence = Math.max(nextSequence, sequenceOf(path) + 1);
+        }
+    }
+
+    /**
+     * 按顺序列出目录中的分段文件。
+     *
+     * @param directory
+     *     目录。
+     * @return 分段文件。
+     * @throws IOException
+     *     读取目录失败。
+     */
+    @Nonnull
+    static List<Path> listSegments(@Nonnull Path directory)
+        throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        // 序号定长，按文件名排序即按序号排序
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 追加记录。
+     *
+     * @param record
+     *     记录。
+     * @return 是否追加，记录超过分段文件容量或已关闭时返回 false。
+     * @throws IOException
+     *     创建分段文件失败。
+     */
+    public boolean append(@Nonnull JournalRecord record)
+        throws IOException {
+        JournalCodec.Encoder encoder = ENCODER.get();
+        encoder.reset();
+        JournalCodec.encode(record, encoder);
+        int length = encoder.length();
+        CRC32C crc = new CRC32C();
+        crc.update(encoder.array(), 0, length);
+        boolean appended = write(encoder.array(), length, (int) crc.getValue(), record.getTimestamp());
+        if (encoder.capacity() > MAX_RETAINED_ENCODER_CAPACITY) {
+            ENCODER.remove();
+        }
+        if (appended) {
+            appendedCount.increment();
+        } else {
+            droppedCount.increment();
+        }
+        return appended;
+    }
+
+    private synchronized boolean write(byte[] payload, int length, int checksum, long timestamp)
+        throws IOException {
+        // 留出一个记录头的空间写入结束标记
+        int required = RECORD_HEADER_SIZE + length;
+        if (closed || SEGMENT_HEADER_SIZE + required > segmentSize - Integer.BYTES) {
+            return false;
+        }
+        if (segment == null || segment.remaining() - Integer.BYTES < required) {
+            roll();
+        }
+
+        int start = segment.position();
+        segment.position(start + Integer.BYTES);
+        segment.putInt(checksum);
+        segment.putLong(timestamp);
+        segment.put(payload, 0, length);
+        // 最后写入长度，读取方不会看到写了一半的记录
+        segment.putInt(start, length);
+        return true;
+    }
+
+    private void roll()
+        throws IOException {
+        // 不在请求线程中同步整个分段，写满的分段由操作系统回写
+        Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 关闭通道后映射仍然有效
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(System.currentTimeMillis());
+        segments.addLast(path);
+
+        while (segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+    }
+
+    /**
+     * 把已追加的记录写入磁盘。
+     */
+    public synchronized void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        segment = null;
+        closed = true;
+    }
+
+    /**
+     * 已追加的记录数量。
+     *
+     * @return 数量。
+     */
+    public long getAppendedCount() {
+        return appendedCount.sum();
+    }
+
+    /**
+     * 因超过分段文件容量或已关闭而丢弃的记录数量。
+     *
+     * @return 数量。
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
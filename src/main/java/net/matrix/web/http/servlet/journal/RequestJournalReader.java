@@ -0,0 +1,114 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.zip.CRC32C;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 按顺序读取 {@link RequestJournal} 写入的分段文件。
+ * 遇到校验失败的记录时认为该分段文件在此结束，继续读取下一个分段文件。
+ */
+@NotThreadSafe
+public final class RequestJournalReader
+    implements Closeable {
+    private final Iterator<Path> paths;
+
+    private MappedByteBuffer segment;
+
+    /**
+     * 打开目录中当前已有的分段文件。
+     *
+     * @param directory
+     *     目录。
+     * @throws IOException
+     *     读取目录失败。
+     */
+    public RequestJournalReader(@Nonnull Path directory)
+        throws IOException {
+        this.paths = RequestJournal.listSegments(directory).iterator();
+    }
+
+    /**
+     * 读取下一条记录。
+     *
+     * @return 记录，没有更多记录时返回 null。
+     * @throws IOException
+     *     读取失败或不是分段文件。
+     */
+    @Nullable
+    public JournalRecord read()
+        throws IOException {
+        while (true) {
+            if (segment == null) {
+                if (!paths.hasNext()) {
+                    return null;
+                }
+                segment = open(paths.next());
+            }
+
+            JournalRecord record = readRecord(segment);
+            if (record != null) {
+                return record;
+            }
+            segment = null;
+        }
+    }
+
+    private static MappedByteBuffer open(Path path)
+        throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < RequestJournal.SEGMENT_HEADER_SIZE || buffer.getInt() != RequestJournal.SEGMENT_MAGIC) {
+            throw new IOException("Not a journal segment: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != RequestJournal.VERSION) {
+            throw new IOException("Unsupported journal version " + version + ": " + path);
+        }
+        // 创建时间
+        buffer.getLong();
+        return buffer;
+    }
+
+    private static JournalRecord readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < RequestJournal.RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining() - (RequestJournal.RECORD_HEADER_SIZE - Integer.BYTES)) {
+            return null;
+        }
+        int checksum = buffer.getInt();
+        long timestamp = buffer.getLong();
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return JournalCodec.decode(timestamp, ByteBuffer.wrap(payload));
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+    }
+}
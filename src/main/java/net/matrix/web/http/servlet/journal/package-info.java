@@ -0,0 +1,8 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+/**
+ * HTTP 请求的二进制记录与重放。
+ */
+package net.matrix.web.http.servlet.journal;
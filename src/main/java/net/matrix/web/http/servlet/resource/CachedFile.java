@@ -0,0 +1,137 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 缓存的文件，也用于记录不存在的文件。
+ */
+@ThreadSafe
+final class CachedFile {
+    private final Path path;
+
+    private final long size;
+
+    private final long lastModified;
+
+    @Nullable
+    private final String etag;
+
+    /**
+     * 只读的文件内容，文件过大不缓存时为 null。
+     */
+    @Nullable
+    private final ByteBuffer content;
+
+    /**
+     * 最后一次检查文件是否变化的时间，由 {@link System#nanoTime()} 获取。
+     */
+    private volatile long checkTime;
+
+    private CachedFile(Path path, long size, long lastModified, @Nullable ByteBuffer content, long checkTime) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.etag = size < 0 ? null : "\"" + Long.toHexString(size) + '-' + Long.toHexString(lastModified) + '"';
+        this.content = content;
+        this.checkTime = checkTime;
+    }
+
+    /**
+     * 存在的文件。
+     */
+    static CachedFile of(Path path, long size, long lastModified, @Nullable ByteBuffer content, long checkTime) {
+        return new CachedFile(path, size, lastModified, content, checkTime);
+    }
+
+    /**
+     * 不存在的文件。
+     */
+    static CachedFile missing(Path path, long checkTime) {
+        return new CachedFile(path, -1, -1, null, checkTime);
+    }
+
+    boolean exists() {
+        return size >= 0;
+    }
+
+    boolean isCached() {
+        return content != null;
+    }
+
+    /**
+     * 与文件系统中的状态是否一致。
+     */
+    boolean matches(long currentSize, long currentLastModified) {
+        return size == currentSize && lastModified == currentLastModified;
+    }
+
+    long getCheckTime() {
+        return checkTime;
+    }
+
+    void setCheckTime(long checkTime) {
+        this.checkTime = checkTime;
+    }
+
+    @Nonnull
+    Path getPath() {
+        return path;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    @Nullable
+    String getEtag() {
+        return etag;
+    }
+
+    /**
+     * 输出文件内容，已缓存时从内存映射输出，否则使用 {@link FileChannel#transferTo(long, long, WritableByteChannel)} 从文件输出。
+     *
+     * @param out
+     *     输出目标。
+     * @throws IOException
+     *     读取文件或输出失败。
+     */
+    void writeTo(@Nonnull OutputStream out)
+        throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        if (content != null) {
+            ByteBuffer buffer = content.duplicate();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("File truncated: " + path);
+                }
+                position += transferred;
+            }
+        }
+    }
+}
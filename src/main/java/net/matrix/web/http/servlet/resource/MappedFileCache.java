@@ -0,0 +1,165 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 以内存映射缓存文件内容，按最近最少使用淘汰，总大小不超过上限。
+ * 同一文件在检查间隔内不再读取文件属性，超过间隔后按大小和最后修改时间判断文件是否变化，变化时重新映射。
+ * 不存在的文件同样缓存，避免重复查找预压缩文件。
+ * 映射期间文件被截断时读取映射会出错，更新文件应先写入临时文件再替换。
+ */
+@ThreadSafe
+final class MappedFileCache {
+    /**
+     * 最多缓存的条目数量，包括不存在的文件。
+     */
+    static final int MAX_ENTRIES = 10000;
+
+    private final long maxSize;
+
+    private final long maxFileSize;
+
+    private final long checkIntervalNanos;
+
+    private final Map<Path, CachedFile> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 已映射的总字节数。
+     */
+    private long size;
+
+    /**
+     * 构造器。
+     *
+     * @param maxSize
+     *     映射的总字节数上限。
+     * @param maxFileSize
+     *     映射的单个文件字节数上限，更大的文件不映射。
+     * @param checkInterval
+     *     检查文件变化的间隔毫秒数，为 0 时每次都检查。
+     */
+    MappedFileCache(long maxSize, long maxFileSize, long checkInterval) {
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(maxFileSize, maxSize);
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkInterval);
+    }
+
+    /**
+     * 获取文件。
+     *
+     * @param path
+     *     文件路径。
+     * @return 文件，不存在或不是普通文件时为 null。
+     * @throws IOException
+     *     读取文件失败。
+     */
+    @Nullable
+    CachedFile get(@Nonnull Path path)
+        throws IOException {
+        long now = System.nanoTime();
+        CachedFile cached;
+        synchronized (this) {
+            cached = entries.get(path);
+        }
+        if (cached != null && now - cached.getCheckTime() < checkIntervalNanos) {
+            return cached.exists() ? cached : null;
+        }
+
+        BasicFileAttributes attributes = readAttributes(path);
+        CachedFile current;
+        if (attributes == null) {
+            if (cached != null && !cached.exists()) {
+                cached.setCheckTime(now);
+                return null;
+            }
+            current = CachedFile.missing(path, now);
+        } else {
+            long fileSize = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (cached != null && cached.matches(fileSize, lastModified)) {
+                cached.setCheckTime(now);
+                return cached;
+            }
+            current = CachedFile.of(path, fileSize, lastModified, fileSize <= maxFileSize ? map(path, fileSize) : null, now);
+        }
+        put(current);
+        return current.exists() ? current : null;
+    }
+
+    private synchronized void put(CachedFile file) {
+        CachedFile previous = entries.put(file.getPath(), file);
+        if (previous != null && previous.isCached()) {
+            size -= previous.getSize();
+        }
+        if (file.isCached()) {
+            size += file.getSize();
+        }
+        Iterator<CachedFile> iterator = entries.values().iterator();
+        while ((size > maxSize || entries.size() > MAX_ENTRIES) && iterator.hasNext()) {
+            CachedFile eldest = iterator.next();
+            if (eldest == file) {
+                continue;
+            }
+            iterator.remove();
+            if (eldest.isCached()) {
+                size -= eldest.getSize();
+            }
+        }
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(Path path)
+        throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return attributes.isRegularFile() ? attributes : null;
+    }
+
+    private static ByteBuffer map(Path path, long fileSize)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            // 映射在通道关闭后仍然有效，由垃圾回收释放
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * 已映射的总字节数。
+     *
+     * @return 字节数。
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 缓存的条目数量。
+     *
+     * @return 数量。
+     */
+    synchronized int entryCount() {
+        return entries.size();
+    }
+}
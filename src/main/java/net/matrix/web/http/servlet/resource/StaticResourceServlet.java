@@ -0,0 +1,229 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.annotation.Nullable;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.HttpServletMx;
+import net.matrix.web.http.servlet.Precondition;
+
+/**
+ * 输出目录中的静态文件。
+ * 请求路径取自 {@link HttpServletRequest#getPathInfo()}，常用映射方式为 <code>/reports/*</code>。
+ * 文件内容以内存映射缓存，按最近最少使用淘汰；按文件大小和最后修改时间生成强 ETag，通过 {@link HttpServletMx#checkPreconditions} 处理条件请求。
+ * 客户端的 Accept-Encoding 请求头接受 br 或 gzip 时，优先输出同目录下的 <code>.br</code> 或 <code>.gz</code> 预压缩文件，
+ * 最后修改时间早于原文件的预压缩文件视为已过期，不输出。
+ * 支持以下初始化参数：
+ * <ul>
+ * <li><strong>directory</strong> - 文件所在目录，必须设置。</li>
+ * <li><strong>maxCacheSize</strong> - 缓存的总字节数上限，默认 67108864。</li>
+ * <li><strong>maxFileSize</strong> - 缓存的单个文件字节数上限，默认 1048576。更大的文件每次从文件输出。</li>
+ * <li><strong>checkInterval</strong> - 检查文件变化的间隔毫秒数，默认 1000，为 0 时每次请求都检查。</li>
+ * <li><strong>cacheControl</strong> - Cache-Control 响应头，默认不设置。</li>
+ * </ul>
+ */
+public class StaticResourceServlet
+    extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 默认缓存的总字节数上限。
+     */
+    private static final long DEFAULT_MAX_CACHE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 默认缓存的单个文件字节数上限。
+     */
+    private static final long DEFAULT_MAX_FILE_SIZE = 1024L * 1024;
+
+    /**
+     * 默认检查文件变化的间隔毫秒数。
+     */
+    private static final long DEFAULT_CHECK_INTERVAL = 1000;
+
+    /**
+     * 默认内容类型。
+     */
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private transient Path directory;
+
+    private long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+    private long checkInterval = DEFAULT_CHECK_INTERVAL;
+
+    @Nullable
+    private String cacheControl;
+
+    private transient MappedFileCache cache;
+
+    @Override
+    public void init()
+        throws ServletException {
+        if (StringUtils.isEmpty(getInitParameter("directory"))) {
+            throw new ServletException("Init parameter directory is required");
+        }
+        this.directory = Paths.get(getInitParameter("directory")).toAbsolutePath().normalize();
+        if (StringUtils.isNotEmpty(getInitParameter("maxCacheSize"))) {
+            this.maxCacheSize = Long.parseLong(getInitParameter("maxCacheSize"));
+        }
+        if (StringUtils.isNotEmpty(getInitParameter("maxFileSize"))) {
+            this.maxFileSize = Long.parseLong(getInitParameter("maxFileSize"));
+        }
+        if (StringUtils.isNotEmpty(getInitParameter("checkInterval"))) {
+            this.checkInterval = Long.parseLong(getInitParameter("checkInterval"));
+        }
+        if (StringUtils.isNotEmpty(getInitParameter("cacheControl"))) {
+            this.cacheControl = getInitParameter("cacheControl");
+        }
+        this.cache = new MappedFileCache(maxCacheSize, maxFileSize, checkInterval);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        serve(request, response, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        serve(request, response, false);
+    }
+
+    private void serve(HttpServletRequest request, HttpServletResponse response, boolean content)
+        throws IOException {
+        Path file = resolve(request.getPathInfo());
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        CachedFile source = cache.get(file);
+        CachedFile resource = null;
+        String contentEncoding = null;
+        if (HttpServletMx.acceptsEncoding(request, "br")) {
+            resource = precompressed(file, ".br", source);
+            contentEncoding = "br";
+        }
+        if (resource == null && HttpServletMx.acceptsEncoding(request, "gzip")) {
+            resource = precompressed(file, ".gz", source);
+            contentEncoding = "gzip";
+        }
+        if (resource == null) {
+            resource = source;
+            contentEncoding = null;
+        }
+        if (resource == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        if (HttpServletMx.checkPreconditions(request, response, resource.getEtag(), resource.getLastModified()) != Precondition.PROCEED) {
+            return;
+        }
+
+        String contentType = getServletContext().getMimeType(file.getFileName().toString());
+        response.setContentType(contentType == null ? DEFAULT_CONTENT_TYPE : contentType);
+        if (contentEncoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        response.setContentLengthLong(resource.getSize());
+        if (content) {
+            resource.writeTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * 读取预压缩文件，原文件更新后预压缩文件没有重新生成时不使用。
+     *
+     * @return 预压缩文件，不存在或比原文件旧时返回 null。
+     */
+    @Nullable
+    private CachedFile precompressed(Path file, String suffix, @Nullable CachedFile source)
+        throws IOException {
+        CachedFile resource = cache.get(file.resolveSibling(file.getFileName() + suffix));
+        if (resource == null || source != null && resource.getLastModified() < source.getLastModified()) {
+            return null;
+        }
+        return resource;
+    }
+
+    /**
+     * 解析请求路径对应的文件，不允许访问目录之外的文件。
+     */
+    @Nullable
+    private Path resolve(@Nullable String pathInfo) {
+        if (StringUtils.isEmpty(pathInfo)) {
+            return null;
+        }
+        Path file;
+        try {
+            file = directory.resolve(StringUtils.removeStart(pathInfo, "/")).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * 文件所在目录。
+     *
+     * @return 目录。
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 缓存的总字节数上限。
+     *
+     * @return 字节数。
+     */
+    public long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * 缓存的单个文件字节数上限。
+     *
+     * @return 字节数。
+     */
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * 检查文件变化的间隔毫秒数。
+     *
+     * @return 毫秒数。
+     */
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+}
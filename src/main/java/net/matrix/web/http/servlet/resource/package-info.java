@@ -0,0 +1,8 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+/**
+ * 静态资源输出。
+ */
+package net.matrix.web.http.servlet.resource;
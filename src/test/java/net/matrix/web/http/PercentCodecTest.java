@@ -0,0 +1,112 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PercentCodecTest {
+    private static final String[] SAMPLES = {
+        "", "abc", "a b", "a+b", "a&b=c", "中文", "😀", "~!@#$%^&*()_+`-={}|[]\\:\";'<>?,./", "ÿ\u0080߿ࠀ￿"
+    };
+
+    @Test
+    void testDecode() {
+        assertThat(PercentCodec.decode("a+b%20c")).isEqualTo("a b c");
+        assertThat(PercentCodec.decode("%E4%B8%AD%e6%96%87")).isEqualTo("中文");
+        assertThat(PercentCodec.decode("%F0%9F%98%80")).isEqualTo("😀");
+        assertThat(PercentCodec.decode(new StringBuilder("%41"))).isEqualTo("A");
+    }
+
+    @Test
+    void testDecode_plain() {
+        String value = "plain-value.1";
+        assertThat(PercentCodec.decode(value)).isSameAs(value);
+    }
+
+    @Test
+    void testDecode_sameAsJdk() {
+        for (String sample : SAMPLES) {
+            String encoded = URLEncoder.encode(sample, StandardCharsets.UTF_8);
+            assertThat(PercentCodec.decode(encoded)).isEqualTo(URLDecoder.decode(encoded, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testDecode_malformed() {
+        assertThat(PercentCodec.decode("%FFa")).isEqualTo("�a");
+        assertThat(PercentCodec.decode("%E4%B8a")).isEqualTo("�a");
+        assertThat(PercentCodec.decode("%E4%41")).isEqualTo("�A");
+        assertThat(PercentCodec.decode("%C0%80")).isEqualTo("��");
+        assertThat(PercentCodec.decode("%ED%A0%80")).isEqualTo("���");
+    }
+
+    @Test
+    void testDecode_illegalEscape() {
+        assertThatThrownBy(() -> PercentCodec.decode("a%4")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PercentCodec.decode("a%zz")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PercentCodec.decode("%E4%B8%")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEncode() {
+        assertThat(PercentCodec.encode("a b&c")).isEqualTo("a+b%26c");
+        assertThat(PercentCodec.encode("中文")).isEqualTo("%E4%B8%AD%E6%96%87");
+        assertThat(PercentCodec.encode("\uD800a")).isEqualTo("%3Fa");
+    }
+
+    @Test
+    void testEncode_plain() {
+        String value = "plain-value_1.*";
+        assertThat(PercentCodec.encode(value)).isSameAs(value);
+    }
+
+    @Test
+    void testEncode_sameAsJdk() {
+        for (String sample : SAMPLES) {
+            assertThat(PercentCodec.encode(sample)).isEqualTo(URLEncoder.encode(sample, StandardCharsets.UTF_8));
+        }
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; ++i) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(16); j > 0; --j) {
+                sb.appendCodePoint(random.nextBoolean() ? random.nextInt(128) : random.nextInt(0x20000));
+            }
+            String sample = sb.toString();
+            String encoded = URLEncoder.encode(sample, StandardCharsets.UTF_8);
+            assertThat(PercentCodec.encode(sample)).isEqualTo(encoded);
+            assertThat(PercentCodec.decode(encoded)).isEqualTo(URLDecoder.decode(encoded, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testEncode_appendable()
+        throws IOException {
+        StringBuilder sb = new StringBuilder("q=");
+        PercentCodec.encode("a b", sb);
+        assertThat(sb).hasToString("q=a+b");
+
+        StringWriter writer = new StringWriter();
+        PercentCodec.encode("x-中", (Appendable) writer);
+        assertThat(writer).hasToString("x-%E4%B8%AD");
+    }
+
+    @Test
+    void testEncodeExtValue() {
+        assertThat(PercentCodec.encodeExtValue("a b.txt")).isEqualTo("UTF-8''a%20b.txt");
+        assertThat(PercentCodec.encodeExtValue("中文*.txt")).isEqualTo("UTF-8''%E4%B8%AD%E6%96%87%2A.txt");
+        assertThat(PercentCodec.encodeExtValue("a!~😀")).isEqualTo("UTF-8''a!~%F0%9F%98%80");
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteRangesTest {
+    @Test
+    void testParse() {
+        assertThat(ByteRanges.parse("bytes=0-99", 1000)).containsExactly(0, 99);
+        assertThat(ByteRanges.parse("bytes=500-", 1000)).containsExactly(500, 999);
+        assertThat(ByteRanges.parse("bytes=-100", 1000)).containsExactly(900, 999);
+        assertThat(ByteRanges.parse("bytes=-2000", 1000)).containsExactly(0, 999);
+        assertThat(ByteRanges.parse("bytes=900-2000", 1000)).containsExactly(900, 999);
+        assertThat(ByteRanges.parse("Bytes=0-0, 10-19 ,-1", 1000)).containsExactly(0, 0, 10, 19, 999, 999);
+    }
+
+    @Test
+    void testParse_merge() {
+        assertThat(ByteRanges.parse("bytes=10-19,0-0", 1000)).containsExactly(0, 0, 10, 19);
+        assertThat(ByteRanges.parse("bytes=0-,0-,0-", 1000)).containsExactly(0, 999);
+        assertThat(ByteRanges.parse("bytes=0-9,10-19", 1000)).containsExactly(0, 19);
+        assertThat(ByteRanges.parse("bytes=50-99,0-59,200-299,-800", 1000)).containsExactly(0, 99, 200, 999);
+    }
+
+    @Test
+    void testParse_unsatisfiable() {
+        assertThat(ByteRanges.parse("bytes=1000-", 1000)).isEmpty();
+        assertThat(ByteRanges.parse("bytes=-0", 1000)).isEmpty();
+        assertThat(ByteRanges.parse("bytes=0-", 0)).isEmpty();
+        assertThat(ByteRanges.parse("bytes=2000-2100,1000-", 1000)).isEmpty();
+    }
+
+    @Test
+    void testParse_invalid() {
+        assertThat(ByteRanges.parse("items=0-1", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=5", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=9-5", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=a-5", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=-", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=0-1,2", 1000)).isNull();
+        assertThat(ByteRanges.parse("bytes=99999999999999999999-", 1000)).isNull();
+    }
+
+    @Test
+    void testParse_tooManyRanges() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i < ByteRanges.MAX_RANGES; ++i) {
+            header.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        assertThat(ByteRanges.parse(header.toString(), 1000)).hasSize(ByteRanges.MAX_RANGES * 2);
+        assertThat(ByteRanges.parse(header + ",99-99", 1000)).isNull();
+    }
+}
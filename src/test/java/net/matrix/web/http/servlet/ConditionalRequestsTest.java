@@ -0,0 +1,129 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.google.common.net.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalRequestsTest {
+    private static final long LAST_MODIFIED = ZonedDateTime.of(2024, 3, 1, 8, 49, 37, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    private static final String LAST_MODIFIED_TEXT = "Fri, 01 Mar 2024 08:49:37 GMT";
+
+    private static final String BEFORE_TEXT = "Thu, 29 Feb 2024 08:49:37 GMT";
+
+    @Test
+    void testMatches() {
+        assertThat(ConditionalRequests.matches("\"a\", \"b\"", "\"b\"", true)).isTrue();
+        assertThat(ConditionalRequests.matches("\"a\",\"b\"", "\"c\"", true)).isFalse();
+        assertThat(ConditionalRequests.matches("W/\"a\"", "\"a\"", false)).isTrue();
+        assertThat(ConditionalRequests.matches("W/\"a\"", "\"a\"", true)).isFalse();
+        assertThat(ConditionalRequests.matches("\"a\"", "W/\"a\"", false)).isTrue();
+        assertThat(ConditionalRequests.matches("\"a\"", "W/\"a\"", true)).isFalse();
+        assertThat(ConditionalRequests.matches("\"a,b\"", "\"a,b\"", true)).isTrue();
+        assertThat(ConditionalRequests.matches("V1.0, V1.1", "V1.1", false)).isTrue();
+        assertThat(ConditionalRequests.matches(" * ", "\"a\"", true)).isTrue();
+        assertThat(ConditionalRequests.matches("*", null, true)).isFalse();
+        assertThat(ConditionalRequests.matches("\"a\"", null, false)).isFalse();
+    }
+
+    @Test
+    void testParseHttpDate() {
+        assertThat(ConditionalRequests.parseHttpDate(LAST_MODIFIED_TEXT)).isEqualTo(LAST_MODIFIED);
+        assertThat(ConditionalRequests.parseHttpDate("Sun, 06 Nov 1994 08:49:37 GMT")).isEqualTo(784111777000L);
+        assertThat(ConditionalRequests.parseHttpDate("Sunday, 06-Nov-94 08:49:37 GMT")).isEqualTo(ConditionalRequests.NO_DATE);
+        assertThat(ConditionalRequests.parseHttpDate("Sun, 06 Xyz 1994 08:49:37 GMT")).isEqualTo(ConditionalRequests.NO_DATE);
+
+        ZonedDateTime date = ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 1000; ++i) {
+            String text = DateTimeFormatter.RFC_1123_DATE_TIME.format(date);
+            if (text.length() == 29) {
+                assertThat(ConditionalRequests.parseHttpDate(text)).isEqualTo(date.toInstant().toEpochMilli());
+            }
+            date = date.plusDays(37).plusSeconds(3671);
+        }
+    }
+
+    @Test
+    void testEvaluate() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+
+        assertThat(ConditionalRequests.evaluate(request, "\"a\"", LAST_MODIFIED)).isEqualTo(Precondition.PROCEED);
+    }
+
+    @Test
+    void testEvaluate_ifNoneMatch() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"a\"");
+        // If-None-Match 存在时忽略 If-Modified-Since
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED_TEXT);
+
+        assertThat(ConditionalRequests.evaluate(request, "\"a\"", LAST_MODIFIED)).isEqualTo(Precondition.NOT_MODIFIED);
+        assertThat(ConditionalRequests.evaluate(request, "\"b\"", LAST_MODIFIED)).isEqualTo(Precondition.PROCEED);
+
+        MockHttpServletRequest put = new MockHttpServletRequest("PUT", "/a");
+        put.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        assertThat(ConditionalRequests.evaluate(put, "\"a\"", LAST_MODIFIED)).isEqualTo(Precondition.PRECONDITION_FAILED);
+        assertThat(ConditionalRequests.evaluate(put, null, -1)).isEqualTo(Precondition.PROCEED);
+    }
+
+    @Test
+    void testEvaluate_ifModifiedSince() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED_TEXT);
+
+        assertThat(ConditionalRequests.evaluate(request, null, LAST_MODIFIED + 999)).isEqualTo(Precondition.NOT_MODIFIED);
+        assertThat(ConditionalRequests.evaluate(request, null, LAST_MODIFIED + 1000)).isEqualTo(Precondition.PROCEED);
+
+        MockHttpServletRequest invalid = new MockHttpServletRequest("GET", "/a");
+        invalid.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "yesterday");
+        assertThat(ConditionalRequests.evaluate(invalid, null, LAST_MODIFIED)).isEqualTo(Precondition.PROCEED);
+    }
+
+    @Test
+    void testEvaluate_ifMatch() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/a");
+        request.addHeader(HttpHeaders.IF_MATCH, "\"a\", \"b\"");
+        // If-Match 存在时忽略 If-Unmodified-Since
+        request.addHeader(HttpHeaders.IF_UNMODIFIED_SINCE, BEFORE_TEXT);
+
+        assertThat(ConditionalRequests.evaluate(request, "\"b\"", LAST_MODIFIED)).isEqualTo(Precondition.PROCEED);
+        assertThat(ConditionalRequests.evaluate(request, "W/\"b\"", LAST_MODIFIED)).isEqualTo(Precondition.PRECONDITION_FAILED);
+        assertThat(ConditionalRequests.evaluate(request, "\"c\"", LAST_MODIFIED)).isEqualTo(Precondition.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void testEvaluate_ifUnmodifiedSince() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/a");
+        request.addHeader(HttpHeaders.IF_UNMODIFIED_SINCE, BEFORE_TEXT);
+
+        assertThat(ConditionalRequests.evaluate(request, "\"a\"", LAST_MODIFIED)).isEqualTo(Precondition.PRECONDITION_FAILED);
+        assertThat(ConditionalRequests.evaluate(request, "\"a\"", LAST_MODIFIED - 86_400_000)).isEqualTo(Precondition.PROCEED);
+    }
+
+    @Test
+    void testEvaluateIfRange() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        assertThat(ConditionalRequests.evaluateIfRange(request, "\"a\"", LAST_MODIFIED)).isTrue();
+
+        request.addHeader(HttpHeaders.IF_RANGE, "\"a\"");
+        assertThat(ConditionalRequests.evaluateIfRange(request, "\"a\"", LAST_MODIFIED)).isTrue();
+        assertThat(ConditionalRequests.evaluateIfRange(request, "W/\"a\"", LAST_MODIFIED)).isFalse();
+        assertThat(ConditionalRequests.evaluateIfRange(request, "\"b\"", LAST_MODIFIED)).isFalse();
+
+        MockHttpServletRequest dated = new MockHttpServletRequest("GET", "/a");
+        dated.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED_TEXT);
+        assertThat(ConditionalRequests.evaluateIfRange(dated, "\"a\"", LAST_MODIFIED)).isTrue();
+        assertThat(ConditionalRequests.evaluateIfRange(dated, "\"a\"", LAST_MODIFIED + 1000)).isFalse();
+    }
+}
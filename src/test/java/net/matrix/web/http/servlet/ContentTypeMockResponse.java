@@ -0,0 +1,25 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * 不依赖 spring-web 解析内容类型的响应，测试类路径中没有 spring-web 时代替 {@link MockHttpServletResponse} 设置内容类型。
+ */
+public class ContentTypeMockResponse
+    extends MockHttpServletResponse {
+    private String contentType;
+
+    @Override
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.filter.EtagFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileDownloadTest {
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    private static final long LAST_MODIFIED = Instant.parse("2024-03-01T08:49:37Z").toEpochMilli();
+
+    private static final String LAST_MODIFIED_TEXT = "Fri, 01 Mar 2024 08:49:37 GMT";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSendFile()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(FileDownload.etag(CONTENT.length(), LAST_MODIFIED));
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"data.txt\"");
+        assertThat(response.getContentType()).isEqualTo("text/plain");
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void testSendFile_filename()
+        throws IOException {
+        Path file = createFile("data.bin");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request(), response, file, "报告 \"1\".txt", false);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+            .isEqualTo("inline; filename=\"__ _1_.txt\"; filename*=UTF-8''%E6%8A%A5%E5%91%8A%20%221%22.txt");
+        assertThat(response.getContentType()).isEqualTo("text/plain");
+    }
+
+    @Test
+    void testSendFile_head()
+        throws IOException {
+        Path file = createFile("data.bin");
+        MockHttpServletRequest request = request();
+        request.setMethod("HEAD");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentType()).isEqualTo("application/octet-stream");
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testSendFile_notModified()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED_TEXT);
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testSendFile_range()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-35/36");
+        assertThat(response.getContentLengthLong()).isEqualTo(26);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT.substring(10));
+    }
+
+    @Test
+    void testSendFile_multipleRanges()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,-2");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String boundary = response.getContentType().substring("multipart/byteranges; boundary=".length());
+        String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/36\r\n\r\n01" + "\r\n--" + boundary
+            + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 34-35/36\r\n\r\nyz" + "\r\n--" + boundary + "--\r\n";
+        assertThat(response.getContentAsString()).isEqualTo(expected);
+        assertThat(response.getContentLengthLong()).isEqualTo(expected.length());
+    }
+
+    @Test
+    void testSendFile_unsatisfiableRange()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */36");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testSendFile_ifRange()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+
+        request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, FileDownload.etag(CONTENT.length(), LAST_MODIFIED));
+        response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT.substring(10));
+    }
+
+    @Test
+    void testSendFile_sendfile()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.setAttribute(FileDownload.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=-6");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        HttpServletMx.sendFile(request, response, file, null, true);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(request.getAttribute(FileDownload.SENDFILE_FILENAME)).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute(FileDownload.SENDFILE_START)).isEqualTo(30L);
+        assertThat(request.getAttribute(FileDownload.SENDFILE_END)).isEqualTo(36L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testSendFile_wrapped()
+        throws IOException, ServletException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.setAttribute(FileDownload.SENDFILE_SUPPORT, Boolean.TRUE);
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+
+        filter.doFilter(request, response,
+            (req, res) -> HttpServletMx.sendFile((HttpServletRequest) req, (HttpServletResponse) res, file, null, true));
+        assertThat(request.getAttribute(FileDownload.SENDFILE_FILENAME)).isNull();
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void testSendFile_channel()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.setAttribute(FileDownload.SENDFILE_SUPPORT, Boolean.TRUE);
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            HttpServletMx.sendFile(request, response, channel, LAST_MODIFIED, null, false);
+        }
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isNull();
+        assertThat(response.getContentType()).isEqualTo("application/octet-stream");
+        assertThat(request.getAttribute(FileDownload.SENDFILE_FILENAME)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void testSendFile_unknownLastModified()
+        throws IOException {
+        Path file = createFile("data.txt");
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + Long.toHexString(CONTENT.length()) + "-ffffffffffffffff\"");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"" + Long.toHexString(CONTENT.length()) + "-ffffffffffffffff\"");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            HttpServletMx.sendFile(request, response, channel, -1, null, false);
+        }
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    private Path createFile(String name)
+        throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+        return file;
+    }
+
+    private static MockHttpServletRequest request() {
+        MockServletContext servletContext = new MockServletContext() {
+            @Override
+            public String getMimeType(String file) {
+                return file.endsWith(".txt") ? "text/plain" : null;
+            }
+        };
+        return new MockHttpServletRequest(servletContext, "GET", "/download");
+    }
+}
@@ -9,9 +9,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
+import org.assertj.core.util.introspection.FieldSupport;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Pageable;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -20,6 +23,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import com.google.common.net.HttpHeaders;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class HttpServletMxTest {
     static final String ISO_INSTANT_FORMAT = "yyyy-MM-dd'T'HH:mm:ssX";
@@ -105,20 +109,72 @@ class HttpServletMxTest {
         assertThat(HttpServletMx.checkIfNoneMatchEtag(request, response, "V2.0")).isTrue();
     }
 
+    @Test
+    void testCheckIfNoneMatchEtag_weak() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        request.addHeader("If-None-Match", "W/\"V1.0\", \"V1.1\"");
+
+        assertThat(HttpServletMx.checkIfNoneMatchEtag(request, response, "\"V1.0\"")).isFalse();
+        assertThat(HttpServletMx.checkIfNoneMatchEtag(request, response, "\"V2.0\"")).isTrue();
+    }
+
+    @Test
+    void testCheckPreconditions() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.addHeader("If-None-Match", "\"V1.0\"");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(HttpServletMx.checkPreconditions(request, response, "\"V1.0\"", 0)).isEqualTo(Precondition.NOT_MODIFIED);
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"V1.0\"");
+
+        response = new MockHttpServletResponse();
+        assertThat(HttpServletMx.checkPreconditions(request, response, "\"V2.0\"", 0)).isEqualTo(Precondition.PROCEED);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getDateHeader(HttpHeaders.LAST_MODIFIED)).isZero();
+    }
+
     @Test
     void testSetAttachmentFilenameHeader() {
         MockHttpServletResponse response = new MockHttpServletResponse();
 
-        HttpServletMx.setAttachmentFilenameHeader(response, "test");
-        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).startsWith("attachment;");
+        HttpServletMx.setAttachmentFilenameHeader(response, "test.txt");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"test.txt\"");
+
+        HttpServletMx.setAttachmentFilenameHeader(response, "中文 \"1\".txt");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+            .isEqualTo("attachment; filename=\"__ _1_.txt\"; filename*=UTF-8''%E4%B8%AD%E6%96%87%20%221%22.txt");
     }
 
     @Test
     void testSetInlineFilenameHeader() {
         MockHttpServletResponse response = new MockHttpServletResponse();
 
-        HttpServletMx.setInlineFilenameHeader(response, "test");
-        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).startsWith("inline;");
+        HttpServletMx.setInlineFilenameHeader(response, "test.txt");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("inline; filename=\"test.txt\"");
+
+        HttpServletMx.setInlineFilenameHeader(response, "中文.txt");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+            .isEqualTo("inline; filename=\"__.txt\"; filename*=UTF-8''%E4%B8%AD%E6%96%87.txt");
+    }
+
+    @Test
+    void testAcceptsEncoding() {
+        assertThat(HttpServletMx.acceptsEncoding("gzip, deflate", "gzip")).isTrue();
+        assertThat(HttpServletMx.acceptsEncoding("GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(HttpServletMx.acceptsEncoding("gzip;q=0", "gzip")).isFalse();
+        assertThat(HttpServletMx.acceptsEncoding("gzip; q=0.0", "gzip")).isFalse();
+        assertThat(HttpServletMx.acceptsEncoding("deflate", "gzip")).isFalse();
+        assertThat(HttpServletMx.acceptsEncoding("*", "br")).isTrue();
+        assertThat(HttpServletMx.acceptsEncoding("*, br;q=0", "br")).isFalse();
+        assertThat(HttpServletMx.acceptsEncoding("", "br")).isFalse();
+        assertThat(HttpServletMx.acceptsEncoding((String) null, "br")).isFalse();
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, br");
+        assertThat(HttpServletMx.acceptsEncoding(request, "br")).isTrue();
+        assertThat(HttpServletMx.acceptsEncoding(new MockHttpServletRequest(), "br")).isFalse();
     }
 
     @Test
@@ -233,6 +289,20 @@ class HttpServletMxTest {
         assertThat(HttpServletMx.getLocalDateTimeParameter(request, "xyz", ISO_DATETIME_FORMAT)).isNull();
     }
 
+    @Test
+    void testParseLocalDateParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("abc", "2011-12-01");
+        request.setParameter("def", "2011-12-xx");
+        request.setParameter("ghi", " ");
+
+        assertThat(HttpServletMx.parseLocalDateParameter(request, "abc", ISO_DATE_FORMAT).getValue()).isEqualTo(LocalDate.of(2011, 12, 1));
+        assertThat(HttpServletMx.parseLocalDateParameter(request, "def", ISO_DATE_FORMAT).isFailure()).isTrue();
+        assertThat(HttpServletMx.parseLocalDateParameter(request, "ghi", ISO_DATE_FORMAT).isFailure()).isFalse();
+        assertThat(HttpServletMx.parseLocalDateParameter(request, "xyz", ISO_DATE_FORMAT).isPresent()).isFalse();
+        assertThatThrownBy(() -> HttpServletMx.getLocalDateParameter(request, "def", ISO_DATE_FORMAT)).isInstanceOf(DateTimeParseException.class);
+    }
+
     @Test
     void testGetParameterMap() {
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -247,6 +317,119 @@ class HttpServletMxTest {
         assertThat(parameterMap).containsEntry("c", "c");
     }
 
+    @Test
+    void testGetParameterMap_decode() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("a", "%E4%B8%AD", "b");
+        request.addParameter("b", new String[0]);
+
+        Map<String, String> parameterMap = HttpServletMx.getParameterMap(request);
+        assertThat(parameterMap.keySet()).containsExactly("a", "b");
+        assertThat(parameterMap.get("a")).isEqualTo("中");
+        assertThat(parameterMap.get("a")).isSameAs(parameterMap.get("a"));
+        assertThat(parameterMap).containsKey("b");
+        assertThat(parameterMap.get("b")).isNull();
+        assertThat(parameterMap.get("c")).isNull();
+        assertThatThrownBy(() -> parameterMap.put("c", "c")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> parameterMap.entrySet().iterator().next().setValue("c")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testGetParameterMap_absentKey() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("a", "%E4%B8%AD");
+        request.addParameter("b", new String[0]);
+
+        Map<String, String> parameterMap = HttpServletMx.getParameterMap(request);
+        for (int i = 0; i < 100; ++i) {
+            assertThat(parameterMap.get("x" + i)).isNull();
+        }
+        assertThat(parameterMap.get("b")).isNull();
+        assertThat(parameterMap.get("b")).isNull();
+        assertThat(parameterMap.entrySet().iterator().next().getValue()).isSameAs(parameterMap.get("a"));
+        assertThat(FieldSupport.extraction().fieldValue("decoded", Map.class, parameterMap)).containsOnlyKeys("a", "b");
+    }
+
+    @Test
+    void testGetParameterValuesMap() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("a", "%E4%B8%AD", "b");
+        request.addParameter("c", "c");
+
+        Map<String, List<String>> parameterMap = HttpServletMx.getParameterValuesMap(request);
+        assertThat(parameterMap).hasSize(2);
+        assertThat(parameterMap.get("a")).containsExactly("中", "b");
+        assertThat(parameterMap.get("a")).isSameAs(parameterMap.get("a"));
+        assertThat(parameterMap).containsEntry("c", List.of("c"));
+        assertThat(parameterMap.get("d")).isNull();
+        assertThatThrownBy(() -> parameterMap.get("a").set(0, "x")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(FieldSupport.extraction().fieldValue("views", Map.class, parameterMap)).containsOnlyKeys("a", "c");
+    }
+
+    @Test
+    void testBind_record() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("name", "%E4%B8%AD");
+        request.addParameter("age", "18");
+        request.addParameter("birthday", "2000/01/02");
+        request.addParameter("kind", "B");
+
+        Form form = HttpServletMx.bind(request, Form.class);
+        assertThat(form.name()).isEqualTo("中");
+        assertThat(form.age()).isEqualTo(18);
+        assertThat(form.count()).isZero();
+        assertThat(form.amount()).isNull();
+        assertThat(form.birthday()).isEqualTo(LocalDate.of(2000, 1, 2));
+        assertThat(form.kind()).isEqualTo(Kind.B);
+        assertThat(ParameterBinder.of(Form.class)).isSameAs(ParameterBinder.of(Form.class));
+    }
+
+    @Test
+    void testBind_bean() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("id", "1");
+        request.addParameter("amount", "1.5");
+        request.addParameter("enabled", "true");
+        request.addParameter("start", "2000-01-02T03:04:05");
+
+        Bean bean = HttpServletMx.bind(request, Bean.class);
+        assertThat(bean.id).isEqualTo(1L);
+        assertThat(bean.amount).isEqualByComparingTo("1.5");
+        assertThat(bean.enabled).isTrue();
+        assertThat(bean.start).isEqualTo(LocalDateTime.of(2000, 1, 2, 3, 4, 5));
+        assertThat(bean.name).isEqualTo("default");
+    }
+
+    @Test
+    void testBind_beanWithUnsupportedSetter() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("name", "a");
+        request.addParameter("tags", "x");
+
+        TaggedBean bean = HttpServletMx.bind(request, TaggedBean.class);
+        assertThat(bean.name).isEqualTo("a");
+        assertThat(bean.tags).isEmpty();
+        assertThatThrownBy(() -> HttpServletMx.bind(request, AnnotatedTaggedBean.class)).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("tags");
+    }
+
+    @Test
+    void testBind_invalidValue() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("age", "x");
+
+        assertThatThrownBy(() -> HttpServletMx.bind(request, Form.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testBind_unsupportedType() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertThatThrownBy(() -> HttpServletMx.bind(request, Runnable.class)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HttpServletMx.bind(request, Unsupported.class)).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("values");
+    }
+
     @Test
     void testGetPageable() {
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -281,4 +464,69 @@ class HttpServletMxTest {
         assertThat(HttpServletMx.getHeaderOrParameter(request, "def", "123")).isEqualTo("456");
         assertThat(HttpServletMx.getHeaderOrParameter(request, "xyz", "456")).isEqualTo("456");
     }
+
+    enum Kind {
+        A, B
+    }
+
+    record Form(String name, Integer age, int count, BigDecimal amount, @BindParameter(pattern = "yyyy/MM/dd") LocalDate birthday, Kind kind) {
+    }
+
+    record Unsupported(List<String> values) {
+    }
+
+    static class Bean {
+        Long id;
+
+        BigDecimal amount;
+
+        boolean enabled;
+
+        LocalDateTime start;
+
+        String name = "default";
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setStart(LocalDateTime start) {
+            this.start = start;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    static class TaggedBean {
+        String name;
+
+        List<String> tags = List.of();
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    static class AnnotatedTaggedBean {
+        @BindParameter
+        List<String> tags;
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
 }
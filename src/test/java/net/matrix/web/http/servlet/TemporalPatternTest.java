@@ -0,0 +1,120 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TemporalPatternTest {
+    @Test
+    void testOf() {
+        assertThat(TemporalPattern.of("yyyy-MM-dd")).isSameAs(TemporalPattern.of("yyyy-MM-dd"));
+        assertThat(TemporalPattern.of("yyyy-MM-dd").isFixedLayout()).isTrue();
+        assertThat(TemporalPattern.of("yyyyMMddHHmmss").isFixedLayout()).isTrue();
+        assertThat(TemporalPattern.of("yyyy-MM-dd'T'HH:mm:ss").isFixedLayout()).isTrue();
+        assertThat(TemporalPattern.of("yyyy-MM-dd'T'HH:mm:ssX").isFixedLayout()).isFalse();
+        assertThat(TemporalPattern.of("d/M/yyyy").isFixedLayout()).isFalse();
+        assertThatThrownBy(() -> TemporalPattern.of("yyyy-MM-dd{")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testParseLocalDate() {
+        TemporalPattern pattern = TemporalPattern.of("yyyy-MM-dd");
+
+        assertThat(pattern.parseLocalDate("2024-02-29").getValue()).isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(TemporalPattern.of("yyyyMMdd").parseLocalDate("20240102").getValue()).isEqualTo(LocalDate.of(2024, 1, 2));
+        assertThat(TemporalPattern.of("d/M/yyyy").parseLocalDate("2/1/2024").getValue()).isEqualTo(LocalDate.of(2024, 1, 2));
+    }
+
+    @Test
+    void testParseLocalDate_sameAsFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        TemporalPattern pattern = TemporalPattern.of("yyyy-MM-dd");
+        String[] samples = {
+            "2024-01-01", "2023-02-29", "2023-04-31", "2023-04-32", "2023-13-01", "0000-01-01", "2023-00-10", "2023-1-01"
+        };
+        for (String sample : samples) {
+            ParseResult<LocalDate> result = pattern.parseLocalDate(sample);
+            try {
+                assertThat(result.getValue()).isEqualTo(LocalDate.parse(sample, formatter));
+            } catch (DateTimeParseException e) {
+                assertThat(result.isFailure()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void testParseLocalDate_failure() {
+        ParseResult<LocalDate> result = TemporalPattern.of("yyyy-MM-dd").parseLocalDate("2024/01/02");
+
+        assertThat(result.isFailure()).isTrue();
+        assertThat(result.isPresent()).isFalse();
+        assertThat(result.getValue()).isNull();
+        assertThat(result.getText()).isEqualTo("2024/01/02");
+        assertThat(result.getErrorIndex()).isEqualTo(4);
+        assertThatThrownBy(result::getValueOrThrow).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    void testParseLocalDate_trailing() {
+        ParseResult<LocalDate> result = TemporalPattern.of("yyyy-MM-dd").parseLocalDate("2024-01-02x");
+
+        assertThat(result.isFailure()).isTrue();
+        assertThat(result.getErrorIndex()).isEqualTo(10);
+    }
+
+    @Test
+    void testParseLocalDate_invalidTime() {
+        TemporalPattern pattern = TemporalPattern.of("yyyy-MM-dd HH:mm:ss");
+
+        assertThat(pattern.parseLocalDate("2011-12-01 12:13:14").getValue()).isEqualTo(LocalDate.of(2011, 12, 1));
+        assertThat(pattern.parseLocalDate("2011-12-01 99:99:99").isFailure()).isTrue();
+        assertThat(pattern.parseLocalTime("2011-13-01 12:13:14").isFailure()).isTrue();
+    }
+
+    @Test
+    void testParseLocalTime() {
+        assertThat(TemporalPattern.of("HH:mm:ss").parseLocalTime("12:13:14").getValue()).isEqualTo(LocalTime.of(12, 13, 14));
+        assertThat(TemporalPattern.of("HH:mm").parseLocalTime("12:13").getValue()).isEqualTo(LocalTime.of(12, 13));
+        assertThat(TemporalPattern.of("HH:mm").parseLocalTime("24:00").getValue()).isEqualTo(LocalTime.MIDNIGHT);
+        assertThat(TemporalPattern.of("HH:mm:ss").parseLocalTime("12:60:00").isFailure()).isTrue();
+    }
+
+    @Test
+    void testParseLocalDateTime() {
+        LocalDateTime datetime = LocalDateTime.of(2011, 12, 1, 12, 13, 14);
+
+        assertThat(TemporalPattern.of("yyyyMMddHHmmss").parseLocalDateTime("20111201121314").getValue()).isEqualTo(datetime);
+        assertThat(TemporalPattern.of("yyyy-MM-dd HH:mm:ss").parseLocalDateTime("2011-12-01 12:13:14").getValue()).isEqualTo(datetime);
+        assertThat(TemporalPattern.of("yyyy-MM-dd").parseLocalDateTime("2011-12-01").isFailure()).isTrue();
+    }
+
+    @Test
+    void testParseInstant() {
+        assertThat(TemporalPattern.of("yyyy-MM-dd'T'HH:mm:ssX").parseInstant("2011-12-01T12:13:14Z").getValue())
+            .isEqualTo(Instant.parse("2011-12-01T12:13:14Z"));
+        assertThat(TemporalPattern.of("yyyy-MM-dd'T'HH:mm:ssX").parseInstant("2011-12-01T12:13:14").isFailure()).isTrue();
+    }
+
+    @Test
+    void testParseInstant_fixedLayout() {
+        TemporalPattern pattern = TemporalPattern.of("yyyy-MM-dd HH:mm:ss");
+
+        assertThat(pattern.parseInstant("2011-12-01 12:13:14").getValue())
+            .isEqualTo(LocalDateTime.of(2011, 12, 1, 12, 13, 14).atZone(ZoneId.systemDefault()).toInstant());
+        assertThat(pattern.parseInstant("2011-12-01 99:13:14").isFailure()).isTrue();
+        assertThat(pattern.parseInstant("2011-12-01").isFailure()).isTrue();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncCompletionTest {
+    @Test
+    void testAfterChain()
+        throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        List<Boolean> results = new ArrayList<>();
+
+        AsyncCompletion.afterChain(request, false, results::add);
+        AsyncCompletion.afterChain(request, true, results::add);
+        assertThat(results).containsExactly(false, true);
+    }
+
+    @Test
+    void testAfterChain_async()
+        throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockAsyncContext asyncContext = (MockAsyncContext) request.startAsync(request, response);
+        List<Boolean> results = new ArrayList<>();
+
+        AsyncCompletion.afterChain(request, false, results::add);
+        assertThat(results).isEmpty();
+        AsyncEvent event = new AsyncEvent(asyncContext, request, response);
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(event);
+            listener.onComplete(event);
+            listener.onComplete(event);
+        }
+        assertThat(results).containsExactly(true);
+    }
+}
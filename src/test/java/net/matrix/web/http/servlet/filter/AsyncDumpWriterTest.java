@@ -0,0 +1,70 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncDumpWriterTest {
+    @Test
+    void testSubmit() {
+        List<RequestDump> written = new CopyOnWriteArrayList<>();
+        AsyncDumpWriter writer = new AsyncDumpWriter("test", 4, OverflowPolicy.DROP, 1, written::add);
+        writer.start();
+
+        RequestDump dump = new RequestDump(Collections.emptyList());
+        writer.submit(dump);
+        writer.stop(5000);
+        assertThat(written).containsExactly(dump);
+        assertThat(writer.getSubmittedCount()).isEqualTo(1);
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void testSubmit_drop() {
+        List<RequestDump> written = new CopyOnWriteArrayList<>();
+        AsyncDumpWriter writer = new AsyncDumpWriter("test", 2, OverflowPolicy.DROP, 1, written::add);
+
+        for (int i = 0; i < 5; ++i) {
+            writer.submit(new RequestDump(Collections.emptyList()));
+        }
+        assertThat(writer.getSubmittedCount()).isEqualTo(2);
+        assertThat(writer.getDroppedCount()).isEqualTo(3);
+        assertThat(writer.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testSubmit_sample() {
+        List<RequestDump> written = new CopyOnWriteArrayList<>();
+        AsyncDumpWriter writer = new AsyncDumpWriter("test", 4, OverflowPolicy.SAMPLE, 2, written::add);
+
+        for (int i = 0; i < 6; ++i) {
+            writer.submit(new RequestDump(Collections.emptyList()));
+        }
+        // 前 2 条直接进入缓冲区，之后每 2 条保留 1 条
+        assertThat(writer.getSubmittedCount()).isEqualTo(4);
+        assertThat(writer.getSampledOutCount()).isEqualTo(2);
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void testSubmit_block() {
+        List<RequestDump> written = new CopyOnWriteArrayList<>();
+        AsyncDumpWriter writer = new AsyncDumpWriter("test", 2, OverflowPolicy.BLOCK, 1, written::add);
+        writer.start();
+
+        for (int i = 0; i < 10; ++i) {
+            writer.submit(new RequestDump(Collections.emptyList()));
+        }
+        writer.stop(5000);
+        assertThat(written).hasSize(10);
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CapturePlanTest {
+    @Test
+    void testDefault() {
+        CapturePlan plan = CapturePlan.DEFAULT;
+
+        assertThat(plan.properties).hasSize(RequestProperty.values().length - 2);
+        assertThat(plan.properties).doesNotContain(RequestProperty.REMOTE_HOST, RequestProperty.LOCAL_NAME);
+        assertThat(plan.headers).isTrue();
+        assertThat(plan.parameters).isTrue();
+        assertThat(plan.cookies).isTrue();
+        assertThat(plan.parts).isTrue();
+        assertThat(plan.attributes).isTrue();
+    }
+
+    @Test
+    void testParse() {
+        CapturePlan plan = CapturePlan.parse("RequestURI, method,QueryString,headers,params");
+
+        assertThat(plan.properties).containsExactly(RequestProperty.METHOD, RequestProperty.QUERY_STRING, RequestProperty.REQUEST_URI);
+        assertThat(plan.propertyNames).containsExactly("Method", "QueryString", "RequestURI");
+        assertThat(plan.headers).isTrue();
+        assertThat(plan.parameters).isTrue();
+        assertThat(plan.cookies).isFalse();
+        assertThat(plan.parts).isFalse();
+        assertThat(plan.attributes).isFalse();
+    }
+
+    @Test
+    void testParse_empty() {
+        assertThat(CapturePlan.parse(null)).isSameAs(CapturePlan.DEFAULT);
+        assertThat(CapturePlan.parse(" ")).isSameAs(CapturePlan.DEFAULT);
+    }
+
+    @Test
+    void testParse_unknown() {
+        assertThatThrownBy(() -> CapturePlan.parse("Method,unknown")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CaptureResponseWrapperTest {
+    @Test
+    void testGetOutputStream()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response);
+
+        wrapper.getOutputStream().write(new byte[] {
+            1, 2, 3
+        });
+        wrapper.getOutputStream().write(4);
+        assertThat(wrapper.getBytesWritten()).isEqualTo(4);
+        assertThat(response.getContentAsByteArray()).containsExactly(1, 2, 3, 4);
+        assertThatThrownBy(wrapper::getWriter).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testGetWriter()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response);
+
+        wrapper.getWriter().print("中文");
+        assertThat(wrapper.getBytesWritten()).isEqualTo(6);
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("中文");
+    }
+
+    @Test
+    void testGetOutputStream_body()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public String getContentType() {
+                return "application/json";
+            }
+        };
+        BodyBufferPool pool = new BodyBufferPool(3, 1);
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response, pool, ContentTypeMatcher.parse("application/json"));
+
+        wrapper.getOutputStream().write(1);
+        wrapper.getOutputStream().write(new byte[] {
+            2, 3, 4
+        });
+        assertThat(wrapper.isBodyCaptured()).isTrue();
+        assertThat(wrapper.getBodyLength()).isEqualTo(3);
+        assertThat(wrapper.getBody()).containsExactly(1, 2, 3);
+        assertThat(response.getContentAsByteArray()).containsExactly(1, 2, 3, 4);
+
+        wrapper.release();
+        assertThat(wrapper.isBodyCaptured()).isFalse();
+    }
+
+    @Test
+    void testGetOutputStream_bodyNotAllowed()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public String getContentType() {
+                return "image/png";
+            }
+        };
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response, new BodyBufferPool(3, 1), ContentTypeMatcher.parse("text/*"));
+
+        wrapper.getOutputStream().write(1);
+        assertThat(wrapper.isBodyCaptured()).isFalse();
+        assertThat(wrapper.getBytesWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetWriter_surrogatePair()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response);
+        String text = "a\uD83D\uDE00b";
+
+        PrintWriter writer = wrapper.getWriter();
+        writer.write(text.charAt(0));
+        writer.write(text.charAt(1));
+        assertThat(wrapper.getBytesWritten()).isEqualTo(1);
+        writer.write(text, 2, 2);
+        assertThat(wrapper.getBytesWritten()).isEqualTo(6);
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(text);
+    }
+
+    @Test
+    void testResetBuffer()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public String getContentType() {
+                return "application/json";
+            }
+        };
+        BodyBufferPool pool = new BodyBufferPool(8, 1);
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response, pool, ContentTypeMatcher.parse("application/json"));
+
+        wrapper.getWriter().print("abc");
+        wrapper.resetBuffer();
+        assertThat(wrapper.getBytesWritten()).isZero();
+        assertThat(wrapper.getBodyLength()).isZero();
+        assertThat(wrapper.isBodyCaptured()).isFalse();
+
+        wrapper.getWriter().print("de");
+        assertThat(wrapper.getBytesWritten()).isEqualTo(2);
+        assertThat(wrapper.getBodyLength()).isEqualTo(2);
+        assertThat(wrapper.getBody()).startsWith('d', 'e');
+        assertThat(response.getContentAsString()).isEqualTo("de");
+    }
+
+    @Test
+    void testReset()
+        throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response);
+
+        wrapper.getOutputStream().write(1);
+        wrapper.reset();
+        assertThat(wrapper.getBytesWritten()).isZero();
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+}
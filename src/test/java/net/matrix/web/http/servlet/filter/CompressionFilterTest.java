@@ -0,0 +1,366 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.ContentTypeMockResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressionFilterTest {
+    private static final byte[] BODY = "{\"id\":1,\"name\":\"test\"},".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    private static final FilterChain WRITE_JSON = (request, response) -> {
+        response.setContentType("application/json");
+        response.setContentLength(BODY.length);
+        response.getOutputStream().write(BODY);
+    };
+
+    @Test
+    void testInit()
+        throws ServletException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("minSize", "256");
+        filterConfig.addInitParameter("contentTypes", "text/*");
+        filterConfig.addInitParameter("level", "1");
+        filterConfig.addInitParameter("poolSize", "4");
+        CompressionFilter filter = new CompressionFilter();
+
+        filter.init(filterConfig);
+        assertThat(filter.getMinSize()).isEqualTo(256);
+        assertThat(filter.getContentTypes()).isEqualTo("text/*");
+        assertThat(filter.getLevel()).isEqualTo(1);
+        assertThat(filter.getPoolSize()).isEqualTo(4);
+    }
+
+    @Test
+    void testInit_invalid() {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("poolSize", "0");
+        assertThatThrownBy(() -> new CompressionFilter().init(filterConfig)).isInstanceOf(ServletException.class);
+
+        MockFilterConfig notNumber = new MockFilterConfig();
+        notNumber.addInitParameter("poolSize", "many");
+        assertThatThrownBy(() -> new CompressionFilter().init(notNumber)).isInstanceOf(ServletException.class);
+
+        MockFilterConfig badLevel = new MockFilterConfig();
+        badLevel.addInitParameter("level", "10");
+        assertThatThrownBy(() -> new CompressionFilter().init(badLevel)).isInstanceOf(ServletException.class);
+
+        MockFilterConfig negativeMinSize = new MockFilterConfig();
+        negativeMinSize.addInitParameter("minSize", "-1");
+        assertThatThrownBy(() -> new CompressionFilter().init(negativeMinSize)).isInstanceOf(ServletException.class);
+
+        MockFilterConfig badMinSize = new MockFilterConfig();
+        badMinSize.addInitParameter("minSize", "1k");
+        assertThatThrownBy(() -> new CompressionFilter().init(badMinSize)).isInstanceOf(ServletException.class);
+    }
+
+    @Test
+    void testDoFilter()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip, deflate"), response, WRITE_JSON);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.containsHeader(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(response.getContentAsByteArray().length).isLessThan(BODY.length / 5);
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_deflate()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("deflate"), response, (req, res) -> {
+            res.setContentType("text/plain");
+            res.getWriter().write(new String(BODY, StandardCharsets.UTF_8));
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(BODY);
+        }
+    }
+
+    @Test
+    void testDoFilter_small()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentLength()).isEqualTo(2);
+        assertThat(response.getContentAsString()).isEqualTo("{}");
+    }
+
+    @Test
+    void testDoFilter_notAccepted()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        response.addHeader(HttpHeaders.VARY, "Origin");
+
+        filter.doFilter(request("gzip;q=0, br"), response, WRITE_JSON);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeaders(HttpHeaders.VARY)).containsExactly("Origin", HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentLength()).isEqualTo(BODY.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_notCompressible()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            res.setContentType("image/png");
+            res.getOutputStream().write(BODY);
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+
+        response = new ContentTypeMockResponse();
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            ((HttpServletResponse) res).setHeader(HttpHeaders.CONTENT_ENCODING, "br");
+            WRITE_JSON.doFilter(req, res);
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+
+        response = new ContentTypeMockResponse();
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            WRITE_JSON.doFilter(req, res);
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_head()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletRequest request = request("gzip");
+        request.setMethod("HEAD");
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("application/json");
+            res.setContentLength(BODY.length);
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void testDoFilter_etag()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            ((HttpServletResponse) res).setHeader(HttpHeaders.ETAG, "\"abc\"");
+            WRITE_JSON.doFilter(req, res);
+        });
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"abc\"");
+    }
+
+    @Test
+    void testDoFilter_flush()
+        throws ServletException, IOException, DataFormatException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        byte[][] flushed = new byte[1][];
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            res.setContentType("text/event-stream");
+            res.getOutputStream().write("data: 1\n\n".getBytes(StandardCharsets.UTF_8));
+            res.flushBuffer();
+            flushed[0] = response.getContentAsByteArray();
+            res.getOutputStream().write("data: 2\n\n".getBytes(StandardCharsets.UTF_8));
+        });
+        assertThat(response.isCommitted()).isTrue();
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(flushed[0], 10, flushed[0].length));
+        byte[] output = new byte[64];
+        int count = inflater.inflate(output);
+        inflater.end();
+        assertThat(new String(output, 0, count, StandardCharsets.UTF_8)).isEqualTo("data: 1\n\n");
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo("data: 1\n\ndata: 2\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDoFilter_flushBufferThenWriter()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            res.setContentType("text/plain");
+            res.flushBuffer();
+            res.getWriter().write("hello");
+        });
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDoFilter_startAsync()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        byte[][] completed = new byte[1][];
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a") {
+            @Override
+            public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+                super.startAsync(servletRequest, servletResponse);
+                // 容器在 complete() 之后结束响应，记录此时已写入的内容
+                MockAsyncContext asyncContext = new MockAsyncContext(servletRequest, servletResponse) {
+                    @Override
+                    public void complete() {
+                        completed[0] = response.getContentAsByteArray();
+                    }
+                };
+                setAsyncContext(asyncContext);
+                return asyncContext;
+            }
+        };
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.setAsyncSupported(true);
+        AsyncContext[] asyncContext = new AsyncContext[1];
+        PrintWriter[] writer = new PrintWriter[1];
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("text/plain");
+            writer[0] = res.getWriter();
+            writer[0].write("hello");
+            res.flushBuffer();
+            asyncContext[0] = req.startAsync();
+        });
+        writer[0].write(" world");
+        asyncContext[0].complete();
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gunzip(completed[0])).isEqualTo("hello world".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDoFilter_sendError()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            ((HttpServletResponse) res).sendError(HttpServletResponse.SC_NOT_FOUND);
+            res.flushBuffer();
+            res.getOutputStream().flush();
+            res.getOutputStream().close();
+        });
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void testDoFilter_reset()
+        throws ServletException, IOException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        filter.doFilter(request("gzip"), response, (req, res) -> {
+            WRITE_JSON.doFilter(req, res);
+            res.resetBuffer();
+            res.getOutputStream().write(BODY);
+        });
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_exception()
+        throws ServletException {
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(new MockFilterConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        assertThatThrownBy(() -> filter.doFilter(request("gzip"), response, (req, res) -> {
+            WRITE_JSON.doFilter(req, res);
+            throw new ServletException("failed");
+        })).isInstanceOf(ServletException.class);
+    }
+
+    @Test
+    void testDeflaterPool() {
+        DeflaterPool pool = new DeflaterPool(6, 1);
+
+        Deflater first = pool.acquire();
+        Deflater second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        assertThat(pool.size()).isEqualTo(1);
+        assertThat(pool.acquire()).isSameAs(first);
+        pool.close();
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+
+    private static byte[] gunzip(byte[] content)
+        throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return in.readAllBytes();
+        }
+    }
+}
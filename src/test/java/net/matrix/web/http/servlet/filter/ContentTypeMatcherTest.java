@@ -0,0 +1,32 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentTypeMatcherTest {
+    @Test
+    void testMatches() {
+        ContentTypeMatcher matcher = ContentTypeMatcher.parse("text/*, Application/JSON");
+
+        assertThat(matcher.matches("text/plain")).isTrue();
+        assertThat(matcher.matches("TEXT/HTML; charset=UTF-8")).isTrue();
+        assertThat(matcher.matches("application/json;charset=UTF-8")).isTrue();
+        assertThat(matcher.matches("application/jsonp")).isFalse();
+        assertThat(matcher.matches("image/png")).isFalse();
+        assertThat(matcher.matches("textual/plain")).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+    }
+
+    @Test
+    void testMatches_all() {
+        ContentTypeMatcher matcher = ContentTypeMatcher.parse("*/*");
+
+        assertThat(matcher.matches("image/png")).isTrue();
+        assertThat(matcher.matches("")).isFalse();
+    }
+}
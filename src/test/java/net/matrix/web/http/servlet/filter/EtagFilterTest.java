@@ -0,0 +1,183 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.net.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EtagFilterTest {
+    private static final byte[] BODY = "{\"id\":1,\"name\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final FilterChain WRITE_BODY = (request, response) -> response.getOutputStream().write(BODY);
+
+    @Test
+    void testInit()
+        throws ServletException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("maxBufferSize", "1024");
+        EtagFilter filter = new EtagFilter();
+
+        filter.init(filterConfig);
+        assertThat(filter.getMaxBufferSize()).isEqualTo(1024);
+    }
+
+    @Test
+    void testDoFilter()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, WRITE_BODY);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).matches("\"[0-9a-f]{32}\"");
+        assertThat(response.getContentLength()).isEqualTo(BODY.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_writer()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, (req, res) -> {
+            res.getWriter().write("hello");
+            res.flushBuffer();
+            res.getWriter().write(" world");
+        });
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotNull();
+        assertThat(response.getContentAsString()).isEqualTo("hello world");
+    }
+
+    @Test
+    void testDoFilter_startAsync()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        PrintWriter[] writer = new PrintWriter[1];
+
+        filter.doFilter(request, response, (req, res) -> {
+            writer[0] = res.getWriter();
+            writer[0].write("hello");
+            req.startAsync();
+        });
+        writer[0].write(" world");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("hello world");
+    }
+
+    @Test
+    void testDoFilter_notModified()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), first, WRITE_BODY);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, WRITE_BODY);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testDoFilter_overflow()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("maxBufferSize", "8");
+        EtagFilter filter = new EtagFilter();
+        filter.init(filterConfig);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, (req, res) -> {
+            res.setContentLength(BODY.length);
+            res.getOutputStream().write(BODY, 0, 4);
+            res.getOutputStream().write(BODY, 4, BODY.length - 4);
+        });
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getContentLength()).isEqualTo(BODY.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_post()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/a"), response, WRITE_BODY);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_notOk()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, (req, res) -> {
+            ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_CREATED);
+            res.getOutputStream().write(BODY);
+        });
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_existingEtag()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, (req, res) -> {
+            ((HttpServletResponse) res).setHeader(HttpHeaders.ETAG, "\"v1\"");
+            res.getOutputStream().write(BODY);
+        });
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+        assertThat(response.getContentAsByteArray()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testDoFilter_sendError()
+        throws ServletException, IOException {
+        EtagFilter filter = new EtagFilter();
+        filter.init(new MockFilterConfig());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/a"), response, (req, res) -> {
+            res.getOutputStream().write(BODY);
+            ((HttpServletResponse) res).sendError(HttpServletResponse.SC_NOT_FOUND);
+        });
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FirstPerUriSamplerTest {
+    @Test
+    void testSample() {
+        long now = 1000;
+        FirstPerUriSampler sampler = new FirstPerUriSampler(2, 10, now);
+
+        assertThat(sampler.sample("/a", now)).isTrue();
+        assertThat(sampler.sample("/a", now)).isTrue();
+        assertThat(sampler.sample("/a", now)).isFalse();
+        assertThat(sampler.sample("/b", now)).isTrue();
+        // 下一分钟重新计数
+        now += TimeUnit.MINUTES.toNanos(1);
+        assertThat(sampler.sample("/a", now)).isTrue();
+    }
+
+    @Test
+    void testSample_maxUris() {
+        FirstPerUriSampler sampler = new FirstPerUriSampler(1, 2, 0);
+
+        assertThat(sampler.sample("/a", 0)).isTrue();
+        assertThat(sampler.sample("/b", 0)).isTrue();
+        assertThat(sampler.sample("/c", 0)).isFalse();
+    }
+}
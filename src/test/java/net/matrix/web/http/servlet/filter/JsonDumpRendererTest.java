@@ -0,0 +1,71 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonDumpRendererTest {
+    @Test
+    void testRender() {
+        RequestDump dump = new RequestDump(Arrays.asList(DumpSection.ofStrings("request", "Request", new String[] {
+            "Method", "QueryString"
+        }, new String[] {
+            "GET", null
+        }), DumpSection.ofRepeatedStrings("cookies", "Cookie", new String[] {
+            "Name"
+        }, new String[] {
+            "a"
+        }), DumpSection.ofObjects("attributes", "Attributes", new String[] {
+            "x"
+        }, new String[] {
+            "class java.lang.Integer"
+        }, new String[] {
+            "1"
+        }), DumpSection.ofRepeatedStrings("cookies", "Cookie", new String[] {
+            "Name"
+        }, new String[] {
+            "b"
+        }), DumpSection.ofMessage("session", "Session: ", "n/a")));
+        StringBuilder out = new StringBuilder();
+
+        new JsonDumpRenderer().render(dump, out);
+        assertThat(out).hasToString("{\"request\":{\"Method\":\"GET\",\"QueryString\":null},\"cookies\":[{\"Name\":\"a\"},{\"Name\":\"b\"}],"
+            + "\"attributes\":{\"x\":{\"class\":\"class java.lang.Integer\",\"value\":\"1\"}},\"session\":null}");
+    }
+
+    @Test
+    void testRender_detail() {
+        DumpSection headers = DumpSection.ofStrings("headers", "Part Headers", new String[] {
+            "content-type"
+        }, new String[] {
+            "text/plain"
+        });
+        RequestDump dump = new RequestDump(Arrays.asList(DumpSection.ofRepeatedStrings("parts", "Part", new String[] {
+            "Name"
+        }, new String[] {
+            "a"
+        }).withDetail(headers), DumpSection.ofRepeatedStrings("parts", "Part", new String[] {
+            "Name"
+        }, new String[] {
+            "b"
+        })));
+        StringBuilder out = new StringBuilder();
+
+        new JsonDumpRenderer().render(dump, out);
+        assertThat(out).hasToString("{\"parts\":[{\"Name\":\"a\",\"headers\":{\"content-type\":\"text/plain\"}},{\"Name\":\"b\"}]}");
+    }
+
+    @Test
+    void testAppendString() {
+        StringBuilder out = new StringBuilder();
+
+        JsonDumpRenderer.appendString(out, "a\"b\\c\nd\u0001e");
+        assertThat(out).hasToString("\"a\\\"b\\\\c\\nd\\u0001e\"");
+    }
+}
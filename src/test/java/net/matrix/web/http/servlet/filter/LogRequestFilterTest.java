@@ -5,19 +5,54 @@
 package net.matrix.web.http.servlet.filter;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
 
 import org.assertj.core.util.introspection.FieldSupport;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import net.matrix.web.http.servlet.journal.JournalRecord;
+import net.matrix.web.http.servlet.journal.RequestJournalReader;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class LogRequestFilterTest {
+    private static final String MULTIPART_BODY = "--abc\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n\r\n"
+        + "content\r\n--abc--\r\n";
+
     FieldSupport fieldSupport = FieldSupport.extraction();
 
     @Test
@@ -31,6 +66,16 @@ class LogRequestFilterTest {
         assertThat(fieldSupport.fieldValue("enabled", boolean.class, filter)).isTrue();
     }
 
+    @Test
+    void testInit_sampling() {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("sampling", "/*=unknown:1");
+        LogRequestFilter filter = new LogRequestFilter();
+
+        assertThatThrownBy(() -> filter.init(filterConfig)).isInstanceOf(ServletException.class);
+    }
+
     @Test
     void testDoFilter()
         throws ServletException, IOException {
@@ -45,4 +90,551 @@ class LogRequestFilterTest {
         filter.doFilter(request, response, filterChain);
         assertThat(fieldSupport.fieldValue("enabled", boolean.class, filter)).isTrue();
     }
+
+    @Test
+    void testDoFilter_fields()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("fields", "Method,RequestURI,headers");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockFilterChain filterChain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public String getRemoteHost() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public Enumeration<String> getParameterNames() {
+                throw new AssertionError();
+            }
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    void testDoFilter_sampling()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("async", "true");
+        filterConfig.addInitParameter("sampling", "/skip/*=rate:0");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        AsyncDumpWriter asyncWriter = fieldSupport.fieldValue("asyncWriter", AsyncDumpWriter.class, filter);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/skip/a"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/keep/a"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.destroy();
+        assertThat(asyncWriter.getSubmittedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testDoFilter_json()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("format", "json");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockFilterChain filterChain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+        assertThat(fieldSupport.fieldValue("renderer", DumpRenderer.class, filter)).isInstanceOf(JsonDumpRenderer.class);
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    void testDoFilter_after()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "after");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().print("test");
+            }
+        });
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(response.getContentAsString()).isEqualTo("test");
+    }
+
+    @Test
+    void testDoFilter_partsHeader()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("partsMode", "header");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public String getContentType() {
+                return "multipart/form-data; boundary=abc";
+            }
+
+            @Override
+            public Collection<Part> getParts() {
+                throw new IllegalStateException();
+            }
+        };
+        request.setContent(MULTIPART_BODY.getBytes(StandardCharsets.UTF_8));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test
+    void testDoFilter_partsScan()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "after");
+        filterConfig.addInitParameter("partsMode", "scan");
+        filterConfig.addInitParameter("partsScanLimit", "16");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public String getContentType() {
+                return "multipart/form-data; boundary=abc";
+            }
+
+            @Override
+            public Collection<Part> getParts() {
+                throw new IllegalStateException();
+            }
+        };
+        request.setContent(MULTIPART_BODY.getBytes(StandardCharsets.UTF_8));
+        byte[][] content = new byte[1][];
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                content[0] = req.getInputStream().readAllBytes();
+            }
+        });
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+        assertThat(content[0]).isEqualTo(MULTIPART_BODY.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDoFilter_captureBody()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "after");
+        filterConfig.addInitParameter("captureBody", "true");
+        filterConfig.addInitParameter("bodyMaxBytes", "4");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+        };
+        request.setContent("request content".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+        };
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                byte[] content = req.getInputStream().readAllBytes();
+                resp.setCharacterEncoding("UTF-8");
+                resp.getOutputStream().write(content);
+            }
+        });
+
+        filter.doFilter(request, response, filterChain);
+        assertThat(response.getContentAsString()).isEqualTo("request content");
+    }
+
+    @Test
+    void testDoFilter_summary()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "summary");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+
+        for (int i = 0; i < 5; ++i) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/users/" + i), new MockHttpServletResponse(), new MockFilterChain());
+        }
+        assertThat(filter.getRecordsWritten()).isZero();
+        filter.destroy();
+        assertThat(filter.getRecordsWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void testDoFilter_startAsync()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "after");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/test");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        });
+
+        filter.doFilter(request, response, filterChain);
+        assertThat(filter.getRecordsWritten()).isZero();
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        assertThat(asyncContext.getListeners()).hasSize(1);
+
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onComplete(new AsyncEvent(asyncContext, request, response));
+        }
+        assertThat(filter.getRecordsWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void testDoFilter_asyncDispatch()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setDispatcherType(DispatcherType.ASYNC);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        assertThat(filter.getRecordsWritten()).isZero();
+    }
+
+    @Test
+    void testDoFilter_journal(@TempDir Path directory)
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("output", "journal");
+        filterConfig.addInitParameter("journalDirectory", directory.toString());
+        filterConfig.addInitParameter("captureBody", "true");
+        filterConfig.addInitParameter("bodyMaxBytes", "7");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test") {
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+        };
+        request.setQueryString("a=1");
+        request.addParameter("a", "1");
+        request.addHeader("X-Test", "value");
+        request.addHeader("Authorization", "Bearer secret");
+        request.setContent("request content".getBytes(StandardCharsets.UTF_8));
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                req.getInputStream().readAllBytes();
+            }
+        });
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+        filter.destroy();
+        assertThat(filter.getRecordsWritten()).isZero();
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            JournalRecord record = reader.read();
+            assertThat(record.getMethod()).isEqualTo("POST");
+            assertThat(record.getRequestUri()).isEqualTo("/test");
+            assertThat(record.getQueryString()).isEqualTo("a=1");
+            assertThat(record.getHeaders().get("X-Test")).containsExactly("value");
+            assertThat(record.getHeaders().get("Authorization")).containsExactly(JournalRecord.REDACTED);
+            assertThat(record.getParameters().get("a")).containsExactly("1");
+            assertThat(record.getBody()).isEqualTo("request".getBytes(StandardCharsets.UTF_8));
+            assertThat(reader.read()).isNull();
+        }
+    }
+
+    @Test
+    void testDoFilter_journalAndLog(@TempDir Path directory)
+        throws ServletException, IOException, ReflectiveOperationException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("output", "log,journal");
+        filterConfig.addInitParameter("journalDirectory", directory.toString());
+        filterConfig.addInitParameter("mode", "after");
+        filterConfig.addInitParameter("captureBody", "true");
+        filterConfig.addInitParameter("journalRedactedHeaders", "X-Secret");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        List<RequestDump> dumps = new ArrayList<>();
+        Field renderer = LogRequestFilter.class.getDeclaredField("renderer");
+        renderer.setAccessible(true);
+        renderer.set(filter, (DumpRenderer) (dump, out) -> dumps.add(dump));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test") {
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+        };
+        request.addHeader("x-secret", "secret");
+        request.addHeader("Authorization", "Basic dXNlcg==");
+        request.setContent("request content".getBytes(StandardCharsets.UTF_8));
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                req.getInputStream().readAllBytes();
+            }
+        });
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+        filter.destroy();
+        // 二进制记录和日志共用一个请求包装
+        assertThat(filterChain.getRequest()).isInstanceOf(TeeRequestWrapper.class);
+        assertThat(((TeeRequestWrapper) filterChain.getRequest()).getRequest()).isSameAs(request);
+        assertThat(dumps).hasSize(1);
+        assertThat(dumps.get(0).getSections()).filteredOn(section -> "requestBody".equals(section.key)).singleElement()
+            .satisfies(section -> assertThat(section.values).contains("request content"));
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            JournalRecord record = reader.read();
+            assertThat(record.getBody()).isEqualTo("request content".getBytes(StandardCharsets.UTF_8));
+            // 配置的列表替换默认列表
+            assertThat(record.getHeaders().get("x-secret")).containsExactly(JournalRecord.REDACTED);
+            assertThat(record.getHeaders().get("Authorization")).containsExactly("Basic dXNlcg==");
+        }
+    }
+
+    @Test
+    void testInit_journalWithoutDirectory() {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("output", "journal");
+        LogRequestFilter filter = new LogRequestFilter();
+
+        assertThatThrownBy(() -> filter.init(filterConfig)).isInstanceOf(ServletException.class);
+    }
+
+    @Test
+    void testDoFilter_primitiveArrayAttribute()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("valueMaxLength", "10");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("ints", new int[1000]);
+        request.getSession().setAttribute("bytes", new byte[1000]);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test
+    void testDoFilter_jfr()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("output", "jfr");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test");
+        request.getSession();
+        MockFilterChain filterChain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException {
+                resp.setStatus(HttpServletResponse.SC_CREATED);
+                resp.getOutputStream().write(new byte[10]);
+            }
+        });
+
+        Path file = Files.createTempFile("LogRequestFilterTest", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("net.matrix.web.HttpRequest");
+            recording.start();
+            filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events).hasSize(1);
+            RecordedEvent event = events.get(0);
+            assertThat(event.getString("method")).isEqualTo("POST");
+            assertThat(event.getString("uri")).isEqualTo("/test");
+            assertThat(event.getInt("status")).isEqualTo(HttpServletResponse.SC_CREATED);
+            assertThat(event.getLong("bytesWritten")).isEqualTo(10);
+            assertThat(event.getString("sessionId")).isEqualTo(request.getSession().getId());
+            assertThat(event.getThread()).isNotNull();
+        } finally {
+            Files.delete(file);
+        }
+        assertThat(filter.getRecordsWritten()).isZero();
+    }
+
+    @Test
+    void testJmx()
+        throws ServletException, IOException, JMException {
+        MockFilterConfig filterConfig = new MockFilterConfig("testJmx");
+        filterConfig.addInitParameter("jmx", "true");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("net.matrix.web:type=LogRequestFilter,context=\"/\",name=\"testJmx\"");
+
+        assertThat(server.isRegistered(objectName)).isTrue();
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        assertThat(server.getAttribute(objectName, "RecordsWritten")).isEqualTo(0L);
+
+        server.setAttribute(objectName, new Attribute("Enabled", true));
+        server.setAttribute(objectName, new Attribute("Mode", "after"));
+        server.setAttribute(objectName, new Attribute("Fields", "Method,RequestURI"));
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        assertThat(server.getAttribute(objectName, "RecordsWritten")).isEqualTo(1L);
+        assertThat((Long) server.getAttribute(objectName, "BytesWritten")).isPositive();
+        assertThat((long[]) server.getAttribute(objectName, "EmitTimeHistogram")).hasSize(TimeHistogram.BUCKET_COUNT);
+        assertThat(filter.getMode()).isEqualTo("after");
+
+        server.invoke(objectName, "resetStatistics", null, null);
+        assertThat(filter.getRecordsWritten()).isZero();
+
+        // 名称重复时不影响初始化
+        LogRequestFilter duplicate = new LogRequestFilter();
+        duplicate.init(filterConfig);
+        duplicate.destroy();
+        assertThat(server.isRegistered(objectName)).isTrue();
+
+        filter.destroy();
+        assertThat(server.isRegistered(objectName)).isFalse();
+    }
+
+    @Test
+    void testDoFilter_slow()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("async", "true");
+        filterConfig.addInitParameter("mode", "slow");
+        filterConfig.addInitParameter("slowThresholdMillis", "60000");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        AsyncDumpWriter asyncWriter = fieldSupport.fieldValue("asyncWriter", AsyncDumpWriter.class, filter);
+
+        // 快速请求不输出
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        // 5xx 响应输出
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+        }));
+        filter.destroy();
+        assertThat(asyncWriter.getSubmittedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testDoFilter_slowSnapshot()
+        throws ServletException, IOException, ReflectiveOperationException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "slow");
+        filterConfig.addInitParameter("fields", "RequestURI,params");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        List<RequestDump> dumps = new ArrayList<>();
+        Field renderer = LogRequestFilter.class.getDeclaredField("renderer");
+        renderer.setAccessible(true);
+        renderer.set(filter, (DumpRenderer) (dump, out) -> dumps.add(dump));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/before");
+        request.addParameter("a", "1");
+
+        // 处理过程中修改请求，URI 是请求到达时的状态，参数在处理完成后读取
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                MockHttpServletRequest mockRequest = (MockHttpServletRequest) req;
+                mockRequest.setRequestURI("/after");
+                mockRequest.addParameter("b", "2");
+                resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }));
+        filter.destroy();
+        assertThat(dumps).hasSize(1);
+        DumpSection requestSection = dumps.get(0).getSections().get(0);
+        assertThat(requestSection.key).isEqualTo("request");
+        assertThat(requestSection.values).containsExactly("/before");
+        DumpSection parameterSection = dumps.get(0).getSections().get(1);
+        assertThat(parameterSection.key).isEqualTo("parameters");
+        assertThat(parameterSection.names).containsExactly("a", "b");
+        assertThat(parameterSection.values).containsExactly("1", "2");
+    }
+
+    @Test
+    void testDoFilter_slowFast()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("mode", "slow");
+        filterConfig.addInitParameter("slowThresholdMillis", "60000");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        AtomicInteger parameterReads = new AtomicInteger();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/a") {
+            @Override
+            public Enumeration<String> getParameterNames() {
+                parameterReads.incrementAndGet();
+                return super.getParameterNames();
+            }
+        };
+
+        // 快速请求不读取参数
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        filter.destroy();
+        assertThat(parameterReads).hasValue(0);
+    }
+
+    @Test
+    void testDoFilter_async()
+        throws ServletException, IOException {
+        MockFilterConfig filterConfig = new MockFilterConfig();
+        filterConfig.addInitParameter("enable", "true");
+        filterConfig.addInitParameter("async", "true");
+        filterConfig.addInitParameter("asyncOverflow", "block");
+        LogRequestFilter filter = new LogRequestFilter();
+        filter.init(filterConfig);
+        MockFilterChain filterChain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+        AsyncDumpWriter asyncWriter = fieldSupport.fieldValue("asyncWriter", AsyncDumpWriter.class, filter);
+        filter.destroy();
+        assertThat(asyncWriter.getSubmittedCount()).isEqualTo(1);
+        assertThat(asyncWriter.getPendingCount()).isZero();
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultipartScannerTest {
+    private static final String BODY = "--abc\r\n"
+        + "Content-Disposition: form-data; name=\"text\"\r\n"
+        + "\r\n"
+        + "hello\r\n"
+        + "--abc\r\n"
+        + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+        + "Content-Type: text/plain\r\n"
+        + "\r\n"
+        + "0123456789\r\n"
+        + "--abc--\r\n";
+
+    @Test
+    void testGetBoundary() {
+        assertThat(MultipartScanner.getBoundary("multipart/form-data; boundary=abc")).isEqualTo("abc");
+        assertThat(MultipartScanner.getBoundary("Multipart/Mixed; charset=UTF-8; boundary=\"a b\"")).isEqualTo("a b");
+        assertThat(MultipartScanner.getBoundary("multipart/form-data")).isNull();
+        assertThat(MultipartScanner.getBoundary("text/plain; boundary=abc")).isNull();
+        assertThat(MultipartScanner.getBoundary(null)).isNull();
+    }
+
+    @Test
+    void testScan() {
+        byte[] data = BODY.getBytes(StandardCharsets.UTF_8);
+
+        List<MultipartScanner.ScannedPart> parts = MultipartScanner.scan(data, data.length, "abc");
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(0).getName()).isEqualTo("text");
+        assertThat(parts.get(0).getSubmittedFileName()).isNull();
+        assertThat(parts.get(0).getContentType()).isNull();
+        assertThat(parts.get(0).size).isEqualTo(5);
+        assertThat(parts.get(1).getName()).isEqualTo("file");
+        assertThat(parts.get(1).getSubmittedFileName()).isEqualTo("a.txt");
+        assertThat(parts.get(1).getContentType()).isEqualTo("text/plain");
+        assertThat(parts.get(1).size).isEqualTo(10);
+        assertThat(parts.get(1).headerNames).containsExactly("Content-Disposition", "Content-Type");
+    }
+
+    @Test
+    void testScan_truncated() {
+        byte[] data = BODY.getBytes(StandardCharsets.UTF_8);
+        int length = BODY.indexOf("0123") + 2;
+
+        List<MultipartScanner.ScannedPart> parts = MultipartScanner.scan(data, length, "abc");
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(1).getName()).isEqualTo("file");
+        assertThat(parts.get(1).size).isEqualTo(-1);
+    }
+
+    @Test
+    void testScan_truncatedHeader() {
+        byte[] data = BODY.getBytes(StandardCharsets.UTF_8);
+        int length = BODY.indexOf("Content-Type");
+
+        List<MultipartScanner.ScannedPart> parts = MultipartScanner.scan(data, length, "abc");
+        assertThat(parts).hasSize(1);
+        assertThat(parts.get(0).getName()).isEqualTo("text");
+    }
+}
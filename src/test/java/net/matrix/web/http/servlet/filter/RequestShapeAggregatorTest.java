@@ -0,0 +1,51 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestShapeAggregatorTest {
+    @Test
+    void testShapeOf() {
+        assertThat(RequestShapeAggregator.shapeOf("GET", "/users/123/orders", "page=1&fields=a&page=2"))
+            .isEqualTo("GET /users/{id}/orders ?fields,page");
+        assertThat(RequestShapeAggregator.shapeOf("GET", "/files/0f8fad5b-d9cb-469f-a165-70867728950e", null)).isEqualTo("GET /files/{id}");
+        assertThat(RequestShapeAggregator.shapeOf("GET", "/blobs/9b74c9897bac770ffc029102a200c5de/raw", "")).isEqualTo("GET /blobs/{id}/raw");
+        assertThat(RequestShapeAggregator.shapeOf("POST", "/api/v2/login", "flag&=x")).isEqualTo("POST /api/v2/login ?flag");
+        assertThat(RequestShapeAggregator.shapeOf("GET", "/", null)).isEqualTo("GET /");
+    }
+
+    @Test
+    void testDrain() {
+        RequestShapeAggregator aggregator = new RequestShapeAggregator(10);
+        aggregator.record("GET", "/users/1", null, 200, 1_000_000, false);
+        aggregator.record("GET", "/users/2", null, 404, 3_000_000, false);
+        aggregator.record("GET", "/users/3", null, 500, 2_000_000, true);
+        aggregator.record("POST", "/users", null, 201, 500_000, false);
+
+        DumpSection section = aggregator.drain("Summary");
+        assertThat(section.title).isEqualTo("Summary");
+        assertThat(section.names).containsExactly("GET /users/{id}", "POST /users");
+        assertThat(section.values[0]).startsWith("count=3 2xx=1 4xx=1 error=1 avg=2.000ms").endsWith("max=3.000ms");
+        assertThat(section.values[1]).startsWith("count=1 2xx=1 avg=0.500ms p50<=0.512ms");
+        assertThat(aggregator.drain("Summary")).isNull();
+    }
+
+    @Test
+    void testDrain_maxShapes() {
+        RequestShapeAggregator aggregator = new RequestShapeAggregator(2);
+        aggregator.record("GET", "/a", null, 200, 1000, false);
+        aggregator.record("GET", "/b", null, 200, 1000, false);
+        aggregator.record("GET", "/c", null, 200, 1000, false);
+        aggregator.record("GET", "/d", null, 200, 1000, false);
+        aggregator.record("GET", "/a", null, 200, 1000, false);
+
+        DumpSection section = aggregator.drain("Summary");
+        assertThat(section.names).containsExactlyInAnyOrder("GET /a", "GET /b", RequestShapeAggregator.OTHER);
+        assertThat(section.values).contains("count=2 2xx=2 avg=0.001ms p50<=0.002ms p99<=0.002ms max=0.001ms");
+    }
+}
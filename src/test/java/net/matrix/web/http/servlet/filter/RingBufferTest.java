@@ -0,0 +1,44 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferTest {
+    @Test
+    void testNew() {
+        RingBuffer<String> buffer = new RingBuffer<>(5);
+
+        assertThat(buffer.capacity()).isEqualTo(8);
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void testOffer() {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+
+        assertThat(buffer.offer("a")).isTrue();
+        assertThat(buffer.offer("b")).isTrue();
+        assertThat(buffer.offer("c")).isFalse();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testPoll() {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+        buffer.offer("a");
+        buffer.offer("b");
+
+        assertThat(buffer.poll()).isEqualTo("a");
+        assertThat(buffer.offer("c")).isTrue();
+        assertThat(buffer.poll()).isEqualTo("b");
+        assertThat(buffer.poll()).isEqualTo("c");
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+}
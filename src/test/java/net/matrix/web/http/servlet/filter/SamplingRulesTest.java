@@ -0,0 +1,51 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SamplingRulesTest {
+    @Test
+    void testParse() {
+        assertThat(SamplingRules.parse(null, 0)).isNull();
+        assertThat(SamplingRules.parse(" ", 0)).isNull();
+        assertThat(SamplingRules.parse("/a/*=rate:0.5;\n/*=perSecond:5", 0)).isNotNull();
+        assertThatThrownBy(() -> SamplingRules.parse("/a/*", 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SamplingRules.parse("/a/*=unknown:1", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSample() {
+        SamplingRules rules = SamplingRules.parse("/api/*=rate:0;/exact=rate:0;*.do=rate:0;/open/*=rate:1", 0);
+
+        assertThat(rules.sample(request("/ctx", "/ctx/api"), 0)).isFalse();
+        assertThat(rules.sample(request("/ctx", "/ctx/api/x"), 0)).isFalse();
+        assertThat(rules.sample(request("/ctx", "/ctx/apix"), 0)).isTrue();
+        assertThat(rules.sample(request("/ctx", "/ctx/exact"), 0)).isFalse();
+        assertThat(rules.sample(request("/ctx", "/ctx/exact/x"), 0)).isTrue();
+        assertThat(rules.sample(request("", "/a/b.do"), 0)).isFalse();
+        assertThat(rules.sample(request("", "/open/b.do"), 0)).isFalse();
+        assertThat(rules.sample(request("", "/open/b"), 0)).isTrue();
+        assertThat(rules.sample(request("", "/other"), 0)).isTrue();
+    }
+
+    @Test
+    void testSample_all() {
+        SamplingRules rules = SamplingRules.parse("/*=rate:0", 0);
+
+        assertThat(rules.sample(request("", "/"), 0)).isFalse();
+        assertThat(rules.sample(request("/ctx", "/ctx/a/b"), 0)).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String contextPath, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setContextPath(contextPath);
+        return request;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TableDumpRendererTest {
+    @Test
+    void testRender() {
+        RequestDump dump = new RequestDump(Arrays.asList(DumpSection.ofStrings("request", "Request: request", new String[] {
+            "Method", "RequestURI", "Empty", "Null"
+        }, new String[] {
+            "GET", "/0123456789/abcdefghij/x", "", null
+        }), DumpSection.ofStrings("headers", "Request Headers", new String[0], new String[0]), DumpSection.ofStrings("params", "P", new String[] {
+            "exact"
+        }, new String[] {
+            "0123456789"
+        }), DumpSection.ofObjects("attributes", "Request Attributes", new String[] {
+            "a", "bb", "c"
+        }, new String[] {
+            "java.lang.String", null, "java.lang.Integer"
+        }, new String[] {
+            "short", "0123456789012345678901", null
+        }), DumpSection.ofObjects("empty", "Session Attributes", new String[0], new String[0], new String[0]),
+            DumpSection.ofObjects("x", "T", new String[] {
+                "n"
+            }, new String[] {
+                "C"
+            }, new String[] {
+                ""
+            }), DumpSection.ofMessage("session", "Session: ", "(none)")));
+        StringBuilder out = new StringBuilder();
+
+        new TableDumpRenderer(10).render(dump, out);
+        // 与逐字符输出的实现逐字节一致，包括空值和折行时的既有格式
+        String expected = """
+
+            ============================== 请求内容开始 ======================================
+            +---------------------+
+            |Request: request     |
+            +----------+----------+
+            |Method    |GET       |
+            |RequestURI|/012345678|
+            |          |9/abcdefgh|
+            |          |ij/x      |
+            |Empty     |          |
+            |Null      |(null)    |
+            +----------+----------+
+            +---------------+
+            |Request Headers|
+            +---------------+
+            +----------------+
+            |P               |
+            +-----+----------+
+            |exact|0123456789|
+            +-----+----------+
+            +--------------------+
+            |Request Attributes  |
+            +--+-----------------+
+            |a |java.lang.String |
+            |short               |
+            |bb|(n/a)            |
+            |0123456789|
+            |0123456789|
+            |01        |
+            |c |java.lang.Integer|
+            |(null)              |
+            +--------------------+
+            +------------------+
+            |Session Attributes|
+            +------------------+
+            +---+
+            |T  |
+            +-+-+
+            |n|C|
+               |
+            +---+
+            Session: (none)
+            ============================== 请求内容结束 ======================================""".replace("\n", System.lineSeparator());
+        assertThat(out).hasToString(expected);
+    }
+
+    @Test
+    void testRender_wide() {
+        String value = "x".repeat(300);
+        RequestDump dump = new RequestDump(Arrays.asList(DumpSection.ofStrings("request", "R", new String[] {
+            "Name"
+        }, new String[] {
+            value
+        })));
+        StringBuilder out = new StringBuilder();
+
+        new TableDumpRenderer(200).render(dump, out);
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertThat(lines[2]).isEqualTo("+" + "-".repeat(205) + "+");
+        assertThat(lines[3]).isEqualTo("|R" + " ".repeat(204) + "|");
+        assertThat(lines[4]).isEqualTo("+----+" + "-".repeat(200) + "+");
+        assertThat(lines[5]).isEqualTo("|Name|" + "x".repeat(200) + "|");
+        assertThat(lines[6]).isEqualTo("|    |" + "x".repeat(100) + " ".repeat(100) + "|");
+    }
+}
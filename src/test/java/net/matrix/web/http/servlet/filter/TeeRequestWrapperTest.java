@@ -0,0 +1,46 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeeRequestWrapperTest {
+    @Test
+    void testGetInputStream()
+        throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(new byte[] {
+            1, 2, 3, 4, 5, 6
+        });
+        BodyBufferPool pool = new BodyBufferPool(4, 1);
+        TeeRequestWrapper wrapper = new TeeRequestWrapper(request, pool);
+
+        assertThat(wrapper.getCapturedLength()).isZero();
+        assertThat(wrapper.getInputStream().read()).isEqualTo(1);
+        assertThat(wrapper.getInputStream().readAllBytes()).containsExactly(2, 3, 4, 5, 6);
+        assertThat(wrapper.getCapturedLength()).isEqualTo(4);
+        assertThat(wrapper.getBytesRead()).isEqualTo(6);
+        assertThat(wrapper.getCaptured()).containsExactly(1, 2, 3, 4);
+
+        byte[] captured = wrapper.getCaptured();
+        wrapper.release();
+        assertThat(wrapper.getCapturedLength()).isZero();
+        assertThat(pool.acquire()).isSameAs(captured);
+    }
+
+    @Test
+    void testRelease_unread() {
+        BodyBufferPool pool = new BodyBufferPool(4, 1);
+        TeeRequestWrapper wrapper = new TeeRequestWrapper(new MockHttpServletRequest(), pool);
+
+        wrapper.release();
+        assertThat(wrapper.getCaptured()).isEmpty();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeHistogramTest {
+    @Test
+    void testRecord() {
+        TimeHistogram histogram = new TimeHistogram();
+
+        histogram.record(500);
+        histogram.record(1000);
+        histogram.record(3500);
+        histogram.record(Long.MAX_VALUE / 2);
+        long[] counts = histogram.getCounts();
+        assertThat(counts).hasSize(TimeHistogram.BUCKET_COUNT);
+        assertThat(counts[0]).isEqualTo(1);
+        assertThat(counts[1]).isEqualTo(1);
+        assertThat(counts[2]).isEqualTo(1);
+        assertThat(counts[TimeHistogram.BUCKET_COUNT - 1]).isEqualTo(1);
+        assertThat(histogram.getTotalNanos()).isEqualTo(500 + 1000 + 3500 + Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    void testReset() {
+        TimeHistogram histogram = new TimeHistogram();
+        histogram.record(1000);
+
+        histogram.reset();
+        assertThat(histogram.getCounts()).containsOnly(0);
+        assertThat(histogram.getTotalNanos()).isZero();
+    }
+}
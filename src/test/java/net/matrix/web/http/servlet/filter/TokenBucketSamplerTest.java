@@ -0,0 +1,32 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketSamplerTest {
+    @Test
+    void testSample() {
+        long now = 1000;
+        TokenBucketSampler sampler = new TokenBucketSampler(2, now);
+
+        assertThat(sampler.sample("/", now)).isTrue();
+        assertThat(sampler.sample("/", now)).isTrue();
+        assertThat(sampler.sample("/", now)).isFalse();
+        // 半秒后补充一个令牌
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertThat(sampler.sample("/", now)).isTrue();
+        assertThat(sampler.sample("/", now)).isFalse();
+        // 长时间空闲后最多积累一秒的令牌
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertThat(sampler.sample("/", now)).isTrue();
+        assertThat(sampler.sample("/", now)).isTrue();
+        assertThat(sampler.sample("/", now)).isFalse();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValueRendererTest {
+    @Test
+    void testClassName() {
+        assertThat(ValueRenderer.className(null)).isNull();
+        assertThat(ValueRenderer.className("a")).isEqualTo("class java.lang.String");
+        assertThat(ValueRenderer.className("b")).isSameAs(ValueRenderer.className("a"));
+    }
+
+    @Test
+    void testRender() {
+        ValueRenderer renderer = new ValueRenderer(100, 1000);
+
+        assertThat(renderer.render(null)).isNull();
+        assertThat(renderer.render("abc")).isEqualTo("abc");
+        assertThat(renderer.render(1)).isEqualTo("1");
+        assertThat(renderer.render(new Object[] {
+            "a", 1, null
+        })).isEqualTo(Arrays.toString(new Object[] {
+            "a", 1, null
+        }));
+        assertThat(renderer.render(Arrays.asList("a", "b"))).isEqualTo("[a, b]");
+        assertThat(renderer.render(Collections.singletonMap("k", "v"))).isEqualTo("{k=v}");
+    }
+
+    @Test
+    void testRender_primitiveArray() {
+        ValueRenderer renderer = new ValueRenderer(100, 1000);
+
+        assertThat(renderer.render(new int[] {
+            1, 2, 3
+        })).isEqualTo("[1, 2, 3]");
+        assertThat(renderer.render(new long[] {
+            1L
+        })).isEqualTo("[1]");
+        assertThat(renderer.render(new byte[] {
+            -1, 0
+        })).isEqualTo("[-1, 0]");
+        assertThat(renderer.render(new char[] {
+            'a', 'b'
+        })).isEqualTo("[a, b]");
+        assertThat(renderer.render(new short[0])).isEqualTo("[]");
+        assertThat(renderer.render(new boolean[] {
+            true
+        })).isEqualTo("[true]");
+        assertThat(renderer.render(new double[] {
+            1.5
+        })).isEqualTo("[1.5]");
+        assertThat(renderer.render(new float[] {
+            2.5F
+        })).isEqualTo("[2.5]");
+    }
+
+    @Test
+    void testRender_valueLimit() {
+        ValueRenderer renderer = new ValueRenderer(10, 1000);
+
+        assertThat(renderer.render("0123456789")).isEqualTo("0123456789");
+        assertThat(renderer.render("0123456789A")).isEqualTo("0123456789" + ValueRenderer.TRUNCATED);
+        assertThat(renderer.render(new int[1000000])).isEqualTo("[0, 0, 0, " + ValueRenderer.TRUNCATED);
+    }
+
+    @Test
+    void testRender_recordLimit() {
+        ValueRenderer renderer = new ValueRenderer(10, 15);
+
+        assertThat(renderer.render("0123456789")).isEqualTo("0123456789");
+        assertThat(renderer.render("0123456789")).isEqualTo("01234" + ValueRenderer.TRUNCATED);
+        assertThat(renderer.getRemaining()).isZero();
+        assertThat(renderer.render("0")).isEqualTo(ValueRenderer.TRUNCATED);
+    }
+
+    @Test
+    void testRender_selfReference() {
+        ValueRenderer renderer = new ValueRenderer(100, 1000);
+        List<Object> list = new ArrayList<>();
+        list.add(list);
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("a", map);
+
+        assertThat(renderer.render(list)).isEqualTo("[(this Collection)]");
+        assertThat(renderer.render(map)).isEqualTo("{a=(this Map)}");
+    }
+}
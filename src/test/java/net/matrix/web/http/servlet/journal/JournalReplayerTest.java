@@ -0,0 +1,64 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalReplayerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplay()
+        throws IOException, InterruptedException {
+        try (RequestJournal journal = new RequestJournal(directory, 4096, 4)) {
+            journal.append(RequestJournalTest.record(1, "/ok", "content".getBytes(StandardCharsets.UTF_8)));
+            journal.append(RequestJournalTest.record(2, "/fail", null));
+            journal.append(RequestJournalTest.record(3, "/error", null));
+        }
+        Set<String> bodies = ConcurrentHashMap.newKeySet();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp)
+                throws IOException, ServletException {
+                switch (req.getRequestURI()) {
+                case "/fail":
+                    resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    break;
+                case "/error":
+                    throw new ServletException("error");
+                default:
+                    assertThat(req.getParameter("q")).isEqualTo("1");
+                    assertThat(req.getHeader("accept")).isEqualTo("text/plain");
+                    bodies.add(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+                    resp.getOutputStream().write(new byte[10]);
+                    break;
+                }
+            }
+        };
+        JournalReplayer replayer = JournalReplayer.forServlet(servlet, 2, 0);
+
+        assertThat(replayer.replay(directory)).isEqualTo(3);
+        assertThat(replayer.getRequestCount()).isEqualTo(3);
+        assertThat(replayer.getServerErrorCount()).isEqualTo(1);
+        assertThat(replayer.getErrorCount()).isEqualTo(1);
+        assertThat(replayer.getBytesWritten()).isEqualTo(10);
+        assertThat(bodies).containsExactly("content");
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.journal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import com.google.common.collect.ImmutableListMultimap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppend()
+        throws IOException {
+        try (RequestJournal journal = new RequestJournal(directory, 4096, 4)) {
+            assertThat(journal.append(record(1, "/a", "content".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(journal.append(record(2, "/b", null))).isTrue();
+            assertThat(journal.getAppendedCount()).isEqualTo(2);
+        }
+
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            JournalRecord record = reader.read();
+            assertThat(record.getTimestamp()).isEqualTo(1);
+            assertThat(record.getMethod()).isEqualTo("POST");
+            assertThat(record.getRequestUri()).isEqualTo("/a");
+            assertThat(record.getQueryString()).isEqualTo("q=1");
+            assertThat(record.getHeaders().get("Accept")).containsExactly("text/plain", "application/json");
+            assertThat(record.getParameters().get("q")).containsExactly("1");
+            assertThat(record.getBody()).isEqualTo("content".getBytes(StandardCharsets.UTF_8));
+            record = reader.read();
+            assertThat(record.getTimestamp()).isEqualTo(2);
+            assertThat(record.getRequestUri()).isEqualTo("/b");
+            assertThat(record.getBody()).isNull();
+            assertThat(record.getBodyLength()).isEqualTo(-1);
+            assertThat(reader.read()).isNull();
+        }
+    }
+
+    @Test
+    void testAppend_roll()
+        throws IOException {
+        try (RequestJournal journal = new RequestJournal(directory, 512, 2)) {
+            for (int i = 0; i < 20; ++i) {
+                journal.append(record(i, "/" + i, new byte[100]));
+            }
+        }
+
+        assertThat(RequestJournal.listSegments(directory)).hasSize(2);
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            long last = -1;
+            int count = 0;
+            for (JournalRecord record = reader.read(); record != null; record = reader.read()) {
+                assertThat(record.getTimestamp()).isGreaterThan(last);
+                last = record.getTimestamp();
+                ++count;
+            }
+            assertThat(count).isBetween(1, 19);
+            assertThat(last).isEqualTo(19);
+        }
+    }
+
+    @Test
+    void testAppend_reopen()
+        throws IOException {
+        try (RequestJournal journal = new RequestJournal(directory, 4096, 4)) {
+            journal.append(record(1, "/a", null));
+        }
+        try (RequestJournal journal = new RequestJournal(directory, 4096, 4)) {
+            journal.append(record(2, "/b", null));
+        }
+
+        assertThat(RequestJournal.listSegments(directory)).hasSize(2);
+        try (RequestJournalReader reader = new RequestJournalReader(directory)) {
+            assertThat(reader.read().getRequestUri()).isEqualTo("/a");
+            assertThat(reader.read().getRequestUri()).isEqualTo("/b");
+            assertThat(reader.read()).isNull();
+        }
+    }
+
+    @Test
+    void testAppend_tooLarge()
+        throws IOException {
+        try (RequestJournal journal = new RequestJournal(directory, 512, 2)) {
+            assertThat(journal.append(record(1, "/a", new byte[1024]))).isFalse();
+            assertThat(journal.getDroppedCount()).isEqualTo(1);
+            assertThat(journal.getAppendedCount()).isZero();
+        }
+    }
+
+    static JournalRecord record(long timestamp, String uri, byte[] body) {
+        ImmutableListMultimap<String, String> headers = ImmutableListMultimap.of("Accept", "text/plain", "Accept", "application/json");
+        ImmutableListMultimap<String, String> parameters = ImmutableListMultimap.of("q", "1");
+        return new JournalRecord(timestamp, "POST", uri, "q=1", headers, parameters, body);
+    }
+}
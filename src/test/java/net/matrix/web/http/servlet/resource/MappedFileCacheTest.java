@@ -0,0 +1,124 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedFileCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testGet()
+        throws IOException {
+        Path file = createFile("a.txt", "hello", 1000);
+        MappedFileCache cache = new MappedFileCache(1024, 1024, 60000);
+
+        CachedFile cached = cache.get(file);
+        assertThat(cached).isNotNull();
+        assertThat(cached.isCached()).isTrue();
+        assertThat(cached.getSize()).isEqualTo(5);
+        assertThat(cached.getLastModified()).isEqualTo(1000);
+        assertThat(cached.getEtag()).isEqualTo("\"5-3e8\"");
+        assertThat(content(cached)).isEqualTo("hello");
+        assertThat(cache.get(file)).isSameAs(cached);
+        assertThat(cache.size()).isEqualTo(5);
+    }
+
+    @Test
+    void testGet_missing()
+        throws IOException {
+        MappedFileCache cache = new MappedFileCache(1024, 1024, 60000);
+
+        assertThat(cache.get(directory.resolve("missing.txt"))).isNull();
+        assertThat(cache.get(directory)).isNull();
+        assertThat(cache.entryCount()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testGet_changed()
+        throws IOException {
+        Path file = createFile("a.txt", "hello", 1000);
+        MappedFileCache cache = new MappedFileCache(1024, 1024, 0);
+        CachedFile cached = cache.get(file);
+        assertThat(cache.get(file)).isSameAs(cached);
+
+        createFile("a.txt", "changed", 2000);
+        CachedFile changed = cache.get(file);
+        assertThat(changed).isNotSameAs(cached);
+        assertThat(content(changed)).isEqualTo("changed");
+        assertThat(cache.size()).isEqualTo(7);
+
+        Files.delete(file);
+        assertThat(cache.get(file)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testGet_checkInterval()
+        throws IOException {
+        Path file = createFile("a.txt", "hello", 1000);
+        MappedFileCache cache = new MappedFileCache(1024, 1024, 60000);
+        CachedFile cached = cache.get(file);
+
+        createFile("a.txt", "changed", 2000);
+        assertThat(cache.get(file)).isSameAs(cached);
+    }
+
+    @Test
+    void testGet_evict()
+        throws IOException {
+        Path a = createFile("a.txt", "aaaa", 1000);
+        Path b = createFile("b.txt", "bbbb", 1000);
+        Path c = createFile("c.txt", "cccc", 1000);
+        MappedFileCache cache = new MappedFileCache(8, 8, 60000);
+
+        CachedFile cachedA = cache.get(a);
+        cache.get(b);
+        assertThat(cache.get(a)).isSameAs(cachedA);
+        cache.get(c);
+        assertThat(cache.size()).isEqualTo(8);
+        assertThat(cache.entryCount()).isEqualTo(2);
+        assertThat(cache.get(a)).isSameAs(cachedA);
+    }
+
+    @Test
+    void testGet_largeFile()
+        throws IOException {
+        Path file = createFile("a.txt", "0123456789", 1000);
+        MappedFileCache cache = new MappedFileCache(1024, 4, 60000);
+
+        CachedFile cached = cache.get(file);
+        assertThat(cached.isCached()).isFalse();
+        assertThat(content(cached)).isEqualTo("0123456789");
+        assertThat(cache.size()).isZero();
+    }
+
+    private Path createFile(String name, String content, long lastModified)
+        throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    private static String content(CachedFile file)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        file.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
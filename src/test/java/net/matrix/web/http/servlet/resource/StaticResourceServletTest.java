@@ -0,0 +1,226 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.web.http.servlet.resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+
+import com.google.common.net.HttpHeaders;
+
+import net.matrix.web.http.servlet.ContentTypeMockResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StaticResourceServletTest {
+    private static final long LAST_MODIFIED = 1709282977000L;
+
+    private final MockServletContext servletContext = new MockServletContext() {
+        @Override
+        public String getMimeType(String file) {
+            return file.endsWith(".js") ? "text/javascript" : null;
+        }
+    };
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private Path directory;
+
+    @BeforeEach
+    void beforeEach()
+        throws IOException {
+        directory = Files.createDirectory(temporaryDirectory.resolve("public"));
+        createFile("app.js", "identity");
+        createFile("app.js.gz", "gzip");
+        createFile("app.js.br", "br");
+        createFile("plain.js", "plain");
+    }
+
+    @Test
+    void testInit()
+        throws ServletException {
+        MockServletConfig servletConfig = servletConfig();
+        servletConfig.addInitParameter("maxCacheSize", "4096");
+        servletConfig.addInitParameter("maxFileSize", "1024");
+        servletConfig.addInitParameter("checkInterval", "0");
+        StaticResourceServlet servlet = new StaticResourceServlet();
+
+        servlet.init(servletConfig);
+        assertThat(servlet.getDirectory()).isEqualTo(directory.toAbsolutePath().normalize());
+        assertThat(servlet.getMaxCacheSize()).isEqualTo(4096);
+        assertThat(servlet.getMaxFileSize()).isEqualTo(1024);
+        assertThat(servlet.getCheckInterval()).isZero();
+    }
+
+    @Test
+    void testInit_noDirectory() {
+        StaticResourceServlet servlet = new StaticResourceServlet();
+
+        assertThatThrownBy(() -> servlet.init(new MockServletConfig(servletContext))).isInstanceOf(ServletException.class);
+    }
+
+    @Test
+    void testService()
+        throws ServletException, IOException {
+        MockServletConfig servletConfig = servletConfig();
+        servletConfig.addInitParameter("cacheControl", "max-age=60");
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig);
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        servlet.service(request("GET", "/app.js"), response);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentType()).isEqualTo("text/javascript");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=60");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"8-" + Long.toHexString(LAST_MODIFIED) + '"');
+        assertThat(response.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(LAST_MODIFIED);
+        assertThat(response.getContentLengthLong()).isEqualTo(8);
+        assertThat(response.getContentAsString()).isEqualTo("identity");
+    }
+
+    @Test
+    void testService_precompressed()
+        throws ServletException, IOException {
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig());
+
+        assertThat(get(servlet, "/app.js", "gzip, deflate, br").getContentAsString()).isEqualTo("br");
+        assertThat(get(servlet, "/app.js", "gzip, br;q=0").getContentAsString()).isEqualTo("gzip");
+        assertThat(get(servlet, "/app.js", "identity").getContentAsString()).isEqualTo("identity");
+        assertThat(get(servlet, "/plain.js", "gzip, br").getContentAsString()).isEqualTo("plain");
+
+        ContentTypeMockResponse response = get(servlet, "/app.js", "gzip");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentType()).isEqualTo("text/javascript");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"4-" + Long.toHexString(LAST_MODIFIED) + '"');
+    }
+
+    @Test
+    void testService_stalePrecompressed()
+        throws ServletException, IOException {
+        Files.setLastModifiedTime(directory.resolve("app.js.br"), FileTime.fromMillis(LAST_MODIFIED - 1000));
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig());
+
+        // 比原文件旧的 .br 不使用，改用 .gz
+        assertThat(get(servlet, "/app.js", "gzip, br").getContentAsString()).isEqualTo("gzip");
+        assertThat(get(servlet, "/app.js", "br").getContentAsString()).isEqualTo("identity");
+        assertThat(get(servlet, "/app.js", "br").getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void testService_notModified()
+        throws ServletException, IOException {
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig());
+        String etag = get(servlet, "/app.js", null).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = request("GET", "/app.js");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        servlet.service(request, response);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testService_head()
+        throws ServletException, IOException {
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig());
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+
+        servlet.service(request("HEAD", "/app.js"), response);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentLengthLong()).isEqualTo(8);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void testService_notFound()
+        throws ServletException, IOException {
+        Files.writeString(temporaryDirectory.resolve("secret.js"), "secret", StandardCharsets.UTF_8);
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig());
+
+        assertThat(get(servlet, "/missing.js", null).getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(get(servlet, "/../secret.js", null).getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(get(servlet, "/", null).getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        assertThat(get(servlet, null, null).getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    void testService_changed()
+        throws ServletException, IOException {
+        MockServletConfig servletConfig = servletConfig();
+        servletConfig.addInitParameter("checkInterval", "0");
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig);
+        assertThat(get(servlet, "/plain.js", null).getContentAsString()).isEqualTo("plain");
+
+        Files.writeString(directory.resolve("plain.js"), "changed", StandardCharsets.UTF_8);
+        assertThat(get(servlet, "/plain.js", null).getContentAsString()).isEqualTo("changed");
+    }
+
+    @Test
+    void testService_largeFile()
+        throws ServletException, IOException {
+        MockServletConfig servletConfig = servletConfig();
+        servletConfig.addInitParameter("maxFileSize", "4");
+        StaticResourceServlet servlet = new StaticResourceServlet();
+        servlet.init(servletConfig);
+
+        ContentTypeMockResponse response = get(servlet, "/app.js", null);
+        assertThat(response.getContentLengthLong()).isEqualTo(8);
+        assertThat(response.getContentAsString()).isEqualTo("identity");
+    }
+
+    private void createFile(String name, String content)
+        throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+    }
+
+    private MockServletConfig servletConfig() {
+        MockServletConfig servletConfig = new MockServletConfig(servletContext);
+        servletConfig.addInitParameter("directory", directory.toString());
+        return servletConfig;
+    }
+
+    private MockHttpServletRequest request(String method, String pathInfo) {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, method, pathInfo == null ? "/static" : "/static" + pathInfo);
+        request.setServletPath("/static");
+        request.setPathInfo(pathInfo);
+        return request;
+    }
+
+    private ContentTypeMockResponse get(StaticResourceServlet servlet, String pathInfo, String acceptEncoding)
+        throws ServletException, IOException {
+        MockHttpServletRequest request = request("GET", pathInfo);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        ContentTypeMockResponse response = new ContentTypeMockResponse();
+        servlet.service(request, response);
+        return response;
+    }
+}